@@ -0,0 +1,74 @@
+package com.jsonconnector;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Command list filtering and grouping as done on every keystroke in the favorites dialog
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CommandManagerBenchmark {
+
+    @Param({"100", "10000", "100000"})
+    int commandCount;
+
+    @Param({"", "elem", "Domain3.getview", "dgvm"})
+    String filter;
+
+    CommandManager commandManager;
+    CommandIndex.Result previousKeystroke;
+
+    @Setup
+    public void setUp() {
+        commandManager = new CommandManager();
+        commandManager.setCommands(Payloads.commands(commandCount));
+        String previousFilter = filter.isEmpty() ? filter : filter.substring(0, filter.length() - 1);
+        previousKeystroke = commandManager.getIndex().search(previousFilter, null, null, () -> false);
+    }
+
+    @Benchmark
+    public List<String> filterAllDomains() {
+        return commandManager.filterCommands(filter, null);
+    }
+
+    @Benchmark
+    public List<String> filterOneDomain() {
+        return commandManager.filterCommands(filter, "Domain3");
+    }
+
+    @Benchmark
+    public List<String> searchRanked() {
+        return commandManager.searchCommands(filter, null, 500);
+    }
+
+    /**
+     * Typing the last character of the filter, refining the result of the one before
+     */
+    @Benchmark
+    public CommandIndex.Result searchRefined() {
+        return commandManager.getIndex().search(filter, null, previousKeystroke, () -> false);
+    }
+
+    @Benchmark
+    public Map<String, List<String>> getGroupedCommands() {
+        return commandManager.getGroupedCommands();
+    }
+}
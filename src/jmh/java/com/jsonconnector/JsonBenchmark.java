@@ -0,0 +1,54 @@
+package com.jsonconnector;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Validation, formatting and parsing of responses from 100 B to 50 MB
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class JsonBenchmark {
+
+    @Param({"100", "10000", "1000000", "50000000"})
+    int size;
+
+    String json;
+
+    @Setup
+    public void setUp() {
+        json = Payloads.json(size);
+    }
+
+    @Benchmark
+    public boolean isValidJson() {
+        return JsonValidator.isValidJson(json);
+    }
+
+    @Benchmark
+    public String format() {
+        return JsonFormatter.format(json);
+    }
+
+    @Benchmark
+    public JsonElement parseTree() {
+        return JsonParser.parseString(json);
+    }
+}
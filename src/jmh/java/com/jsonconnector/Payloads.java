@@ -0,0 +1,48 @@
+package com.jsonconnector;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Generated test data for the benchmarks
+ */
+final class Payloads {
+
+    private Payloads() {
+    }
+
+    /**
+     * An API-style response of about {@code targetBytes} characters: a result array of element
+     * objects with strings, numbers, booleans, nulls and nested objects.
+     */
+    static String json(int targetBytes) {
+        StringBuilder json = new StringBuilder(targetBytes + 256);
+        json.append("{\"succeeded\": true, \"result\": {\"elements\": [");
+        int closing = "]}}".length();
+        for (int i = 0; i == 0 || json.length() + closing < targetBytes; i++) {
+            if (i > 0) {
+                json.append(", ");
+            }
+            json.append("{\"id\": ").append(i)
+                .append(", \"guid\": \"").append(String.format("%08X-0000-4000-8000-%012d", i, i)).append('"')
+                .append(", \"name\": \"Element ").append(i).append('"')
+                .append(", \"position\": {\"x\": ").append(i * 0.5).append(", \"y\": ").append(i * -1.25).append('}')
+                .append(", \"visible\": ").append(i % 3 != 0)
+                .append(", \"parent\": null}");
+        }
+        return json.append("]}}").toString();
+    }
+
+    /**
+     * {@code count} command names spread over ten domains, like a large GetCommands answer.
+     */
+    static List<String> commands(int count) {
+        String[] verbs = {"Get", "Set", "Create", "Delete", "Clone", "Move"};
+        String[] nouns = {"Elements", "ProjectMapItems", "ViewMap", "Notifications", "Location", "Properties"};
+        List<String> commands = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            commands.add("Domain" + (i % 10) + "." + verbs[i % verbs.length] + nouns[(i / verbs.length) % nouns.length] + i);
+        }
+        return commands;
+    }
+}
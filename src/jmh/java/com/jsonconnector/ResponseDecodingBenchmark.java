@@ -0,0 +1,81 @@
+package com.jsonconnector;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.reflect.TypeToken;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding a GetCommands response: reflective map building versus the typed adapters
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ResponseDecodingBenchmark {
+
+    private static final Type MAP_TYPE = new TypeToken<Map<String, Object>>(){}.getType();
+    private static final Gson gson = new Gson();
+
+    @Param({"100", "10000"})
+    int commandCount;
+
+    String response;
+    JsonElement parsed;
+
+    @Setup
+    public void setUp() {
+        JsonArray commands = new JsonArray();
+        Payloads.commands(commandCount).forEach(commands::add);
+        JsonObject result = new JsonObject();
+        result.add("commands", commands);
+        JsonObject json = new JsonObject();
+        json.addProperty("succeeded", true);
+        json.add("result", result);
+        response = json.toString();
+        parsed = JsonParser.parseString(response);
+    }
+
+    /**
+     * The former decoding through {@code Map<String, Object>} and casts
+     */
+    @Benchmark
+    @SuppressWarnings("unchecked")
+    public List<String> reflectiveMap() {
+        Map<String, Object> map = gson.fromJson(response, MAP_TYPE);
+        return (List<String>) ((Map<String, Object>) map.get("result")).get("commands");
+    }
+
+    @Benchmark
+    public List<String> typedFromText() {
+        return CommandResponses.decode(response, CommandResponses.COMMANDS).getCommands();
+    }
+
+    /**
+     * As in the app, where the message pipeline has already parsed the response
+     */
+    @Benchmark
+    public List<String> typedFromTree() {
+        return CommandResponses.decode(parsed, CommandResponses.COMMANDS).getCommands();
+    }
+}
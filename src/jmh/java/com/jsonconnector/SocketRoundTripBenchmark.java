@@ -0,0 +1,93 @@
+package com.jsonconnector;
+
+import com.google.gson.JsonElement;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Request/response throughput of {@link SocketClient} against a local {@link TestServer},
+ * for each transport and response sizes from 100 B to 50 MB
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class SocketRoundTripBenchmark {
+
+    private static final int PIPELINED = 16;
+    private static final String REQUEST = "{\"command\": \"Echo\"}";
+
+    @Param({"100", "10000", "1000000", "50000000"})
+    int responseSize;
+
+    @Param({"BLOCKING", "NIO", "STREAMING"})
+    SocketClient.Transport transport;
+
+    TestServer server;
+    SocketClient client;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        server = new TestServer();
+        server.setResponsePadding(responseSize);
+        int port = server.startInBackground();
+
+        CountDownLatch connected = new CountDownLatch(1);
+        client = new SocketClient(message -> { }, (isConnected, error) -> {
+            if (isConnected && error == null) {
+                connected.countDown();
+            }
+        });
+        client.setTransport(transport);
+        client.connect("localhost", port);
+        if (!connected.await(5, TimeUnit.SECONDS)) {
+            throw new IllegalStateException("Couldn't connect to the test server on port " + port);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        client.disconnect();
+        server.stop();
+    }
+
+    @Benchmark
+    public JsonElement roundTrip() throws Exception {
+        return client.sendAsync(REQUEST).get(60, TimeUnit.SECONDS);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PIPELINED)
+    public List<JsonElement> pipelined() throws Exception {
+        List<CompletableFuture<JsonElement>> pending = new ArrayList<>(PIPELINED);
+        for (int i = 0; i < PIPELINED; i++) {
+            pending.add(client.sendAsync(REQUEST));
+        }
+        List<JsonElement> responses = new ArrayList<>(PIPELINED);
+        for (CompletableFuture<JsonElement> response : pending) {
+            responses.add(response.get(60, TimeUnit.SECONDS));
+        }
+        return responses;
+    }
+}
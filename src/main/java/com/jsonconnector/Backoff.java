@@ -0,0 +1,36 @@
+package com.jsonconnector;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Exponential backoff with jitter for reconnect attempts.
+ * <p>
+ * The ceiling doubles with every attempt up to the maximum, and each delay is picked at
+ * random between half the ceiling and the ceiling, so clients that lost their connections
+ * together don't all come back at the same moment.
+ */
+final class Backoff {
+
+    private final long initialMillis;
+    private final long maxMillis;
+
+    Backoff(long initialMillis, long maxMillis) {
+        if (initialMillis <= 0 || maxMillis < initialMillis) {
+            throw new IllegalArgumentException("Need 0 < initial delay <= max delay");
+        }
+        this.initialMillis = initialMillis;
+        this.maxMillis = maxMillis;
+    }
+
+    /**
+     * @param attempt 0 for the first retry
+     */
+    long delayMillis(int attempt) {
+        long ceiling = initialMillis << Math.min(attempt, 30);
+        if (ceiling <= 0 || ceiling > maxMillis) {
+            ceiling = maxMillis;
+        }
+        long half = ceiling / 2;
+        return half + ThreadLocalRandom.current().nextLong(ceiling - half + 1);
+    }
+}
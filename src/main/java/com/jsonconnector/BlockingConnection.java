@@ -0,0 +1,106 @@
+package com.jsonconnector;
+
+import java.io.*;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Connection over a blocking Socket with a dedicated reader and writer thread
+ */
+class BlockingConnection implements Connection {
+
+    private static final int MAX_WRITE_BATCH = 256;
+
+    private final Socket socket;
+    final BufferedReader in;
+    private final Writer out;
+    private final BlockingQueue<String> outbound;
+    final Listener listener;
+    private final Thread readerThread;
+    private final Thread writerThread;
+    volatile boolean open = true;
+
+    BlockingConnection(Socket socket, int sendQueueCapacity, Listener listener) throws IOException {
+        this.socket = socket;
+        this.in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+        this.out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+        this.outbound = new ArrayBlockingQueue<>(sendQueueCapacity);
+        this.listener = listener;
+        this.readerThread = new Thread(this::readLoop, "SocketClient-Reader");
+        this.readerThread.setDaemon(true);
+        this.writerThread = new Thread(this::writeLoop, "SocketClient-Writer");
+        this.writerThread.setDaemon(true);
+    }
+
+    @Override
+    public void start() {
+        readerThread.start();
+        writerThread.start();
+    }
+
+    private void readLoop() {
+        try {
+            readMessages();
+            listener.onClosed(this, "Connection closed by server");
+        } catch (IOException e) {
+            listener.onClosed(this, "Connection lost: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Delivers incoming messages until the stream ends; one message per line.
+     */
+    void readMessages() throws IOException {
+        String line;
+        while (open && (line = in.readLine()) != null) {
+            listener.onMessage(line);
+        }
+    }
+
+    private void writeLoop() {
+        try {
+            while (open) {
+                // Write everything already queued, then flush once
+                String message = outbound.take();
+                int written = 0;
+                do {
+                    out.write(message);
+                    out.write('\n');
+                } while (++written < MAX_WRITE_BATCH && (message = outbound.poll()) != null);
+                out.flush();
+            }
+        } catch (InterruptedException e) {
+            // Connection closed
+        } catch (IOException e) {
+            listener.onClosed(this, "Send failed: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public boolean send(String message) {
+        return outbound.offer(message);
+    }
+
+    @Override
+    public int pendingSendCount() {
+        return outbound.size();
+    }
+
+    @Override
+    public boolean isOpen() {
+        return open && !socket.isClosed();
+    }
+
+    @Override
+    public void close() {
+        open = false;
+        writerThread.interrupt();
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // Ignore close errors
+        }
+    }
+}
@@ -0,0 +1,293 @@
+package com.jsonconnector;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+
+/**
+ * Counters and latency histograms of one {@link SocketClient}.
+ * <p>
+ * The client counts messages and bytes in both directions and times every request from
+ * being queued to its response being matched, per command name. Parse time covers
+ * responses parsed by the client or a {@link MessagePipeline}; the streaming transport
+ * parses while it reads, so its messages have no separate parse time. Render time is
+ * reported by whoever displays the messages. Everything is lock-free and can be read
+ * while the client runs, including over JMX after {@link #register}.
+ */
+public class ClientMetrics implements ClientMetricsMBean {
+
+    static final int MAX_COMMANDS = 256;
+    static final String OTHER_COMMANDS = "(other)";
+    static final String UNKNOWN_COMMAND = "(unknown)";
+    // The command name is expected near the start; don't scan large requests for it
+    private static final int COMMAND_SCAN_CHARS = 4096;
+
+    private final LongAdder messagesSent = new LongAdder();
+    private final LongAdder bytesSent = new LongAdder();
+    private final LongAdder messagesReceived = new LongAdder();
+    private final LongAdder bytesReceived = new LongAdder();
+    private final LongAdder failedRequests = new LongAdder();
+    private final LongAccumulator maxPendingSends = new LongAccumulator(Math::max, 0);
+    private final LatencyHistogram roundTrip = new LatencyHistogram();
+    private final LatencyHistogram parseTime = new LatencyHistogram();
+    private final LatencyHistogram renderTime = new LatencyHistogram();
+    private final Map<String, LatencyHistogram> roundTripByCommand = new ConcurrentHashMap<>();
+    private final IntSupplier pendingSends;
+    private final IntSupplier outstandingRequests;
+    private volatile ObjectName registeredName;
+
+    ClientMetrics(IntSupplier pendingSends, IntSupplier outstandingRequests) {
+        this.pendingSends = pendingSends;
+        this.outstandingRequests = outstandingRequests;
+    }
+
+    void onSent(String message, int pendingSendCount) {
+        messagesSent.increment();
+        bytesSent.add(utf8Length(message));
+        maxPendingSends.accumulate(pendingSendCount);
+    }
+
+    void onReceived(String message) {
+        messagesReceived.increment();
+        bytesReceived.add(utf8Length(message));
+    }
+
+    /**
+     * A message that arrived already parsed or streamed, without its text.
+     */
+    void onReceived() {
+        messagesReceived.increment();
+    }
+
+    void onRequestFailed() {
+        failedRequests.increment();
+    }
+
+    void recordRoundTrip(String command, long nanos) {
+        roundTrip.record(nanos);
+        LatencyHistogram histogram = roundTripByCommand.get(command);
+        if (histogram == null) {
+            // Bound the map in case requests carry generated command names
+            String key = roundTripByCommand.size() < MAX_COMMANDS ? command : OTHER_COMMANDS;
+            histogram = roundTripByCommand.computeIfAbsent(key, k -> new LatencyHistogram());
+        }
+        histogram.record(nanos);
+    }
+
+    public void recordParseTime(long nanos) {
+        parseTime.record(nanos);
+    }
+
+    public void recordRenderTime(long nanos) {
+        renderTime.record(nanos);
+    }
+
+    public LatencyHistogram getRoundTrip() {
+        return roundTrip;
+    }
+
+    /**
+     * @return the round trips of requests with this {@code "command"}, or {@code null}
+     */
+    public LatencyHistogram getRoundTrip(String command) {
+        return roundTripByCommand.get(command);
+    }
+
+    /**
+     * Round trips per command name, sorted by name
+     */
+    public Map<String, LatencyHistogram> getRoundTripByCommand() {
+        return Collections.unmodifiableMap(new TreeMap<>(roundTripByCommand));
+    }
+
+    public LatencyHistogram getParseTime() {
+        return parseTime;
+    }
+
+    public LatencyHistogram getRenderTime() {
+        return renderTime;
+    }
+
+    @Override
+    public long getMessagesSent() {
+        return messagesSent.sum();
+    }
+
+    @Override
+    public long getMessagesReceived() {
+        return messagesReceived.sum();
+    }
+
+    @Override
+    public long getBytesSent() {
+        return bytesSent.sum();
+    }
+
+    @Override
+    public long getBytesReceived() {
+        return bytesReceived.sum();
+    }
+
+    /** Async requests that failed or timed out */
+    @Override
+    public long getFailedRequests() {
+        return failedRequests.sum();
+    }
+
+    @Override
+    public int getPendingSendCount() {
+        return pendingSends.getAsInt();
+    }
+
+    @Override
+    public int getMaxPendingSendCount() {
+        return (int) maxPendingSends.get();
+    }
+
+    @Override
+    public int getOutstandingRequestCount() {
+        return outstandingRequests.getAsInt();
+    }
+
+    @Override
+    public long getRoundTripCount() {
+        return roundTrip.getCount();
+    }
+
+    @Override
+    public double getRoundTripMeanMillis() {
+        return roundTrip.getMeanMillis();
+    }
+
+    @Override
+    public double getRoundTripP50Millis() {
+        return roundTrip.getMillisAtPercentile(50);
+    }
+
+    @Override
+    public double getRoundTripP99Millis() {
+        return roundTrip.getMillisAtPercentile(99);
+    }
+
+    @Override
+    public double getRoundTripMaxMillis() {
+        return roundTrip.getMaxMillis();
+    }
+
+    @Override
+    public double getParseP50Millis() {
+        return parseTime.getMillisAtPercentile(50);
+    }
+
+    @Override
+    public double getParseP99Millis() {
+        return parseTime.getMillisAtPercentile(99);
+    }
+
+    @Override
+    public double getRenderP50Millis() {
+        return renderTime.getMillisAtPercentile(50);
+    }
+
+    @Override
+    public double getRenderP99Millis() {
+        return renderTime.getMillisAtPercentile(99);
+    }
+
+    @Override
+    public String[] getCommandRoundTrips() {
+        List<String> lines = new ArrayList<>();
+        getRoundTripByCommand().forEach((command, histogram) -> lines.add(command + ": " + histogram));
+        return lines.toArray(new String[0]);
+    }
+
+    @Override
+    public void reset() {
+        messagesSent.reset();
+        bytesSent.reset();
+        messagesReceived.reset();
+        bytesReceived.reset();
+        failedRequests.reset();
+        maxPendingSends.reset();
+        roundTrip.reset();
+        parseTime.reset();
+        renderTime.reset();
+        roundTripByCommand.clear();
+    }
+
+    /**
+     * Publishes these metrics on the platform MBean server as
+     * {@code com.jsonconnector:type=SocketClient,name=<name>}.
+     */
+    public synchronized ObjectName register(String name) throws JMException {
+        unregister();
+        ObjectName objectName = new ObjectName("com.jsonconnector:type=SocketClient,name=" + ObjectName.quote(name));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        registeredName = objectName;
+        return objectName;
+    }
+
+    public synchronized void unregister() throws JMException {
+        ObjectName objectName = registeredName;
+        if (objectName == null) {
+            return;
+        }
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        if (server.isRegistered(objectName)) {
+            server.unregisterMBean(objectName);
+        }
+        registeredName = null;
+    }
+
+    /**
+     * Value of the request's {@code "command"} field, found without parsing the request.
+     */
+    static String commandName(String request) {
+        int limit = Math.min(request.length(), COMMAND_SCAN_CHARS);
+        int key = request.substring(0, limit).indexOf("\"command\"");
+        if (key < 0) {
+            return UNKNOWN_COMMAND;
+        }
+        int i = key + "\"command\"".length();
+        while (i < limit && (Character.isWhitespace(request.charAt(i)) || request.charAt(i) == ':')) {
+            i++;
+        }
+        if (i >= limit || request.charAt(i) != '"') {
+            return UNKNOWN_COMMAND;
+        }
+        int end = request.indexOf('"', i + 1);
+        if (end < 0 || end > limit || end == i + 1) {
+            return UNKNOWN_COMMAND;
+        }
+        return request.substring(i + 1, end);
+    }
+
+    static long utf8Length(String text) {
+        long length = text.length();
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c >= 0x80) {
+                if (c < 0x800) {
+                    length++;
+                } else if (Character.isHighSurrogate(c)) {
+                    // 4 bytes for the pair, which counts as 2 chars
+                    length += 2;
+                    i++;
+                } else {
+                    length += 2;
+                }
+            }
+        }
+        return length;
+    }
+}
@@ -0,0 +1,48 @@
+package com.jsonconnector;
+
+/**
+ * JMX view of a {@link ClientMetrics}; times are in milliseconds
+ */
+public interface ClientMetricsMBean {
+
+    long getMessagesSent();
+
+    long getMessagesReceived();
+
+    long getBytesSent();
+
+    long getBytesReceived();
+
+    long getFailedRequests();
+
+    int getPendingSendCount();
+
+    int getMaxPendingSendCount();
+
+    int getOutstandingRequestCount();
+
+    long getRoundTripCount();
+
+    double getRoundTripMeanMillis();
+
+    double getRoundTripP50Millis();
+
+    double getRoundTripP99Millis();
+
+    double getRoundTripMaxMillis();
+
+    double getParseP50Millis();
+
+    double getParseP99Millis();
+
+    double getRenderP50Millis();
+
+    double getRenderP99Millis();
+
+    /**
+     * One line per command: name, count and round-trip percentiles
+     */
+    String[] getCommandRoundTrips();
+
+    void reset();
+}
@@ -0,0 +1,339 @@
+package com.jsonconnector;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Command lists and parameter templates of servers, kept on disk across sessions.
+ * <p>
+ * Each server, identified by {@code host:port}, has one JSON file with the Archicad process
+ * id its commands came from, the commands and the {@code GetCommandParameters} responses
+ * seen so far. Files are read when a server is first asked for and written shortly after a
+ * change, replacing the old file atomically. A file that can't be read, belongs to another
+ * server, has another format version or is older than the maximum age counts as missing
+ * and is deleted. Only the most recently used servers are kept, and the templates of each
+ * server are capped with the least recently used dropped first.
+ */
+public class CommandCache {
+
+    public static final int DEFAULT_MAX_SERVERS = 32;
+    public static final long DEFAULT_MAX_AGE_MILLIS = TimeUnit.DAYS.toMillis(30);
+    public static final int MAX_PARAMETER_TEMPLATES = 4096;
+
+    private static final int FORMAT_VERSION = 1;
+    private static final String FILE_SUFFIX = ".json";
+    private static final long SAVE_DELAY_MILLIS = 500;
+
+    private static final ScheduledExecutorService saveExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "Command-Cache");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final Path directory;
+    private final int maxServers;
+    private final long maxAgeMillis;
+    private final Debouncer saveDebouncer = new Debouncer(saveExecutor, SAVE_DELAY_MILLIS);
+    // Loaded entries; null values remember servers without a valid file
+    private final Map<String, Entry> entries = new HashMap<>();
+    private final Map<String, Entry> dirty = new LinkedHashMap<>();
+
+    public CommandCache(Path directory) {
+        this(directory, DEFAULT_MAX_SERVERS, DEFAULT_MAX_AGE_MILLIS);
+    }
+
+    public CommandCache(Path directory, int maxServers, long maxAgeMillis) {
+        if (maxServers < 1 || maxAgeMillis <= 0) {
+            throw new IllegalArgumentException("Need at least one server and a positive maximum age");
+        }
+        this.directory = directory;
+        this.maxServers = maxServers;
+        this.maxAgeMillis = maxAgeMillis;
+    }
+
+    /**
+     * {@code -Djsonconnector.cacheDir}, by default {@code ~/.json-socket-connector/cache}
+     */
+    public static Path defaultDirectory() {
+        return Paths.get(System.getProperty("jsonconnector.cacheDir",
+            Paths.get(System.getProperty("user.home"), ".json-socket-connector", "cache").toString()));
+    }
+
+    /**
+     * @return the cached entry of {@code server}, or {@code null} if there is no valid one
+     */
+    public synchronized Entry get(String server) {
+        if (!entries.containsKey(server)) {
+            entries.put(server, load(server));
+        }
+        return entries.get(server);
+    }
+
+    /**
+     * Stores a fresh command list. Parameter templates are kept only if the list is unchanged,
+     * since another version of the server may take other parameters.
+     */
+    public synchronized Entry putCommands(String server, String processId, List<String> commands) {
+        Entry entry = get(server);
+        if (entry == null || !entry.commands.equals(commands)) {
+            entry = new Entry(server, processId, commands, System.currentTimeMillis());
+        } else {
+            entry = entry.withProcessId(processId);
+        }
+        entries.put(server, entry);
+        markDirty(entry);
+        return entry;
+    }
+
+    /**
+     * @return the cached {@code GetCommandParameters} response, or {@code null}
+     */
+    public JsonElement getParameters(String server, String command) {
+        Entry entry = get(server);
+        return entry != null ? entry.getParameters(command) : null;
+    }
+
+    /**
+     * Stores a {@code GetCommandParameters} response; ignored for servers without cached commands.
+     */
+    public synchronized void putParameters(String server, String command, JsonElement response) {
+        Entry entry = get(server);
+        if (entry != null && entry.putParameters(command, response)) {
+            markDirty(entry);
+        }
+    }
+
+    /**
+     * Writes pending changes now instead of after the save delay.
+     */
+    public void flush() {
+        saveDebouncer.cancel();
+        save();
+    }
+
+    private synchronized void markDirty(Entry entry) {
+        dirty.put(entry.server, entry);
+        saveDebouncer.submit(stale -> save());
+    }
+
+    private void save() {
+        List<Entry> pending;
+        synchronized (this) {
+            pending = new ArrayList<>(dirty.values());
+            dirty.clear();
+        }
+        if (pending.isEmpty()) {
+            return;
+        }
+        try {
+            Files.createDirectories(directory);
+            for (Entry entry : pending) {
+                write(entry);
+            }
+            evict();
+        } catch (IOException | UncheckedIOException e) {
+            // The cache only saves round trips; the next session fetches everything again
+        }
+    }
+
+    private void write(Entry entry) throws IOException {
+        Path file = fileOf(entry.server);
+        Path temp = Files.createTempFile(directory, "cache-", ".tmp");
+        try {
+            try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                writer.write(entry.toJson().toString());
+            }
+            try {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Deletes expired files and, beyond the maximum, the least recently used ones.
+     */
+    private void evict() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + FILE_SUFFIX)) {
+            stream.forEach(files::add);
+        }
+        Map<Path, Long> lastUsed = new HashMap<>();
+        for (Path file : files) {
+            lastUsed.put(file, Files.getLastModifiedTime(file).toMillis());
+        }
+        files.sort(Comparator.comparing(lastUsed::get, Comparator.reverseOrder()));
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < files.size(); i++) {
+            Path file = files.get(i);
+            if (i >= maxServers || now - lastUsed.get(file) > maxAgeMillis) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    private Entry load(String server) {
+        Path file = fileOf(server);
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try {
+            if (System.currentTimeMillis() - Files.getLastModifiedTime(file).toMillis() <= maxAgeMillis) {
+                Entry entry;
+                try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                    entry = Entry.fromJson(JsonParser.parseReader(reader));
+                }
+                if (entry != null && entry.server.equals(server)) {
+                    // The modification time doubles as last use for eviction
+                    Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+                    return entry;
+                }
+            }
+            Files.deleteIfExists(file);
+        } catch (IOException | RuntimeException e) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException ignored) {
+                // Overwritten by the next save
+            }
+        }
+        return null;
+    }
+
+    private Path fileOf(String server) {
+        return directory.resolve(server.replaceAll("[^A-Za-z0-9.-]", "_") + FILE_SUFFIX);
+    }
+
+    /**
+     * Cached data of one server. The command list is immutable; templates are added as they arrive.
+     */
+    public static final class Entry {
+        private final String server;
+        private final String processId;
+        private final List<String> commands;
+        private final long savedAt;
+        private final Map<String, JsonElement> parameters;
+
+        private Entry(String server, String processId, List<String> commands, long savedAt) {
+            this(server, processId, commands, savedAt, new LinkedHashMap<>(16, 0.75f, true));
+        }
+
+        private Entry(String server, String processId, List<String> commands, long savedAt, Map<String, JsonElement> parameters) {
+            this.server = server;
+            this.processId = processId;
+            this.commands = Collections.unmodifiableList(new ArrayList<>(commands));
+            this.savedAt = savedAt;
+            this.parameters = parameters;
+        }
+
+        public String getServer() {
+            return server;
+        }
+
+        /**
+         * Process the commands were fetched from; the same process still has the same commands.
+         * {@code null} if it wasn't known, in which case the commands can't be taken as current.
+         */
+        public String getProcessId() {
+            return processId;
+        }
+
+        public List<String> getCommands() {
+            return commands;
+        }
+
+        /**
+         * When the command list was fetched, in epoch milliseconds
+         */
+        public long getSavedAt() {
+            return savedAt;
+        }
+
+        public synchronized JsonElement getParameters(String command) {
+            return parameters.get(command);
+        }
+
+        private synchronized boolean putParameters(String command, JsonElement response) {
+            if (response.equals(parameters.put(command, response))) {
+                return false;
+            }
+            if (parameters.size() > MAX_PARAMETER_TEMPLATES) {
+                parameters.remove(parameters.keySet().iterator().next());
+            }
+            return true;
+        }
+
+        private synchronized Entry withProcessId(String newProcessId) {
+            if (Objects.equals(processId, newProcessId)) {
+                return this;
+            }
+            Map<String, JsonElement> copy = new LinkedHashMap<>(16, 0.75f, true);
+            copy.putAll(parameters);
+            return new Entry(server, newProcessId, commands, savedAt, copy);
+        }
+
+        private synchronized JsonObject toJson() {
+            JsonObject json = new JsonObject();
+            json.addProperty("version", FORMAT_VERSION);
+            json.addProperty("server", server);
+            json.addProperty("processId", processId);
+            json.addProperty("savedAt", savedAt);
+            JsonArray commandArray = new JsonArray(commands.size());
+            commands.forEach(commandArray::add);
+            json.add("commands", commandArray);
+            JsonObject parameterObject = new JsonObject();
+            parameters.forEach(parameterObject::add);
+            json.add("parameters", parameterObject);
+            return json;
+        }
+
+        /**
+         * @return {@code null} for another format version
+         */
+        private static Entry fromJson(JsonElement element) {
+            JsonObject json = element.getAsJsonObject();
+            if (json.get("version").getAsInt() != FORMAT_VERSION) {
+                return null;
+            }
+            List<String> commands = new ArrayList<>();
+            json.getAsJsonArray("commands").forEach(command -> commands.add(command.getAsString()));
+            JsonElement processId = json.get("processId");
+            Entry entry = new Entry(json.get("server").getAsString(),
+                processId == null || processId.isJsonNull() ? null : processId.getAsString(),
+                commands, json.get("savedAt").getAsLong());
+            for (Map.Entry<String, JsonElement> template : json.getAsJsonObject("parameters").entrySet()) {
+                entry.parameters.put(template.getKey(), template.getValue());
+            }
+            return entry;
+        }
+    }
+}
@@ -0,0 +1,494 @@
+package com.jsonconnector;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeSet;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Immutable search index over a command list, built once per list.
+ * <p>
+ * Commands are kept in alphabetical order together with their lowercase keys, their
+ * domain (the part before the first dot) and a trigram index. A query of three or more
+ * characters only checks the commands containing all of its trigrams; shorter queries
+ * scan the precomputed keys. {@link #search} ranks the matches and, when there are only a
+ * few, adds fuzzy ones whose name has the query's characters in order, so {@code "gpmi"}
+ * finds {@code GetProjectMapItems}. A {@link Result} can be refined when the query grows.
+ */
+public final class CommandIndex {
+
+    public static final String OTHER_DOMAIN = "Other";
+    static final CommandIndex EMPTY = new CommandIndex(Collections.emptyList());
+
+    // Fuzzy matches are a fallback for queries with few substring matches
+    private static final int FUZZY_THRESHOLD = 20;
+    // Candidate sets this small are verified directly instead of intersected further
+    private static final int VERIFY_DIRECTLY = 64;
+
+    // Match ranks, best first
+    private static final int EXACT = 5;
+    private static final int PREFIX = 4;
+    private static final int NAME_PREFIX = 3;
+    private static final int WORD = 2;
+    private static final int SUBSTRING = 1;
+    private static final int FUZZY = 0;
+    private static final int MAX_PENALTY = (1 << 20) - 1;
+    // Cancellation is polled once per this many + 1 checked commands
+    private static final int CANCEL_CHECK_MASK = 1023;
+
+    private final String[] commands;
+    private final String[] keys;
+    private final long[] charMasks;
+    private final int[] domainIds;
+    private final String[] domains;
+    private final Map<String, Integer> domainIndex = new HashMap<>();
+    private final int[][] domainMembers;
+    private final int[] allIds;
+    private final Map<Long, int[]> trigrams;
+
+    public CommandIndex(Collection<String> commandList) {
+        commands = commandList.toArray(new String[0]);
+        Arrays.sort(commands);
+        int count = commands.length;
+        keys = new String[count];
+        charMasks = new long[count];
+        domainIds = new int[count];
+        allIds = new int[count];
+
+        TreeSet<String> domainNames = new TreeSet<>();
+        for (String command : commands) {
+            domainNames.add(domainOf(command));
+        }
+        domains = domainNames.toArray(new String[0]);
+        for (int i = 0; i < domains.length; i++) {
+            domainIndex.put(domains[i], i);
+        }
+
+        IntList[] members = new IntList[domains.length];
+        Map<Long, IntList> postings = new HashMap<>();
+        for (int id = 0; id < count; id++) {
+            allIds[id] = id;
+            String key = commands[id].toLowerCase(Locale.ROOT);
+            keys[id] = key;
+            charMasks[id] = charMask(key);
+            int domain = domainIndex.get(domainOf(commands[id]));
+            domainIds[id] = domain;
+            if (members[domain] == null) {
+                members[domain] = new IntList();
+            }
+            members[domain].add(id);
+            for (int i = 0; i + 3 <= key.length(); i++) {
+                // Ids are added in ascending order, so a repeated trigram only needs the last one checked
+                IntList list = postings.computeIfAbsent(trigram(key, i), k -> new IntList());
+                if (list.size == 0 || list.values[list.size - 1] != id) {
+                    list.add(id);
+                }
+            }
+        }
+
+        domainMembers = new int[domains.length][];
+        for (int i = 0; i < domains.length; i++) {
+            domainMembers[i] = members[i].toArray();
+        }
+        trigrams = new HashMap<>(postings.size() * 2);
+        postings.forEach((trigram, list) -> trigrams.put(trigram, list.toArray()));
+    }
+
+    public int size() {
+        return commands.length;
+    }
+
+    /**
+     * All commands in alphabetical order
+     */
+    public List<String> getCommands() {
+        return Collections.unmodifiableList(Arrays.asList(commands));
+    }
+
+    /**
+     * Domain names in alphabetical order
+     */
+    public List<String> getDomains() {
+        return Collections.unmodifiableList(Arrays.asList(domains));
+    }
+
+    /**
+     * Commands of each domain, both in alphabetical order
+     */
+    public Map<String, List<String>> getGroupedCommands() {
+        Map<String, List<String>> grouped = new LinkedHashMap<>();
+        for (int i = 0; i < domains.length; i++) {
+            grouped.put(domains[i], toCommands(domainMembers[i], domainMembers[i].length));
+        }
+        return grouped;
+    }
+
+    /**
+     * Commands containing {@code filter}, ignoring case, in alphabetical order.
+     *
+     * @param domain only commands of this domain; {@code null} for all
+     */
+    public List<String> filter(String filter, String domain) {
+        int[] scope = scope(domain);
+        if (scope == null) {
+            return Collections.emptyList();
+        }
+        String query = normalize(filter);
+        if (query.isEmpty()) {
+            return toCommands(scope, scope.length);
+        }
+        int[] candidates = candidates(query, domain, scope);
+        int[] matches = new int[candidates.length];
+        int count = 0;
+        for (int id : candidates) {
+            if (keys[id].contains(query)) {
+                matches[count++] = id;
+            }
+        }
+        return toCommands(matches, count);
+    }
+
+    /**
+     * Commands matching {@code query}, best first: exact name, name prefix, prefix of the
+     * part after the domain, match at a word start, any substring, then fuzzy matches.
+     * Equally good matches are in alphabetical order.
+     *
+     * @param domain only commands of this domain; {@code null} for all
+     * @param limit  maximum number of results
+     */
+    public List<String> search(String query, String domain, int limit) {
+        if (limit <= 0) {
+            return Collections.emptyList();
+        }
+        Result result = search(query, domain, null, () -> false);
+        if (result == null) {
+            return Collections.emptyList();
+        }
+        return result.ids.length <= limit ? result.getCommands() : toCommands(result.ids, limit);
+    }
+
+    /**
+     * Same ranking as {@link #search(String, String, int)} with all matches.
+     * <p>
+     * If {@code previous} came from this index and domain and its query is contained in the
+     * new one, as when typing narrows a filter, only its matches are checked again instead
+     * of the whole list.
+     *
+     * @param previous  an earlier result to refine, or {@code null}
+     * @param cancelled polled while searching; once it returns {@code true} the search stops
+     * @return {@code null} if the domain is unknown or the search was cancelled
+     */
+    public Result search(String query, String domain, Result previous, BooleanSupplier cancelled) {
+        int[] scope = scope(domain);
+        if (scope == null) {
+            return null;
+        }
+        String normalized = normalize(query);
+        if (normalized.isEmpty()) {
+            return new Result(this, normalized, domain, scope, scope, true, scope);
+        }
+
+        int[] candidates = candidates(normalized, domain, scope);
+        int[] fuzzyScope = scope;
+        if (previous != null && previous.index == this && Objects.equals(previous.domain, domain)
+                && !previous.query.isEmpty() && normalized.contains(previous.query)) {
+            // Anything matching the new query also matched the previous one
+            if (previous.substringIds.length < candidates.length) {
+                candidates = previous.substringIds;
+            }
+            if (previous.fuzzyComplete) {
+                fuzzyScope = previous.matchIds;
+            }
+        }
+
+        // Sort keys pack rank, position and id, so ordering needs no objects
+        long[] matches = new long[Math.max(candidates.length, FUZZY_THRESHOLD)];
+        int substringCount = 0;
+        for (int i = 0; i < candidates.length; i++) {
+            if ((i & CANCEL_CHECK_MASK) == 0 && cancelled.getAsBoolean()) {
+                return null;
+            }
+            int id = candidates[i];
+            int at = keys[id].indexOf(normalized);
+            if (at >= 0) {
+                matches[substringCount++] = sortKey(substringRank(id, normalized, at), at, id);
+            }
+        }
+        int count = substringCount;
+        boolean fuzzyComplete = false;
+        if (substringCount < FUZZY_THRESHOLD && normalized.length() > 1) {
+            fuzzyComplete = true;
+            boolean[] matched = new boolean[commands.length];
+            for (int i = 0; i < substringCount; i++) {
+                matched[(int) matches[i]] = true;
+            }
+            long queryMask = charMask(normalized);
+            for (int i = 0; i < fuzzyScope.length; i++) {
+                if ((i & CANCEL_CHECK_MASK) == 0 && cancelled.getAsBoolean()) {
+                    return null;
+                }
+                int id = fuzzyScope[i];
+                // Cheap reject: some query character doesn't occur in the key at all
+                if (matched[id] || (charMasks[id] & queryMask) != queryMask) {
+                    continue;
+                }
+                int score = fuzzyScore(id, normalized);
+                if (score != Integer.MIN_VALUE) {
+                    if (count == matches.length) {
+                        matches = Arrays.copyOf(matches, count * 2);
+                    }
+                    matches[count++] = sortKey(FUZZY, MAX_PENALTY / 2 - score, id);
+                }
+            }
+        }
+
+        // Both runs were collected in ascending id order
+        int[] substringIds = new int[substringCount];
+        int[] matchIds = new int[count];
+        for (int i = 0, j = substringCount, k = 0; k < count; k++) {
+            int next;
+            if (j == count || (i < substringCount && (int) matches[i] < (int) matches[j])) {
+                next = (int) matches[i];
+                substringIds[i++] = next;
+            } else {
+                next = (int) matches[j++];
+            }
+            matchIds[k] = next;
+        }
+
+        Arrays.sort(matches, 0, count);
+        int[] ranked = new int[count];
+        for (int i = 0; i < count; i++) {
+            ranked[i] = (int) matches[i];
+        }
+        return new Result(this, normalized, domain, ranked, substringIds, fuzzyComplete, matchIds);
+    }
+
+    /**
+     * Ascending order of these is best rank first, then lowest penalty, then alphabetical.
+     */
+    private static long sortKey(int rank, int penalty, int id) {
+        int clamped = Math.max(0, Math.min(penalty, MAX_PENALTY));
+        return ((long) (EXACT - rank) << 52) | ((long) clamped << 32) | id;
+    }
+
+    /**
+     * Ids of the commands to check, ascending; {@code null} domain scope means all.
+     */
+    private int[] candidates(String query, String domain, int[] scope) {
+        if (query.length() < 3) {
+            return scope;
+        }
+        int[][] postings = new int[query.length() - 2][];
+        for (int i = 0; i < postings.length; i++) {
+            postings[i] = trigrams.get(trigram(query, i));
+            if (postings[i] == null) {
+                return new int[0];
+            }
+        }
+        // Rarest trigram first; common ones barely narrow the set down
+        Arrays.sort(postings, Comparator.comparingInt(posting -> posting.length));
+        int[] candidates = postings[0];
+        for (int i = 1; i < postings.length && candidates.length > VERIFY_DIRECTLY; i++) {
+            candidates = intersect(candidates, postings[i]);
+        }
+        if (domain != null) {
+            int domainId = domainIds[scope[0]];
+            int count = 0;
+            int[] inDomain = new int[candidates.length];
+            for (int id : candidates) {
+                if (domainIds[id] == domainId) {
+                    inDomain[count++] = id;
+                }
+            }
+            candidates = Arrays.copyOf(inDomain, count);
+        }
+        return candidates;
+    }
+
+    private int substringRank(int id, String query, int at) {
+        String key = keys[id];
+        if (at == 0) {
+            return key.length() == query.length() ? EXACT : PREFIX;
+        }
+        int dot = key.indexOf('.');
+        if (dot >= 0 && at == dot + 1) {
+            return NAME_PREFIX;
+        }
+        return isWordStart(id, at) ? WORD : SUBSTRING;
+    }
+
+    /**
+     * Matches the query characters in order; hits at word starts count, long spans cost.
+     *
+     * @return {@link Integer#MIN_VALUE} if the key doesn't contain them in order
+     */
+    private int fuzzyScore(int id, String query) {
+        String key = keys[id];
+        int first = -1;
+        int position = -1;
+        int wordStarts = 0;
+        for (int i = 0; i < query.length(); i++) {
+            position = key.indexOf(query.charAt(i), position + 1);
+            if (position < 0) {
+                return Integer.MIN_VALUE;
+            }
+            if (first < 0) {
+                first = position;
+            }
+            if (isWordStart(id, position)) {
+                wordStarts++;
+            }
+        }
+        return wordStarts * 16 - (position - first);
+    }
+
+    private boolean isWordStart(int id, int at) {
+        if (at == 0) {
+            return true;
+        }
+        // Case boundaries only where lowercasing kept the positions
+        String command = commands[id].length() == keys[id].length() ? commands[id] : keys[id];
+        char previous = command.charAt(at - 1);
+        char current = command.charAt(at);
+        return previous == '.' || previous == '_' || previous == ' '
+            || (Character.isUpperCase(current) && !Character.isUpperCase(previous));
+    }
+
+    /**
+     * Every command for {@code null}, the domain's commands, or {@code null} if the domain is unknown.
+     */
+    private int[] scope(String domain) {
+        if (domain == null) {
+            return allIds;
+        }
+        Integer index = domainIndex.get(domain);
+        return index != null ? domainMembers[index] : null;
+    }
+
+    private List<String> toCommands(int[] ids, int count) {
+        List<String> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            result.add(commands[ids[i]]);
+        }
+        return result;
+    }
+
+    private static String normalize(String query) {
+        return query == null ? "" : query.trim().toLowerCase(Locale.ROOT);
+    }
+
+    static String domainOf(String command) {
+        int dotIndex = command.indexOf('.');
+        return dotIndex > 0 ? command.substring(0, dotIndex) : OTHER_DOMAIN;
+    }
+
+    private static long trigram(String key, int at) {
+        return ((long) key.charAt(at) << 32) | ((long) key.charAt(at + 1) << 16) | key.charAt(at + 2);
+    }
+
+    private static long charMask(String key) {
+        long mask = 0;
+        for (int i = 0; i < key.length(); i++) {
+            mask |= 1L << (key.charAt(i) & 63);
+        }
+        return mask;
+    }
+
+    /**
+     * Ids in both ascending arrays; {@code small} is the shorter one.
+     */
+    private static int[] intersect(int[] small, int[] large) {
+        int[] result = new int[small.length];
+        int count = 0;
+        if (large.length > small.length * 8) {
+            // Binary search the few ids instead of walking the long list
+            int from = 0;
+            for (int id : small) {
+                int at = Arrays.binarySearch(large, from, large.length, id);
+                if (at >= 0) {
+                    result[count++] = id;
+                    from = at + 1;
+                } else {
+                    from = -at - 1;
+                }
+                if (from >= large.length) {
+                    break;
+                }
+            }
+        } else {
+            for (int i = 0, j = 0; i < small.length && j < large.length; ) {
+                if (small[i] < large[j]) {
+                    i++;
+                } else if (small[i] > large[j]) {
+                    j++;
+                } else {
+                    result[count++] = small[i];
+                    i++;
+                    j++;
+                }
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    /**
+     * Ranked matches of one search, which a later search for a longer query can refine.
+     */
+    public static final class Result {
+        private final CommandIndex index;
+        private final String query;
+        private final String domain;
+        private final int[] ids;
+        private final int[] substringIds;
+        private final boolean fuzzyComplete;
+        private final int[] matchIds;
+
+        private Result(CommandIndex index, String query, String domain, int[] ids, int[] substringIds,
+                       boolean fuzzyComplete, int[] matchIds) {
+            this.index = index;
+            this.query = query;
+            this.domain = domain;
+            this.ids = ids;
+            this.substringIds = substringIds;
+            this.fuzzyComplete = fuzzyComplete;
+            this.matchIds = matchIds;
+        }
+
+        public int size() {
+            return ids.length;
+        }
+
+        /**
+         * Matching commands, best first
+         */
+        public List<String> getCommands() {
+            return index.toCommands(ids, ids.length);
+        }
+    }
+
+    private static final class IntList {
+        int[] values = new int[4];
+        int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
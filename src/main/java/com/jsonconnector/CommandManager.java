@@ -1,18 +1,21 @@
 package com.jsonconnector;
 
 import java.util.*;
-import java.util.function.Consumer;
-import java.util.stream.Collectors;
 
 /**
  * Manages available commands from the server
+ * <p>
+ * The list is indexed once when it is set, see {@link CommandIndex}; lookups don't
+ * rescan or lowercase the commands.
  */
 public class CommandManager {
     
-    private List<String> commands = new ArrayList<>();
+    private volatile List<String> commands = new ArrayList<>();
+    private volatile CommandIndex index = CommandIndex.EMPTY;
     
     public void setCommands(List<String> commands) {
         this.commands = new ArrayList<>(commands);
+        this.index = new CommandIndex(commands);
     }
     
     public List<String> getCommands() {
@@ -20,24 +23,37 @@ public class CommandManager {
     }
     
     public void clearCommands() {
-        commands.clear();
+        commands = new ArrayList<>();
+        index = CommandIndex.EMPTY;
     }
     
-    public Map<String, List<String>> getGroupedCommands() {
-        return commands.stream()
-                .collect(Collectors.groupingBy(this::extractDomain));
+    /**
+     * Snapshot of the current list for searching; stays valid when the list is replaced.
+     */
+    public CommandIndex getIndex() {
+        return index;
     }
     
-    private String extractDomain(String command) {
-        int dotIndex = command.indexOf('.');
-        return dotIndex > 0 ? command.substring(0, dotIndex) : "Other";
+    /**
+     * Commands by domain, both in alphabetical order
+     */
+    public Map<String, List<String>> getGroupedCommands() {
+        return index.getGroupedCommands();
     }
     
+    /**
+     * Commands containing {@code filter}, ignoring case, in alphabetical order.
+     *
+     * @param domain only commands of this domain; {@code null} for all
+     */
     public List<String> filterCommands(String filter, String domain) {
-        return commands.stream()
-                .filter(cmd -> domain == null || extractDomain(cmd).equals(domain))
-                .filter(cmd -> filter == null || filter.isEmpty() || 
-                         cmd.toLowerCase().contains(filter.toLowerCase()))
-                .collect(Collectors.toList());
+        return index.filter(filter, domain);
+    }
+    
+    /**
+     * Ranked and fuzzy search, see {@link CommandIndex#search}.
+     */
+    public List<String> searchCommands(String query, String domain, int limit) {
+        return index.search(query, domain, limit);
     }
 }
\ No newline at end of file
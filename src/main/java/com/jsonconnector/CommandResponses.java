@@ -0,0 +1,221 @@
+package com.jsonconnector;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Typed results of the commands the application sends itself.
+ * <p>
+ * Each result has a hand-written {@link TypeAdapter}, so decoding reads the fields it needs
+ * straight into primitives and lists without reflection or an intermediate map. Unknown
+ * fields are skipped. A failed response or a result of the wrong shape is reported as a
+ * {@link JsonParseException} that says what was expected and where.
+ */
+public final class CommandResponses {
+
+    public static final TypeAdapter<ProcessId> PROCESS_ID = new ProcessIdAdapter().nullSafe();
+    public static final TypeAdapter<Commands> COMMANDS = new CommandsAdapter().nullSafe();
+
+    /**
+     * Gson with the adapters registered, for {@code fromJson(json, ProcessId.class)} and the like
+     */
+    public static final Gson GSON = new GsonBuilder()
+        .registerTypeAdapter(ProcessId.class, PROCESS_ID)
+        .registerTypeAdapter(Commands.class, COMMANDS)
+        .create();
+
+    private CommandResponses() {
+    }
+
+    /**
+     * Result of {@code GetProcessId}
+     */
+    public static final class ProcessId {
+        private final long processId;
+
+        public ProcessId(long processId) {
+            this.processId = processId;
+        }
+
+        public long getProcessId() {
+            return processId;
+        }
+    }
+
+    /**
+     * Result of {@code GetCommands}
+     */
+    public static final class Commands {
+        private final List<String> commands;
+
+        public Commands(List<String> commands) {
+            this.commands = Collections.unmodifiableList(commands);
+        }
+
+        public List<String> getCommands() {
+            return commands;
+        }
+    }
+
+    /**
+     * Decodes the {@code result} of an already parsed response.
+     *
+     * @throws JsonParseException if the response failed, has no result or the result doesn't fit
+     */
+    public static <T> T decode(JsonElement response, TypeAdapter<T> adapter) {
+        if (response == null || !response.isJsonObject()) {
+            throw new JsonParseException("expected a response object but was " + response);
+        }
+        JsonObject object = response.getAsJsonObject();
+        JsonElement succeeded = object.get("succeeded");
+        if (succeeded != null && succeeded.isJsonPrimitive() && !succeeded.getAsBoolean()) {
+            throw new JsonParseException(failure(object.get("error")));
+        }
+        JsonElement result = object.get("result");
+        if (result == null || !result.isJsonObject()) {
+            throw new JsonParseException("expected a result object but was " + result);
+        }
+        try {
+            return adapter.fromJsonTree(result);
+        } catch (IllegalStateException | NumberFormatException e) {
+            throw new JsonParseException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Decodes the {@code result} of a response straight from its text, without building a tree.
+     *
+     * @throws JsonParseException if the response failed, has no result or the result doesn't fit
+     */
+    public static <T> T decode(String response, TypeAdapter<T> adapter) {
+        try (JsonReader reader = new JsonReader(new StringReader(response))) {
+            expect(reader, JsonToken.BEGIN_OBJECT, "a response object");
+            reader.beginObject();
+            T result = null;
+            boolean hasResult = false;
+            boolean failed = false;
+            JsonElement error = null;
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "result":
+                        expect(reader, JsonToken.BEGIN_OBJECT, "a result object");
+                        result = adapter.read(reader);
+                        hasResult = true;
+                        break;
+                    case "succeeded":
+                        failed = reader.peek() == JsonToken.BOOLEAN && !reader.nextBoolean();
+                        break;
+                    case "error":
+                        error = JsonParser.parseReader(reader);
+                        break;
+                    default:
+                        reader.skipValue();
+                }
+            }
+            if (failed) {
+                throw new JsonParseException(failure(error));
+            }
+            if (!hasResult) {
+                throw new JsonParseException("response has no result");
+            }
+            return result;
+        } catch (IOException | IllegalStateException | NumberFormatException e) {
+            throw new JsonParseException(e.getMessage(), e);
+        }
+    }
+
+    private static String failure(JsonElement error) {
+        if (error != null && error.isJsonObject()) {
+            JsonElement message = error.getAsJsonObject().get("message");
+            JsonElement code = error.getAsJsonObject().get("code");
+            return "command failed" + (code != null ? " (" + code + ")" : "")
+                + (message != null && message.isJsonPrimitive() ? ": " + message.getAsString() : "");
+        }
+        return "command failed";
+    }
+
+    private static void expect(JsonReader reader, JsonToken token, String description) throws IOException {
+        JsonToken actual = reader.peek();
+        if (actual != token) {
+            throw new JsonParseException("expected " + description + " but was " + actual + " at " + reader.getPath());
+        }
+    }
+
+    private static final class ProcessIdAdapter extends TypeAdapter<ProcessId> {
+        @Override
+        public void write(JsonWriter out, ProcessId value) throws IOException {
+            out.beginObject().name("processId").value(value.processId).endObject();
+        }
+
+        @Override
+        public ProcessId read(JsonReader in) throws IOException {
+            in.beginObject();
+            long processId = 0;
+            boolean found = false;
+            while (in.hasNext()) {
+                if (in.nextName().equals("processId")) {
+                    expect(in, JsonToken.NUMBER, "a number");
+                    processId = in.nextLong();
+                    found = true;
+                } else {
+                    in.skipValue();
+                }
+            }
+            if (!found) {
+                throw new JsonParseException("result has no processId");
+            }
+            in.endObject();
+            return new ProcessId(processId);
+        }
+    }
+
+    private static final class CommandsAdapter extends TypeAdapter<Commands> {
+        @Override
+        public void write(JsonWriter out, Commands value) throws IOException {
+            out.beginObject().name("commands").beginArray();
+            for (String command : value.commands) {
+                out.value(command);
+            }
+            out.endArray().endObject();
+        }
+
+        @Override
+        public Commands read(JsonReader in) throws IOException {
+            in.beginObject();
+            List<String> commands = null;
+            while (in.hasNext()) {
+                if (in.nextName().equals("commands")) {
+                    expect(in, JsonToken.BEGIN_ARRAY, "an array of command names");
+                    commands = new ArrayList<>();
+                    in.beginArray();
+                    while (in.hasNext()) {
+                        expect(in, JsonToken.STRING, "a command name");
+                        commands.add(in.nextString());
+                    }
+                    in.endArray();
+                } else {
+                    in.skipValue();
+                }
+            }
+            if (commands == null) {
+                throw new JsonParseException("result has no commands");
+            }
+            in.endObject();
+            return new Commands(commands);
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package com.jsonconnector;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Headless command runner: sends JSON commands and writes the responses as NDJSON.
+ * <p>
+ * Commands are read with {@link CommandScript}, so a JSON array, NDJSON or pretty-printed
+ * objects all work, and they are sent while reading with up to the pipeline depth in
+ * flight. Each response is written as one compact line in command order; a failed command
+ * gives a line {@code {"error": "...", "command": {...}}} instead. Nothing here touches
+ * JavaFX or Swing, and the {@code headless} jar contains only these classes and Gson.
+ */
+public class CommandRunner {
+
+    public static final String DEFAULT_HOST = "localhost";
+    public static final int DEFAULT_PORT = 60200;
+
+    private final SocketClient client;
+    private final int pipelineDepth;
+    private final long timeoutMillis;
+
+    public CommandRunner(SocketClient client, int pipelineDepth, long timeout, TimeUnit unit) {
+        if (pipelineDepth <= 0) {
+            throw new IllegalArgumentException("pipelineDepth must be positive");
+        }
+        this.client = client;
+        this.pipelineDepth = pipelineDepth;
+        this.timeoutMillis = unit.toMillis(timeout);
+    }
+
+    /**
+     * Sends every command of {@code commands} and writes the responses to {@code out}.
+     *
+     * @return number of commands that failed
+     * @throws IOException if the input is not a valid script; responses to the commands
+     *                     before the invalid part are written first
+     */
+    public int run(Reader commands, Writer out) throws IOException {
+        Deque<Request> inFlight = new ArrayDeque<>();
+        int[] failed = new int[1];
+        try {
+            CommandScript.forEach(commands, command -> {
+                if (inFlight.size() >= pipelineDepth) {
+                    failed[0] += write(inFlight.poll(), out);
+                }
+                inFlight.add(new Request(command, client.sendAsync(command, timeoutMillis, TimeUnit.MILLISECONDS)));
+                // Write whatever is already answered without waiting
+                while (!inFlight.isEmpty() && inFlight.peek().response.isDone()) {
+                    failed[0] += write(inFlight.poll(), out);
+                }
+            });
+        } finally {
+            // Commands sent before invalid input still get their responses
+            while (!inFlight.isEmpty()) {
+                failed[0] += write(inFlight.poll(), out);
+            }
+            out.flush();
+        }
+        return failed[0];
+    }
+
+    /**
+     * @return 1 if the command failed, otherwise 0
+     */
+    private static int write(Request request, Writer out) throws IOException {
+        if (!request.response.isDone()) {
+            // About to block; let the reader see what is done so far
+            out.flush();
+        }
+        int failed = 0;
+        String line;
+        try {
+            line = request.response.join().toString();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            JsonObject error = new JsonObject();
+            error.addProperty("error", cause.getMessage() != null ? cause.getMessage() : cause.toString());
+            error.add("command", JsonParser.parseString(request.command));
+            line = error.toString();
+            failed = 1;
+        }
+        out.write(line);
+        out.write('\n');
+        return failed;
+    }
+
+    private static final class Request {
+        final String command;
+        final CompletableFuture<JsonElement> response;
+
+        Request(String command, CompletableFuture<JsonElement> response) {
+            this.command = command;
+            this.response = response;
+        }
+    }
+
+    /**
+     * Options: {@code --host HOST}, {@code --port N}, {@code --depth N} (requests in flight),
+     * {@code --timeout SECONDS} (per request), {@code --transport blocking|nio|streaming},
+     * followed by script files; no files or {@code -} reads stdin.
+     * <p>
+     * Exits with 0 if every command succeeded, 1 if some failed and 2 if the connection or
+     * the input failed.
+     */
+    public static void main(String[] args) {
+        String host = DEFAULT_HOST;
+        int port = DEFAULT_PORT;
+        int depth = SocketClient.DEFAULT_PIPELINE_DEPTH;
+        long timeoutMillis = SocketClient.DEFAULT_REQUEST_TIMEOUT_MILLIS;
+        SocketClient.Transport transport = SocketClient.Transport.BLOCKING;
+        List<String> files = new ArrayList<>();
+        try {
+            for (int i = 0; i < args.length; i++) {
+                String option = args[i];
+                if (!option.startsWith("--")) {
+                    files.add(option);
+                    continue;
+                }
+                if (i + 1 >= args.length) {
+                    throw new IllegalArgumentException("Missing value for " + option);
+                }
+                String value = args[++i];
+                switch (option) {
+                    case "--host": host = value; break;
+                    case "--port": port = Integer.parseInt(value); break;
+                    case "--depth": depth = Integer.parseInt(value); break;
+                    case "--timeout": timeoutMillis = TimeUnit.SECONDS.toMillis(Long.parseLong(value)); break;
+                    case "--transport": transport = SocketClient.Transport.valueOf(value.toUpperCase(Locale.ROOT)); break;
+                    default: throw new IllegalArgumentException("Unknown option " + option);
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.exit(2);
+        }
+        if (files.isEmpty()) {
+            files.add("-");
+        }
+
+        String[] connectError = new String[1];
+        CountDownLatch connected = new CountDownLatch(1);
+        SocketClient client = new SocketClient(message -> { }, (isConnected, error) -> {
+            if (!isConnected || error == null) {
+                connectError[0] = isConnected ? null : error;
+                connected.countDown();
+            } else {
+                System.err.println(error);
+            }
+        });
+        client.setTransport(transport);
+        int exitCode;
+        try {
+            client.connect(host, port);
+            connected.await();
+            if (connectError[0] != null) {
+                throw new IOException(connectError[0]);
+            }
+            Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+            CommandRunner runner = new CommandRunner(client, depth, timeoutMillis, TimeUnit.MILLISECONDS);
+            int failed = 0;
+            for (String file : files) {
+                try (Reader in = file.equals("-")
+                        ? new InputStreamReader(System.in, StandardCharsets.UTF_8)
+                        : Files.newBufferedReader(Paths.get(file), StandardCharsets.UTF_8)) {
+                    failed += runner.run(in, out);
+                }
+            }
+            exitCode = failed > 0 ? 1 : 0;
+        } catch (IOException e) {
+            System.err.println(e.getMessage());
+            exitCode = 2;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            exitCode = 2;
+        } finally {
+            client.disconnect();
+        }
+        System.exit(exitCode);
+    }
+}
@@ -0,0 +1,77 @@
+package com.jsonconnector;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads a list of JSON commands for batch sending.
+ * <p>
+ * A script is either a JSON array of command objects or a sequence of command objects,
+ * one per line or pretty-printed back to back. Each command is returned in compact form.
+ */
+public class CommandScript {
+
+    public static List<String> load(Path file) throws IOException {
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return parse(reader);
+        }
+    }
+
+    public static List<String> parse(String script) throws IOException {
+        return parse(new StringReader(script));
+    }
+
+    public static List<String> parse(Reader script) throws IOException {
+        List<String> commands = new ArrayList<>();
+        forEach(script, commands::add);
+        return commands;
+    }
+
+    /**
+     * Hands each command to {@code handler} as soon as it is read, so scripts of any size or
+     * an endless stream such as stdin can be processed without holding them in memory.
+     */
+    public static void forEach(Reader script, CommandHandler handler) throws IOException {
+        JsonReader reader = new JsonReader(script);
+        // Lenient mode accepts several top-level values
+        reader.setLenient(true);
+        int count = 0;
+        try {
+            while (reader.peek() != JsonToken.END_DOCUMENT) {
+                JsonElement value = JsonParser.parseReader(reader);
+                if (value.isJsonArray()) {
+                    for (JsonElement command : value.getAsJsonArray()) {
+                        handler.accept(toCommand(++count, command));
+                    }
+                } else {
+                    handler.accept(toCommand(++count, value));
+                }
+            }
+        } catch (JsonParseException e) {
+            throw new IOException("Invalid script after command " + count + ": " + e.getMessage(), e);
+        }
+    }
+
+    private static String toCommand(int number, JsonElement command) throws IOException {
+        if (!command.isJsonObject()) {
+            throw new IOException("Command " + number + " is not a JSON object: " + command);
+        }
+        return command.toString();
+    }
+
+    public interface CommandHandler {
+        void accept(String command) throws IOException;
+    }
+}
@@ -0,0 +1,49 @@
+package com.jsonconnector;
+
+import com.google.gson.JsonElement;
+
+/**
+ * A live transport-level connection owned by a SocketClient
+ */
+interface Connection {
+
+    /**
+     * Callbacks from a connection's I/O thread
+     */
+    interface Listener {
+        void onMessage(String message);
+
+        /**
+         * A message the connection already parsed, from the streaming transport.
+         */
+        default void onJson(JsonElement message) {
+            onMessage(message.toString());
+        }
+
+        /**
+         * A message streamed as token events instead of being parsed; see {@link JsonTokenListener}.
+         */
+        default void onStreamed() {
+        }
+
+        void onClosed(Connection connection, String error);
+    }
+
+    /**
+     * Starts reading and writing; callbacks may fire from here on.
+     */
+    void start();
+
+    /**
+     * Queues a message for sending.
+     *
+     * @return {@code false} if the outbound queue is full
+     */
+    boolean send(String message);
+
+    int pendingSendCount();
+
+    boolean isOpen();
+
+    void close();
+}
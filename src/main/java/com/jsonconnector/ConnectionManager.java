@@ -0,0 +1,176 @@
+package com.jsonconnector;
+
+import java.io.Closeable;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Drives many host:port endpoints from one selector thread and a small fixed pool.
+ * <p>
+ * Every endpoint gets an NIO {@link SocketClient} on the shared {@link NioEventLoop}.
+ * Connects don't block: the handshake completes on the selector thread, so slow or
+ * unreachable hosts never occupy the pool. Handler callbacks run on the pool; callbacks
+ * for one endpoint are delivered in order and drained in batches, so a busy endpoint
+ * can't starve the others. A handler that blocks still holds a pool thread while it
+ * runs, so size the pool for the number of handlers that may block at the same time.
+ * A handler that throws is reported to that endpoint's status handler.
+ */
+public class ConnectionManager implements Closeable {
+
+    public static final int DEFAULT_POOL_SIZE = 4;
+
+    private final NioEventLoop eventLoop;
+    private final ExecutorService pool;
+    private final int sendQueueCapacity;
+    private final Map<String, SocketClient> clients = new LinkedHashMap<>();
+
+    public ConnectionManager() {
+        this(DEFAULT_POOL_SIZE, SocketClient.DEFAULT_SEND_QUEUE_CAPACITY);
+    }
+
+    public ConnectionManager(int poolSize, int sendQueueCapacity) {
+        if (poolSize <= 0) {
+            throw new IllegalArgumentException("poolSize must be positive");
+        }
+        this.sendQueueCapacity = sendQueueCapacity;
+        this.eventLoop = new NioEventLoop("ConnectionManager-NIO");
+        AtomicInteger threadCount = new AtomicInteger();
+        this.pool = Executors.newFixedThreadPool(poolSize, r -> {
+            Thread t = new Thread(r, "ConnectionManager-" + threadCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public static String endpoint(String hostname, int port) {
+        return hostname + ":" + port;
+    }
+
+    /**
+     * Adds an endpoint and starts connecting to it.
+     *
+     * @param messageHandler receives each message from this endpoint
+     * @param statusHandler  receives connection status changes of this endpoint
+     * @return the endpoint key, {@code hostname:port}
+     */
+    public String add(String hostname, int port, Consumer<String> messageHandler,
+                      BiConsumer<Boolean, String> statusHandler) {
+        String endpoint = endpoint(hostname, port);
+        SerialExecutor callbacks = new SerialExecutor(pool,
+            e -> statusHandler.accept(isConnected(endpoint), "Handler failed: " + e));
+        SocketClient client = new SocketClient(
+            message -> callbacks.execute(() -> messageHandler.accept(message)),
+            (connected, error) -> callbacks.execute(() -> statusHandler.accept(connected, error)),
+            sendQueueCapacity, eventLoop, pool);
+
+        SocketClient previous;
+        synchronized (clients) {
+            previous = clients.put(endpoint, client);
+        }
+        if (previous != null) {
+            previous.disconnect();
+        }
+        client.connect(hostname, port);
+        return endpoint;
+    }
+
+    /**
+     * Adds an endpoint whose callbacks are tagged with the endpoint key.
+     */
+    public String add(String hostname, int port, BiConsumer<String, String> messageHandler,
+                      EndpointStatusHandler statusHandler) {
+        String endpoint = endpoint(hostname, port);
+        return add(hostname, port,
+                   message -> messageHandler.accept(endpoint, message),
+                   (connected, error) -> statusHandler.onStatusChanged(endpoint, connected, error));
+    }
+
+    /**
+     * Receives status changes together with the endpoint they belong to
+     */
+    public interface EndpointStatusHandler {
+        void onStatusChanged(String endpoint, boolean connected, String error);
+    }
+
+    public SocketClient getClient(String endpoint) {
+        synchronized (clients) {
+            return clients.get(endpoint);
+        }
+    }
+
+    public Set<String> getEndpoints() {
+        synchronized (clients) {
+            return Collections.unmodifiableSet(new LinkedHashSet<>(clients.keySet()));
+        }
+    }
+
+    /**
+     * Queues a message for one endpoint.
+     *
+     * @return {@code false} if the endpoint is unknown, not connected or its queue is full
+     */
+    public boolean send(String endpoint, String message) {
+        SocketClient client = getClient(endpoint);
+        return client != null && client.sendMessage(message);
+    }
+
+    /**
+     * Queues the same message for every connected endpoint.
+     *
+     * @return number of endpoints the message was queued for
+     */
+    public int broadcast(String message) {
+        int sent = 0;
+        for (String endpoint : getEndpoints()) {
+            SocketClient client = getClient(endpoint);
+            if (client != null && client.isConnected() && client.sendMessage(message)) {
+                sent++;
+            }
+        }
+        return sent;
+    }
+
+    public boolean isConnected(String endpoint) {
+        SocketClient client = getClient(endpoint);
+        return client != null && client.isConnected();
+    }
+
+    /**
+     * Reconnects one endpoint, keeping its handlers.
+     */
+    public void reconnect(String endpoint) {
+        SocketClient client = getClient(endpoint);
+        if (client == null) {
+            return;
+        }
+        int separator = endpoint.lastIndexOf(':');
+        client.connect(endpoint.substring(0, separator), Integer.parseInt(endpoint.substring(separator + 1)));
+    }
+
+    public void remove(String endpoint) {
+        SocketClient client;
+        synchronized (clients) {
+            client = clients.remove(endpoint);
+        }
+        if (client != null) {
+            client.disconnect();
+        }
+    }
+
+    @Override
+    public void close() {
+        for (String endpoint : getEndpoints()) {
+            remove(endpoint);
+        }
+        pool.shutdown();
+        eventLoop.close();
+    }
+}
@@ -0,0 +1,54 @@
+package com.jsonconnector;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * Runs only the last task of a burst, once submissions have been quiet for a delay.
+ * <p>
+ * A new submission cancels the scheduled task if it hasn't started yet. A task that is
+ * already running gets a staleness check it can poll to stop early or skip publishing.
+ */
+public class Debouncer {
+
+    private final ScheduledExecutorService executor;
+    private final long delayMillis;
+    private final AtomicLong generation = new AtomicLong();
+    private ScheduledFuture<?> scheduled;
+
+    public Debouncer(ScheduledExecutorService executor, long delayMillis) {
+        this.executor = executor;
+        this.delayMillis = delayMillis;
+    }
+
+    /**
+     * @param task receives a supplier that returns {@code true} once a newer task was submitted
+     */
+    public synchronized void submit(Consumer<BooleanSupplier> task) {
+        long current = generation.incrementAndGet();
+        if (scheduled != null) {
+            scheduled.cancel(false);
+        }
+        BooleanSupplier stale = () -> generation.get() != current;
+        scheduled = executor.schedule(() -> {
+            if (!stale.getAsBoolean()) {
+                task.accept(stale);
+            }
+        }, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Cancels the scheduled task and marks a running one as stale.
+     */
+    public synchronized void cancel() {
+        generation.incrementAndGet();
+        if (scheduled != null) {
+            scheduled.cancel(false);
+            scheduled = null;
+        }
+    }
+}
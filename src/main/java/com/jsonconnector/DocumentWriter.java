@@ -0,0 +1,77 @@
+package com.jsonconnector;
+
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Appends text to a Swing {@link Document} in fixed-size chunks.
+ * <p>
+ * Lets a formatter stream straight into an editor document, so the formatted text never
+ * exists as one big String. Each chunk is a separate insert; fill a document that no
+ * component displays yet, or write on the Swing thread.
+ */
+public class DocumentWriter extends Writer {
+
+    public static final int DEFAULT_CHUNK_SIZE = 16 * 1024;
+
+    private final Document document;
+    private final char[] chunk;
+    private int length;
+
+    public DocumentWriter(Document document) {
+        this(document, DEFAULT_CHUNK_SIZE);
+    }
+
+    public DocumentWriter(Document document, int chunkSize) {
+        this.document = document;
+        this.chunk = new char[chunkSize];
+    }
+
+    @Override
+    public void write(char[] chars, int offset, int count) throws IOException {
+        while (count > 0) {
+            int n = Math.min(count, chunk.length - length);
+            System.arraycopy(chars, offset, chunk, length, n);
+            length += n;
+            offset += n;
+            count -= n;
+            if (length == chunk.length) {
+                flush();
+            }
+        }
+    }
+
+    @Override
+    public void write(String str, int offset, int count) throws IOException {
+        while (count > 0) {
+            int n = Math.min(count, chunk.length - length);
+            str.getChars(offset, offset + n, chunk, length);
+            length += n;
+            offset += n;
+            count -= n;
+            if (length == chunk.length) {
+                flush();
+            }
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (length == 0) {
+            return;
+        }
+        try {
+            document.insertString(document.getLength(), new String(chunk, 0, length), null);
+        } catch (BadLocationException e) {
+            throw new IOException("Could not append to document", e);
+        }
+        length = 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+    }
+}
@@ -1,5 +1,6 @@
 package com.jsonconnector;
 
+import javafx.application.Platform;
 import javafx.geometry.Insets;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
@@ -10,25 +11,39 @@ import javafx.stage.Modality;
 import javafx.stage.Stage;
 
 import java.util.List;
-import java.util.Map;
-import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.function.Consumer;
-import java.util.stream.Collectors;
 
 /**
- * Modal dialog for selecting commands from favorites
+ * Modal dialog for selecting commands from favorites.
+ * <p>
+ * Filtering runs on a background thread and a newer query makes older ones stop. While
+ * typing narrows the filter, the previous result is refined instead of searching all
+ * commands again, and the command list only receives the differences.
  */
 public class FavoritesModal {
     
-    private final List<String> allCommands;
+    private static final long FILTER_DELAY_MILLIS = 20;
+    
+    private static final ScheduledExecutorService filterExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "Favorites-Filter");
+        t.setDaemon(true);
+        return t;
+    });
+    
+    private final CommandIndex commandIndex;
     private final Consumer<String> commandSelector;
+    private final Debouncer filterDebouncer = new Debouncer(filterExecutor, FILTER_DELAY_MILLIS);
+    // Last shown result, only used on the FX thread
+    private CommandIndex.Result shownResult;
     private Stage stage;
     private ListView<String> domainList;
     private ListView<String> commandList;
     private TextField filterField;
     
-    public FavoritesModal(List<String> commands, Consumer<String> commandSelector) {
-        this.allCommands = commands;
+    public FavoritesModal(CommandIndex commandIndex, Consumer<String> commandSelector) {
+        this.commandIndex = commandIndex;
         this.commandSelector = commandSelector;
         createModal();
     }
@@ -57,6 +72,7 @@ public class FavoritesModal {
         
         Scene scene = new Scene(root);
         stage.setScene(scene);
+        stage.setOnHidden(e -> filterDebouncer.cancel());
         
         // Initialize data
         populateDomainList();
@@ -139,13 +155,9 @@ public class FavoritesModal {
     }
     
     private void populateDomainList() {
-        Set<String> domains = allCommands.stream()
-                .map(this::extractDomain)
-                .collect(Collectors.toSet());
-        
         domainList.getItems().clear();
         domainList.getItems().add("All");
-        domainList.getItems().addAll(domains.stream().sorted().collect(Collectors.toList()));
+        domainList.getItems().addAll(commandIndex.getDomains());
         
         // Select "All" by default
         domainList.getSelectionModel().selectFirst();
@@ -155,21 +167,27 @@ public class FavoritesModal {
         String selectedDomain = domainList.getSelectionModel().getSelectedItem();
         String filter = filterField.getText();
         
-        List<String> filteredCommands = allCommands.stream()
-                .filter(cmd -> selectedDomain == null || "All".equals(selectedDomain) || 
-                         extractDomain(cmd).equals(selectedDomain))
-                .filter(cmd -> filter == null || filter.trim().isEmpty() || 
-                         cmd.toLowerCase().contains(filter.toLowerCase()))
-                .sorted()
-                .collect(Collectors.toList());
-        
-        commandList.getItems().clear();
-        commandList.getItems().addAll(filteredCommands);
+        // Best matches first; alphabetical when there is no filter
+        String domain = selectedDomain == null || "All".equals(selectedDomain) ? null : selectedDomain;
+        CommandIndex.Result previous = shownResult;
+        filterDebouncer.submit(stale -> {
+            CommandIndex.Result result = commandIndex.search(filter, domain, previous, stale);
+            if (result == null || stale.getAsBoolean()) {
+                return;
+            }
+            List<String> filteredCommands = result.getCommands();
+            Platform.runLater(() -> {
+                if (!stale.getAsBoolean()) {
+                    showCommands(result, filteredCommands);
+                }
+            });
+        });
     }
     
-    private String extractDomain(String command) {
-        int dotIndex = command.indexOf('.');
-        return dotIndex > 0 ? command.substring(0, dotIndex) : "Other";
+    private void showCommands(CommandIndex.Result result, List<String> filteredCommands) {
+        shownResult = result;
+        ListDiff.apply(commandList.getItems(), filteredCommands);
+        commandList.getSelectionModel().selectFirst();
     }
     
     private void selectCommand(String command) {
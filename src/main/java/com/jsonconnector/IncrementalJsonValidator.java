@@ -0,0 +1,82 @@
+package com.jsonconnector;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Revalidates an edited document by resuming from the last scanner checkpoint before the
+ * edit instead of rescanning from the start.
+ * <p>
+ * Checkpoints are recorded every {@link #DEFAULT_CHECKPOINT_INTERVAL} characters while
+ * scanning. An edit at some offset invalidates only the checkpoints after it, so typing
+ * near the end of a large document rescans just its tail.
+ */
+public class IncrementalJsonValidator {
+
+    public static final int DEFAULT_CHECKPOINT_INTERVAL = 16 * 1024;
+
+    private final int checkpointInterval;
+    private final List<Checkpoint> checkpoints = new ArrayList<>();
+
+    public IncrementalJsonValidator() {
+        this(DEFAULT_CHECKPOINT_INTERVAL);
+    }
+
+    public IncrementalJsonValidator(int checkpointInterval) {
+        this.checkpointInterval = checkpointInterval;
+    }
+
+    /**
+     * @param editedFrom lowest offset changed since the previous call; 0 forces a full scan
+     */
+    public synchronized JsonValidator.Result validate(CharSequence text, int editedFrom) {
+        // Text before a checkpoint at or before the edit is unchanged, so its state still holds
+        int keep = checkpoints.size();
+        while (keep > 0 && checkpoints.get(keep - 1).offset > editedFrom) {
+            keep--;
+        }
+        checkpoints.subList(keep, checkpoints.size()).clear();
+
+        JsonScanner scanner = new JsonScanner();
+        int from = 0;
+        if (!checkpoints.isEmpty()) {
+            Checkpoint last = checkpoints.get(checkpoints.size() - 1);
+            scanner.restore(last.state, last.depth, last.stack);
+            from = last.offset;
+        }
+        scanner.setCheckpointSink((offset, s) ->
+                checkpoints.add(new Checkpoint(offset, s.getState(), s.getDepth(), s.copyStack())), checkpointInterval);
+
+        return scanner.scan(text, from) ? JsonValidator.Result.VALID : JsonValidator.Result.error(text, scanner);
+    }
+
+    /**
+     * Offset the last validation resumed from would be for an edit at {@code editedFrom}.
+     */
+    synchronized int resumeOffset(int editedFrom) {
+        for (int i = checkpoints.size() - 1; i >= 0; i--) {
+            if (checkpoints.get(i).offset <= editedFrom) {
+                return checkpoints.get(i).offset;
+            }
+        }
+        return 0;
+    }
+
+    public synchronized void reset() {
+        checkpoints.clear();
+    }
+
+    private static final class Checkpoint {
+        final int offset;
+        final int state;
+        final int depth;
+        final long[] stack;
+
+        Checkpoint(int offset, int state, int depth, long[] stack) {
+            this.offset = offset;
+            this.state = state;
+            this.depth = depth;
+            this.stack = stack;
+        }
+    }
+}
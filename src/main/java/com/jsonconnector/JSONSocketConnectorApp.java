@@ -8,37 +8,124 @@ import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.scene.layout.*;
 import javafx.scene.paint.Color;
+import javafx.stage.FileChooser;
 import javafx.stage.Stage;
 import javafx.embed.swing.SwingNode;
+import org.fife.ui.rsyntaxtextarea.RSyntaxDocument;
 import org.fife.ui.rsyntaxtextarea.RSyntaxTextArea;
 import org.fife.ui.rsyntaxtextarea.SyntaxConstants;
 import org.fife.ui.rtextarea.RTextScrollPane;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
 
+import javax.management.JMException;
 import javax.swing.SwingUtilities;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+import javax.swing.text.Segment;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * JSON Socket Connector - A JavaFX application for sending and receiving JSON messages via TCP socket
  */
 public class JSONSocketConnectorApp extends Application {
     
+    // Quiet period after the last keystroke before the send editor is validated
+    private static final long VALIDATION_DELAY_MILLIS = 150;
+    
+    // Responses longer than this are shown unstyled, one page at a time
+    private static final int LARGE_MESSAGE_CHARS = Integer.getInteger("jsonconnector.largeMessageChars", 1_000_000);
+    private static final int PREVIEW_PAGE_CHARS = 256 * 1024;
+    
+    // Idle time after which the connection is probed with GetProcessId
+    private static final long HEARTBEAT_INTERVAL_SECONDS = 15;
+    
+    // Message logs of earlier sessions kept for replay; older ones are deleted at startup
+    private static final String SESSION_LOG_PREFIX = "session-";
+    private static final int KEPT_SESSION_LOGS = 5;
+    
     private TextField hostnameField;
     private TextField portField;
     private Button reconnectButton;
     private Button sendButton;
     private Button favoritesButton;
+    private Button runScriptButton;
+    private Button historyButton;
+    private Button metricsButton;
+    private Spinner<Integer> pipelineDepthSpinner;
     private Label statusLabel;
+    private Label receiveInfoLabel;
+    private Label messageStatsLabel;
+    private Label receivePagingLabel;
+    private Button loadMoreButton;
+    private CheckBox spillCheckBox;
+    private Label sendInfoLabel;
+    private Stage primaryStage;
     private RSyntaxTextArea sendTextArea;
     private RSyntaxTextArea receiveTextArea;
+    private TreeView<String> receiveTreeView;
+    private ToggleButton receiveTreeToggle;
     
     private SocketClient socketClient;
     private CommandManager commandManager;
+    // Command lists and parameter templates of earlier sessions
+    private CommandCache commandCache;
+    // Endpoint and Archicad process the cached command list came from; processing thread only
+    private String connectedEndpoint;
+    private String connectedProcessId;
+    private String commandsSource;
+    private MessageLog messageLog;
+    private MessageHistoryWindow historyWindow;
+    private MetricsWindow metricsWindow;
+    
+    // Formatting, dispatch and validation run here, never on the FX thread
+    private ExecutorService processingExecutor;
+    private ScheduledExecutorService validationExecutor;
+    private Debouncer validationDebouncer;
+    private volatile boolean sendTextValid;
+    private final IncrementalJsonValidator sendValidator = new IncrementalJsonValidator();
+    // Lowest send editor offset changed since the last validation
+    private final AtomicInteger sendEditedFrom = new AtomicInteger(Integer.MAX_VALUE);
+    
+    // At most one receive area update per frame, however fast messages arrive
+    private UiUpdateCoalescer<ReceivedMessage> receiveCoalescer;
+    // Shown as a lazily expanded tree instead of text; read on the processing thread
+    private volatile boolean receiveTreeMode;
+    private volatile ReceivedMessage lastReceivedMessage;
+    // Pages of the current large response; only touched on the processing thread
+    private TextPager receivePager;
+    private volatile boolean spillLargeMessages;
+    // Large responses are spilled here, each replacing the last; created on first use
+    private volatile Path spillFile;
     
     @Override
     public void start(Stage primaryStage) {
+        this.primaryStage = primaryStage;
         primaryStage.setTitle("JSON Socket Connector");
         
+        processingExecutor = createDaemonExecutor("Message-Processing");
+        validationExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "Json-Validation");
+            t.setDaemon(true);
+            return t;
+        });
+        validationDebouncer = new Debouncer(validationExecutor, VALIDATION_DELAY_MILLIS);
+        
         // Initialize components
         initializeComponents();
         
@@ -66,8 +153,19 @@ public class JSONSocketConnectorApp extends Application {
         });
         
         // Initialize socket client and command manager
-        socketClient = new SocketClient(this::onMessageReceived, this::onConnectionStatusChanged);
+        // Renders are paced per frame but built on the processing thread, see renderReceivedMessage
+        receiveCoalescer = new UiUpdateCoalescer<>(processingExecutor, this::renderReceivedMessage);
+        MessagePipeline messagePipeline = new MessagePipeline(processingExecutor, this::onMessageReceived);
+        socketClient = new SocketClient(messagePipeline::accept, this::onConnectionStatusChanged);
+        messagePipeline.setMetrics(socketClient.getMetrics());
+        // Large responses are paged from their text; building their tree would cost far more
+        messagePipeline.setMaxParsedChars(LARGE_MESSAGE_CHARS);
+        socketClient.setAutoReconnect(true);
+        socketClient.setHeartbeat("{\"command\": \"GetProcessId\"}", HEARTBEAT_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        publishMetrics();
+        openMessageLog();
         commandManager = new CommandManager();
+        commandCache = new CommandCache(CommandCache.defaultDirectory());
         
         // Auto-connect on startup
         Platform.runLater(this::connectToServer);
@@ -75,6 +173,14 @@ public class JSONSocketConnectorApp extends Application {
         primaryStage.show();
     }
     
+    private static ExecutorService createDaemonExecutor(String name) {
+        return Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, name);
+            t.setDaemon(true);
+            return t;
+        });
+    }
+    
     private void initializeComponents() {
         // Connection controls
         hostnameField = new TextField("localhost");
@@ -100,10 +206,44 @@ public class JSONSocketConnectorApp extends Application {
         favoritesButton.setOnAction(e -> showFavoritesModal());
         favoritesButton.setDisable(true);
         
+        runScriptButton = new Button("Run Script...");
+        runScriptButton.setOnAction(e -> runScript());
+        runScriptButton.setDisable(true);
+        
+        historyButton = new Button("History...");
+        historyButton.setOnAction(e -> showHistory());
+        
+        metricsButton = new Button("Metrics...");
+        metricsButton.setOnAction(e -> showMetrics());
+        
+        pipelineDepthSpinner = new Spinner<>(1, 256, SocketClient.DEFAULT_PIPELINE_DEPTH);
+        pipelineDepthSpinner.setPrefWidth(80);
+        pipelineDepthSpinner.setEditable(true);
+        
         // Status label
         statusLabel = new Label("Disconnected");
         statusLabel.setTextFill(Color.RED);
         
+        receiveInfoLabel = new Label();
+        receiveInfoLabel.setTextFill(Color.GRAY);
+        
+        messageStatsLabel = new Label();
+        messageStatsLabel.setTextFill(Color.GRAY);
+        
+        // Paging controls for large responses, hidden until one arrives
+        receivePagingLabel = new Label();
+        receivePagingLabel.setTextFill(Color.GRAY);
+        loadMoreButton = new Button("Load more");
+        loadMoreButton.setOnAction(e -> loadMoreReceived());
+        loadMoreButton.setVisible(false);
+        loadMoreButton.managedProperty().bind(loadMoreButton.visibleProperty());
+        
+        spillCheckBox = new CheckBox("Spill large responses to file");
+        spillCheckBox.selectedProperty().addListener((obs, oldVal, newVal) -> spillLargeMessages = newVal);
+        
+        sendInfoLabel = new Label();
+        sendInfoLabel.setTextFill(Color.RED);
+        
         // Text areas with JSON syntax highlighting
         initializeTextAreas();
     }
@@ -114,12 +254,13 @@ public class JSONSocketConnectorApp extends Application {
         sendTextArea.setCodeFoldingEnabled(true);
         sendTextArea.setAntiAliasingEnabled(true);
         sendTextArea.setText("{\n  \"command\": \"GetProcessId\"\n}");
+        sendTextValid = true;
         
         // Listen for text changes to enable/disable send button
         sendTextArea.getDocument().addDocumentListener(new javax.swing.event.DocumentListener() {
-            public void insertUpdate(javax.swing.event.DocumentEvent e) { validateJson(); }
-            public void removeUpdate(javax.swing.event.DocumentEvent e) { validateJson(); }
-            public void changedUpdate(javax.swing.event.DocumentEvent e) { validateJson(); }
+            public void insertUpdate(javax.swing.event.DocumentEvent e) { validateJson(e.getOffset()); }
+            public void removeUpdate(javax.swing.event.DocumentEvent e) { validateJson(e.getOffset()); }
+            public void changedUpdate(javax.swing.event.DocumentEvent e) { }
         });
         
         receiveTextArea = new RSyntaxTextArea(20, 60);
@@ -127,6 +268,9 @@ public class JSONSocketConnectorApp extends Application {
         receiveTextArea.setCodeFoldingEnabled(true);
         receiveTextArea.setAntiAliasingEnabled(true);
         receiveTextArea.setEditable(false);
+        
+        receiveTreeView = new TreeView<>();
+        receiveTreeView.setVisible(false);
     }
     
     private VBox createMainLayout() {
@@ -164,7 +308,7 @@ public class JSONSocketConnectorApp extends Application {
         // Right side with status
         HBox rightControls = new HBox(10);
         rightControls.setAlignment(Pos.CENTER_RIGHT);
-        rightControls.getChildren().addAll(new Label("Status:"), statusLabel);
+        rightControls.getChildren().addAll(messageStatsLabel, new Label("Status:"), statusLabel);
         
         topPanel.getChildren().addAll(leftControls, rightControls);
         HBox.setHgrow(leftControls, Priority.ALWAYS);
@@ -191,8 +335,10 @@ public class JSONSocketConnectorApp extends Application {
     private VBox createSendPanel() {
         VBox sendPanel = new VBox(5);
         
-        // Just the label header, no buttons
-        sendPanel.getChildren().add(new Label("Send JSON:"));
+        // Label header with the location of the first syntax error, no buttons
+        HBox sendHeader = new HBox(10);
+        sendHeader.getChildren().addAll(new Label("Send JSON:"), sendInfoLabel);
+        sendPanel.getChildren().add(sendHeader);
         
         SwingNode sendSwingNode = new SwingNode();
         SwingUtilities.invokeLater(() -> {
@@ -212,7 +358,28 @@ public class JSONSocketConnectorApp extends Application {
     private VBox createReceivePanel() {
         VBox receivePanel = new VBox(5);
         
-        receivePanel.getChildren().addAll(new Label("Received JSON:"));
+        // Text shows the formatted response; Tree only builds the nodes that are expanded
+        ToggleGroup viewGroup = new ToggleGroup();
+        ToggleButton textToggle = new ToggleButton("Text");
+        textToggle.setToggleGroup(viewGroup);
+        textToggle.setSelected(true);
+        receiveTreeToggle = new ToggleButton("Tree");
+        receiveTreeToggle.setToggleGroup(viewGroup);
+        viewGroup.selectedToggleProperty().addListener((obs, oldToggle, newToggle) -> {
+            if (newToggle == null) {
+                oldToggle.setSelected(true); // Keep one view selected
+            } else {
+                setReceiveTreeMode(newToggle == receiveTreeToggle);
+            }
+        });
+        
+        HBox receiveHeader = new HBox(10);
+        receiveHeader.setAlignment(Pos.CENTER_LEFT);
+        Region headerSpacer = new Region();
+        HBox.setHgrow(headerSpacer, Priority.ALWAYS);
+        receiveHeader.getChildren().addAll(new Label("Received JSON:"), receiveInfoLabel, headerSpacer,
+            receivePagingLabel, loadMoreButton, textToggle, receiveTreeToggle);
+        receivePanel.getChildren().add(receiveHeader);
         
         SwingNode receiveSwingNode = new SwingNode();
         SwingUtilities.invokeLater(() -> {
@@ -223,8 +390,9 @@ public class JSONSocketConnectorApp extends Application {
         // Add resize handling to prevent flickering and improve performance
         receiveSwingNode.setOnMouseEntered(e -> receiveSwingNode.requestFocus());
         
-        receivePanel.getChildren().add(receiveSwingNode);
-        VBox.setVgrow(receiveSwingNode, Priority.ALWAYS);
+        StackPane receiveViews = new StackPane(receiveSwingNode, receiveTreeView);
+        receivePanel.getChildren().add(receiveViews);
+        VBox.setVgrow(receiveViews, Priority.ALWAYS);
         
         return receivePanel;
     }
@@ -234,10 +402,13 @@ public class JSONSocketConnectorApp extends Application {
         HBox bottomPanel = new HBox(10);
         bottomPanel.setAlignment(Pos.CENTER);
         
-        // Left side with favorites button
-        HBox leftActions = new HBox();
+        // Left side with favorites and script buttons
+        HBox leftActions = new HBox(10);
         leftActions.setAlignment(Pos.CENTER_LEFT);
-        leftActions.getChildren().add(favoritesButton);
+        leftActions.getChildren().addAll(
+            favoritesButton, runScriptButton, historyButton, metricsButton,
+            new Label("Pipeline depth:"), pipelineDepthSpinner, spillCheckBox
+        );
         
         // Right side with send button
         HBox rightActions = new HBox();
@@ -267,6 +438,11 @@ public class JSONSocketConnectorApp extends Application {
             statusLabel.setText("Reconnecting...");
             statusLabel.setTextFill(Color.ORANGE);
             
+            String endpoint = hostname + ":" + port;
+            processingExecutor.execute(() -> {
+                connectedEndpoint = endpoint;
+                loadCachedCommands(endpoint);
+            });
             socketClient.connect(hostname, port);
         } catch (NumberFormatException e) {
             // Re-enable button on error
@@ -290,17 +466,138 @@ public class JSONSocketConnectorApp extends Application {
         socketClient.sendMessage(json);
     }
     
-    private void validateJson() {
-        Platform.runLater(() -> {
-            String json = sendTextArea.getText().trim();
-            boolean isValid = !json.isEmpty() && JsonValidator.isValidJson(json);
-            sendButton.setDisable(!isValid || !socketClient.isConnected());
+    private void runScript() {
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle("Run Command Script");
+        chooser.getExtensionFilters().addAll(
+            new FileChooser.ExtensionFilter("JSON scripts", "*.json", "*.ndjson", "*.jsonl"),
+            new FileChooser.ExtensionFilter("All files", "*.*")
+        );
+        File file = chooser.showOpenDialog(primaryStage);
+        if (file == null) {
+            return;
+        }
+        
+        runScriptButton.setDisable(true);
+        statusLabel.setText("Loading script...");
+        statusLabel.setTextFill(Color.ORANGE);
+        
+        // A large script takes a while to read and parse, so keep it off the FX thread
+        processingExecutor.execute(() -> {
+            List<String> commands;
+            try {
+                commands = CommandScript.load(file.toPath());
+            } catch (IOException e) {
+                Platform.runLater(() -> runScriptButton.setDisable(!socketClient.isConnected()));
+                showError("Cannot read script: " + e.getMessage());
+                return;
+            }
+            Platform.runLater(() -> sendScript(commands));
+        });
+    }
+    
+    private void sendScript(List<String> commands) {
+        int pipelineDepth = pipelineDepthSpinner.getValue();
+        statusLabel.setText(String.format("Running %d commands...", commands.size()));
+        statusLabel.setTextFill(Color.ORANGE);
+        
+        long startNanos = System.nanoTime();
+        socketClient.sendBatch(commands, pipelineDepth).whenCompleteAsync((results, error) -> {
+            long elapsedMillis = (System.nanoTime() - startNanos) / 1_000_000;
+            if (error != null) {
+                Platform.runLater(() -> runScriptButton.setDisable(!socketClient.isConnected()));
+                requestFailed("Script", error);
+                return;
+            }
+            
+            JsonArray responses = new JsonArray(results.size());
+            results.forEach(responses::add);
+            renderReceivedMessage(new ReceivedMessage(responses.toString(), responses));
+            Platform.runLater(() -> {
+                runScriptButton.setDisable(!socketClient.isConnected());
+                statusLabel.setText(String.format("Script finished: %d commands in %d ms", results.size(), elapsedMillis));
+                statusLabel.setTextFill(Color.GREEN);
+            });
+        }, processingExecutor);
+    }
+    
+    private void validateJson(int editedOffset) {
+        sendEditedFrom.accumulateAndGet(editedOffset, Math::min);
+        // Typing only reschedules; the text is scanned once the edits pause
+        validationDebouncer.submit(stale -> {
+            int editedFrom = sendEditedFrom.getAndSet(Integer.MAX_VALUE);
+            JsonValidator.Result result = validateDocument(sendTextArea.getDocument(), editedFrom);
+            if (stale.getAsBoolean()) {
+                return; // Superseded by a newer edit
+            }
+            boolean isValid = result.isValid();
+            sendTextValid = isValid;
+            Platform.runLater(() -> {
+                sendButton.setDisable(!isValid || !socketClient.isConnected());
+                sendInfoLabel.setText(isValid ? "" : result.toString());
+            });
         });
     }
     
+    private JsonValidator.Result validateDocument(Document document, int editedFrom) {
+        // render() holds the document's read lock, so this is safe off the Swing thread.
+        // The segment views the document's own buffer, so the text isn't copied.
+        JsonValidator.Result[] result = new JsonValidator.Result[1];
+        document.render(() -> {
+            Segment text = new Segment();
+            text.setPartialReturn(false);
+            try {
+                document.getText(0, document.getLength(), text);
+                result[0] = sendValidator.validate(text, editedFrom);
+            } catch (BadLocationException e) {
+                sendValidator.reset();
+                result[0] = JsonValidator.validate("");
+            }
+        });
+        return result[0];
+    }
+    
+    private void openMessageLog() {
+        // One log per session; every sent and received message is kept on disk, not on the heap
+        Path logRoot = Paths.get(System.getProperty("jsonconnector.logDir",
+            Paths.get(System.getProperty("java.io.tmpdir"), "json-socket-connector").toString()));
+        String session = SESSION_LOG_PREFIX + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+        try {
+            MessageLog.deleteOldLogs(logRoot, SESSION_LOG_PREFIX, KEPT_SESSION_LOGS);
+            messageLog = new MessageLog(logRoot.resolve(session));
+            socketClient.setMessageLog(messageLog);
+        } catch (IOException e) {
+            historyButton.setDisable(true);
+            showError("Message history disabled: " + e.getMessage());
+        }
+    }
+    
+    private void showHistory() {
+        if (historyWindow == null) {
+            historyWindow = new MessageHistoryWindow(messageLog, text -> SwingUtilities.invokeLater(() -> sendTextArea.setText(text)));
+        }
+        historyWindow.show();
+    }
+    
+    private void publishMetrics() {
+        // Visible in JConsole / VisualVM under com.jsonconnector
+        try {
+            socketClient.getMetrics().register("main");
+        } catch (JMException e) {
+            showError("Metrics not published over JMX: " + e.getMessage());
+        }
+    }
+    
+    private void showMetrics() {
+        if (metricsWindow == null) {
+            metricsWindow = new MetricsWindow(socketClient.getMetrics());
+        }
+        metricsWindow.show();
+    }
+    
     private void showFavoritesModal() {
-        List<String> commands = commandManager.getCommands();
-        if (commands.isEmpty()) {
+        CommandIndex commands = commandManager.getIndex();
+        if (commands.size() == 0) {
             showError("No commands available. Please connect to server first.");
             return;
         }
@@ -310,62 +607,321 @@ public class JSONSocketConnectorApp extends Application {
     }
     
     private void onCommandSelected(String command) {
-        // Request command parameters
-        String json = String.format("{\"command\": \"GetCommandParameters\", \"parameters\": {\"command\": \"%s\"}}", command);
-        socketClient.sendMessage(json);
+        processingExecutor.execute(() -> {
+            // A template from an earlier session is shown at once and replaced if the server's differs
+            String endpoint = connectedEndpoint;
+            JsonElement cached = commandCache.getParameters(endpoint, command);
+            String cachedText = cached != null ? JsonFormatter.format(cached) : null;
+            if (cachedText != null) {
+                Platform.runLater(() -> sendTextArea.setText(cachedText));
+            }
+            
+            // Request command parameters and show them in the send editor
+            String json = String.format("{\"command\": \"GetCommandParameters\", \"parameters\": {\"command\": \"%s\"}}", command);
+            socketClient.sendAsync(json)
+                    .thenAcceptAsync(response -> {
+                        if (resultOf(response) != null) {
+                            commandCache.putParameters(endpoint, command, response);
+                        }
+                        if (response.equals(cached)) {
+                            return;
+                        }
+                        String formatted = JsonFormatter.format(response);
+                        Platform.runLater(() -> {
+                            // Unless the user already started editing the cached template
+                            if (cachedText == null || cachedText.equals(sendTextArea.getText())) {
+                                sendTextArea.setText(formatted);
+                            }
+                        });
+                    }, processingExecutor)
+                    .exceptionally(e -> requestFailed("GetCommandParameters", e));
+        });
+    }
+    
+    private void onMessageReceived(ReceivedMessage message) {
+        // Already parsed and formatted off the FX thread
+        handleSpecialResponses(message.getJson());
+        
+        receiveCoalescer.submit(message);
+    }
+    
+    private void setReceiveTreeMode(boolean treeMode) {
+        receiveTreeMode = treeMode;
+        receiveTreeView.setVisible(treeMode);
+        ReceivedMessage message = lastReceivedMessage;
+        if (message != null) {
+            processingExecutor.execute(() -> renderReceivedMessage(message));
+        }
     }
     
-    private void onMessageReceived(String message) {
+    private void renderReceivedMessage(ReceivedMessage message) {
+        long startNanos = System.nanoTime();
+        lastReceivedMessage = message;
+        closeReceivePager();
+        // Per frame, so the count doesn't keep growing over a long session
+        long skipped = receiveCoalescer.getLastRenderDroppedCount();
+        Platform.runLater(() -> receiveInfoLabel.setText(skipped > 0 ? String.format("(%d messages skipped)", skipped) : ""));
+        
+        if (receiveTreeMode) {
+            // Building the root is cheap; children are created as nodes are expanded. A large
+            // response is only parsed once the tree view asks for it
+            JsonElement json = message.isParsed() ? message.getJson() : MessagePipeline.process(message.getRaw()).getJson();
+            TreeItem<String> root = json != null
+                ? JsonTreeItem.root(json)
+                : new TreeItem<>("Not valid JSON: " + message.getRaw());
+            Platform.runLater(() -> {
+                receiveTreeView.setRoot(root);
+                showRenderStats(message, startNanos);
+            });
+            return;
+        }
+        
+        if (message.getRaw().length() > LARGE_MESSAGE_CHARS) {
+            renderLargeMessage(message, startNanos);
+            return;
+        }
+        
+        // Format straight into a document nothing displays yet, then swap it in on the Swing
+        // thread; no tree and no formatted String copy is built for the receive area
+        RSyntaxDocument document = new RSyntaxDocument(SyntaxConstants.SYNTAX_STYLE_JSON);
+        try (DocumentWriter writer = new DocumentWriter(document)) {
+            message.writeFormatted(writer);
+        } catch (IOException e) {
+            // Lenient parsing accepted it but the strict formatter didn't; show it as received
+            setDocumentText(document, message.getRaw());
+        }
+        
+        SwingUtilities.invokeLater(() -> {
+            setReceiveDocument(document, true);
+            showRenderStats(message, startNanos);
+        });
+    }
+    
+    private void renderLargeMessage(ReceivedMessage message, long startNanos) {
+        // Degraded mode: no styling or folding, and only the pages asked for reach the editor
+        TextPager pager = null;
+        if (spillLargeMessages) {
+            try {
+                pager = TextPager.spill(message, spillFile());
+            } catch (IOException e) {
+                showError("Could not spill response to file: " + e.getMessage());
+            }
+        }
+        if (pager == null) {
+            pager = TextPager.of(message.getRaw()); // Unformatted, but no second copy
+        }
+        receivePager = pager;
+        
+        RSyntaxDocument document = new RSyntaxDocument(SyntaxConstants.SYNTAX_STYLE_NONE);
+        setDocumentText(document, nextReceivedPage(pager));
+        SwingUtilities.invokeLater(() -> {
+            setReceiveDocument(document, false);
+            showRenderStats(message, startNanos);
+        });
+        showPagingState(pager);
+    }
+    
+    private Path spillFile() throws IOException {
+        if (spillFile == null) {
+            spillFile = Files.createTempFile("response-", ".json");
+            spillFile.toFile().deleteOnExit();
+        }
+        return spillFile;
+    }
+    
+    private void loadMoreReceived() {
+        processingExecutor.execute(() -> {
+            TextPager pager = receivePager;
+            if (pager == null) {
+                return; // Replaced by a newer message
+            }
+            String page = nextReceivedPage(pager);
+            SwingUtilities.invokeLater(() -> receiveTextArea.append(page));
+            showPagingState(pager);
+        });
+    }
+    
+    private String nextReceivedPage(TextPager pager) {
+        try {
+            return pager.nextPage(PREVIEW_PAGE_CHARS);
+        } catch (IOException e) {
+            showError("Could not read response page: " + e.getMessage());
+            return "";
+        }
+    }
+    
+    private void closeReceivePager() {
+        if (receivePager != null) {
+            try {
+                receivePager.close();
+            } catch (IOException e) {
+                // Nothing left to read from it anyway
+            }
+            receivePager = null;
+        }
         Platform.runLater(() -> {
-            String formattedJson = JsonFormatter.format(message);
-            receiveTextArea.setText(formattedJson);
-            
-            // Handle special responses
-            handleSpecialResponses(message);
+            loadMoreButton.setVisible(false);
+            receivePagingLabel.setText("");
         });
     }
     
-    private void handleSpecialResponses(String message) {
+    private void showPagingState(TextPager pager) {
+        boolean hasMore = pager.hasMore();
+        String text = String.format("Showing %s of %s", formatSize(pager.getPosition()), formatSize(pager.getLength()))
+            + (pager.getFile() != null ? ", saved to " + pager.getFile() : ", unformatted");
+        Platform.runLater(() -> {
+            loadMoreButton.setVisible(hasMore);
+            receivePagingLabel.setText(text);
+        });
+    }
+    
+    private void setReceiveDocument(RSyntaxDocument document, boolean styled) {
+        receiveTextArea.setDocument(document);
+        receiveTextArea.setSyntaxEditingStyle(styled ? SyntaxConstants.SYNTAX_STYLE_JSON : SyntaxConstants.SYNTAX_STYLE_NONE);
+        receiveTextArea.setCodeFoldingEnabled(styled);
+    }
+    
+    private void showRenderStats(ReceivedMessage message, long startNanos) {
+        long renderNanos = System.nanoTime() - startNanos;
+        socketClient.getMetrics().recordRenderTime(renderNanos);
+        long renderMillis = renderNanos / 1_000_000;
+        String text = String.format("Last message: %s, rendered in %d ms", formatSize(message.getRaw().length()), renderMillis);
+        Platform.runLater(() -> messageStatsLabel.setText(text));
+    }
+    
+    private static String formatSize(long chars) {
+        if (chars < 1024) {
+            return chars + " chars";
+        }
+        if (chars < 1024 * 1024) {
+            return String.format("%.1f K chars", chars / 1024.0);
+        }
+        return String.format("%.1f M chars", chars / (1024.0 * 1024.0));
+    }
+    
+    private static void setDocumentText(Document document, String text) {
         try {
-            Map<String, Object> response = JsonFormatter.parseToMap(message);
+            document.remove(0, document.getLength());
+            document.insertString(0, text, null);
+        } catch (BadLocationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+    
+    private void handleSpecialResponses(JsonElement response) {
+        JsonObject result = resultOf(response);
+        if (result == null) {
+            return;
+        }
+        
+        try {
+            // Handle GetProcessId response
+            if (result.has("processId")) {
+                showProcessId(CommandResponses.decode(response, CommandResponses.PROCESS_ID).getProcessId());
+            }
             
-            if (response.containsKey("result")) {
-                Map<String, Object> result = (Map<String, Object>) response.get("result");
-                
-                // Handle GetProcessId response
-                if (result.containsKey("processId")) {
-                    double processId = (Double) result.get("processId");
-                    Platform.runLater(() -> {
-                        statusLabel.setText(String.format("Connected to Archicad.exe (pid: %.0f)", processId));
-                        statusLabel.setTextFill(Color.GREEN);
-                    });
-                }
-                
-                // Handle GetCommands response
-                if (result.containsKey("commands")) {
-                    List<String> commands = (List<String>) result.get("commands");
-                    commandManager.setCommands(commands);
-                    Platform.runLater(() -> favoritesButton.setDisable(false));
-                }
-                
-                // Handle GetCommandParameters response
-                if (result.containsKey("parameters")) {
-                    String command = extractCommandFromParameters(message);
-                    if (command != null) {
-                        Platform.runLater(() -> {
-                            sendTextArea.setText(JsonFormatter.format(message));
-                        });
+            // Handle GetCommands response
+            if (result.has("commands")) {
+                applyCommands(CommandResponses.decode(response, CommandResponses.COMMANDS).getCommands());
+            }
+        } catch (JsonParseException e) {
+            showError("Malformed response: " + e.getMessage());
+        }
+    }
+    
+    private void showProcessId(long processId) {
+        Platform.runLater(() -> {
+            statusLabel.setText(String.format("Connected to Archicad.exe (pid: %d)", processId));
+            statusLabel.setTextFill(Color.GREEN);
+        });
+    }
+    
+    private void applyCommands(List<String> commands) {
+        commandManager.setCommands(commands);
+        if (connectedEndpoint != null) {
+            commandCache.putCommands(connectedEndpoint, connectedProcessId, commands);
+        }
+        Platform.runLater(() -> favoritesButton.setDisable(false));
+    }
+    
+    private void loadCachedCommands(String endpoint) {
+        if (commandsSource != null && commandsSource.startsWith(endpoint + "#")) {
+            return;
+        }
+        // Commands of an earlier session with this server, usable before GetCommands returns
+        CommandCache.Entry cached = commandCache.get(endpoint);
+        if (cached != null) {
+            // Without a process id the cached list is never taken as current
+            commandsSource = cached.getProcessId() != null ? endpoint + "#" + cached.getProcessId() : null;
+            commandManager.setCommands(cached.getCommands());
+        } else {
+            commandsSource = null;
+            commandManager.clearCommands();
+        }
+    }
+    
+    private void requestSessionInfo() {
+        socketClient.sendAsync("{\"command\": \"GetProcessId\"}")
+                .thenAcceptAsync(response -> {
+                    String processId = null;
+                    try {
+                        long decoded = CommandResponses.decode(response, CommandResponses.PROCESS_ID).getProcessId();
+                        showProcessId(decoded);
+                        processId = String.valueOf(decoded);
+                    } catch (JsonParseException e) {
+                        showError("GetProcessId failed: " + e.getMessage());
                     }
-                }
+                    onSessionIdentified(processId);
+                }, processingExecutor)
+                .exceptionally(e -> {
+                    requestFailed("GetProcessId", e);
+                    processingExecutor.execute(() -> onSessionIdentified(null));
+                    return null;
+                });
+    }
+    
+    /**
+     * Fetches the commands unless the ones shown came from this very Archicad process.
+     *
+     * @param processId the server's process id, or {@code null} if GetProcessId failed
+     */
+    private void onSessionIdentified(String processId) {
+        connectedProcessId = processId;
+        // The same Archicad process still has the same commands; without a process id
+        // there is no telling, so they are always fetched
+        String source = processId != null ? connectedEndpoint + "#" + processId : null;
+        if (source == null || commandManager.getIndex().size() == 0 || !source.equals(commandsSource)) {
+            commandsSource = source;
+            requestCommands();
+        }
+        // Cached commands are usable while fresh ones are on the way
+        if (commandManager.getIndex().size() > 0) {
+            Platform.runLater(() -> favoritesButton.setDisable(false));
+        }
+    }
+    
+    private void requestCommands() {
+        socketClient.sendAsync("{\"command\": \"GetCommands\"}")
+                .thenAcceptAsync(response -> applyCommands(
+                        CommandResponses.decode(response, CommandResponses.COMMANDS).getCommands()), processingExecutor)
+                .exceptionally(e -> requestFailed("GetCommands", e));
+    }
+    
+    private static JsonObject resultOf(JsonElement response) {
+        if (response != null && response.isJsonObject()) {
+            JsonElement result = response.getAsJsonObject().get("result");
+            if (result != null && result.isJsonObject()) {
+                return result.getAsJsonObject();
             }
-        } catch (Exception e) {
-            // Ignore parsing errors for non-special responses
         }
+        return null;
     }
     
-    private String extractCommandFromParameters(String message) {
-        // This would need to extract the original command from the response
-        // For now, return null to indicate no command extraction
+    private Void requestFailed(String command, Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (socketClient.isConnected()) {
+            showError(command + " failed: " + cause.getMessage());
+        }
         return null;
     }
     
@@ -373,21 +929,26 @@ public class JSONSocketConnectorApp extends Application {
         Platform.runLater(() -> {
             // Always re-enable the reconnect button
             reconnectButton.setDisable(false);
-            
-            if (connected) {
+
+            if (connected && error != null) {
+                // Still connected, but the client is reporting backpressure
+                statusLabel.setText(error);
+                statusLabel.setTextFill(Color.ORANGE);
+            } else if (connected) {
                 statusLabel.setText("Connected");
                 statusLabel.setTextFill(Color.GREEN);
-                sendButton.setDisable(!JsonValidator.isValidJson(sendTextArea.getText()));
+                sendButton.setDisable(!sendTextValid);
+                runScriptButton.setDisable(false);
                 
                 // Auto-send GetProcessId and GetCommands
-                socketClient.sendMessage("{\"command\": \"GetProcessId\"}");
-                socketClient.sendMessage("{\"command\": \"GetCommands\"}");
+                requestSessionInfo();
             } else {
+                // The command list is kept; it is reused if the same Archicad process comes back
                 statusLabel.setText(error != null ? error : "Disconnected");
-                statusLabel.setTextFill(Color.RED);
+                statusLabel.setTextFill(socketClient.isReconnecting() ? Color.ORANGE : Color.RED);
                 sendButton.setDisable(true);
                 favoritesButton.setDisable(true);
-                commandManager.clearCommands();
+                runScriptButton.setDisable(true);
             }
         });
     }
@@ -403,6 +964,28 @@ public class JSONSocketConnectorApp extends Application {
     public void stop() {
         if (socketClient != null) {
             socketClient.disconnect();
+            try {
+                socketClient.getMetrics().unregister();
+            } catch (JMException e) {
+                // The JVM is exiting anyway
+            }
+        }
+        if (messageLog != null) {
+            messageLog.close();
+        }
+        if (commandCache != null) {
+            commandCache.flush();
+        }
+        if (processingExecutor != null) {
+            processingExecutor.shutdownNow();
+            validationExecutor.shutdownNow();
+        }
+        if (spillFile != null) {
+            try {
+                Files.deleteIfExists(spillFile);
+            } catch (IOException e) {
+                // deleteOnExit tries again
+            }
         }
     }
     
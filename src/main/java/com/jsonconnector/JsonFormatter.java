@@ -3,29 +3,183 @@ package com.jsonconnector;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.JsonElement;
-import com.google.gson.JsonParser;
-import com.google.gson.reflect.TypeToken;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
 
-import java.lang.reflect.Type;
-import java.util.Map;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.Writer;
+import java.nio.CharBuffer;
 
 /**
  * JSON formatting and parsing utilities
  */
 public class JsonFormatter {
-    
-    private static final Gson gson = new GsonBuilder().setPrettyPrinting().create();
+
+    // Same output as the streaming formatter: nulls kept, nothing HTML-escaped
+    private static final Gson gson = new GsonBuilder()
+        .setPrettyPrinting()
+        .disableHtmlEscaping()
+        .serializeNulls()
+        .create();
+    // Unlike JsonParser, reads with whatever leniency the reader was given
+    private static final TypeAdapter<JsonElement> TREE = gson.getAdapter(JsonElement.class);
+    private static final String INDENT = "  ";
+
     public static String format(String json) {
+        if (json == null) {
+            return null;
+        }
+        StringBuilder formatted = new StringBuilder(json.length() + json.length() / 2);
         try {
-            JsonElement element = JsonParser.parseString(json);
-            return gson.toJson(element);
-        } catch (Exception e) {
+            format(new StringReader(json), formatted);
+            return formatted.toString();
+        } catch (IOException e) {
             return json; // Return original if formatting fails
         }
     }
-    
-    public static Map<String, Object> parseToMap(String json) {
-        Type type = new TypeToken<Map<String, Object>>(){}.getType();
-        return gson.fromJson(json, type);
+
+    public static String format(JsonElement element) {
+        return gson.toJson(element);
+    }
+
+    /**
+     * Parses a single JSON value, rejecting what {@link com.google.gson.JsonParser} tolerates:
+     * comments, single quotes, unquoted names, NaN and trailing data.
+     *
+     * @throws JsonSyntaxException if the input is not exactly one valid JSON value
+     */
+    public static JsonElement parseStrict(String json) {
+        JsonReader reader = new JsonReader(new StringReader(json));
+        try {
+            JsonElement element = parseStrict(reader);
+            if (reader.peek() != JsonToken.END_DOCUMENT) {
+                throw new JsonSyntaxException("Unexpected data after JSON value");
+            }
+            return element;
+        } catch (IOException | IllegalStateException | NumberFormatException e) {
+            throw new JsonSyntaxException(e);
+        }
+    }
+
+    /**
+     * Reads the next value from a reader without making it lenient.
+     */
+    static JsonElement parseStrict(JsonReader reader) throws IOException {
+        return TREE.read(reader);
+    }
+
+    /**
+     * Pretty-prints one JSON value token by token, without building a tree or holding the
+     * formatted text in memory. Output already written stays written if the input turns
+     * out to be malformed.
+     *
+     * @param out receives the formatted text, e.g. a {@link DocumentWriter}
+     * @throws IOException if the input is not valid JSON or the output fails
+     */
+    public static void format(Reader in, Appendable out) throws IOException {
+        JsonReader reader = new JsonReader(in);
+        JsonWriter writer = new JsonWriter(out instanceof Writer ? (Writer) out : new AppendableWriter(out));
+        writer.setIndent(INDENT);
+        try {
+            copy(reader, writer);
+            if (reader.peek() != JsonToken.END_DOCUMENT) {
+                throw new IOException("Unexpected data after JSON value");
+            }
+        } catch (IllegalStateException e) {
+            throw new IOException("Malformed JSON: " + e.getMessage(), e);
+        }
+        writer.flush();
+    }
+
+    private static void copy(JsonReader reader, JsonWriter writer) throws IOException {
+        int depth = 0;
+        do {
+            switch (reader.peek()) {
+                case BEGIN_OBJECT:
+                    reader.beginObject();
+                    writer.beginObject();
+                    depth++;
+                    break;
+                case END_OBJECT:
+                    reader.endObject();
+                    writer.endObject();
+                    depth--;
+                    break;
+                case BEGIN_ARRAY:
+                    reader.beginArray();
+                    writer.beginArray();
+                    depth++;
+                    break;
+                case END_ARRAY:
+                    reader.endArray();
+                    writer.endArray();
+                    depth--;
+                    break;
+                case NAME:
+                    writer.name(reader.nextName());
+                    break;
+                case STRING:
+                    writer.value(reader.nextString());
+                    break;
+                case NUMBER:
+                    // Written verbatim so no precision is lost
+                    writer.jsonValue(reader.nextString());
+                    break;
+                case BOOLEAN:
+                    writer.value(reader.nextBoolean());
+                    break;
+                case NULL:
+                    reader.nextNull();
+                    writer.nullValue();
+                    break;
+                default:
+                    throw new IOException("Unexpected end of input");
+            }
+        } while (depth > 0);
+    }
+
+    /**
+     * Lets {@link JsonWriter} write to any Appendable.
+     */
+    private static final class AppendableWriter extends Writer {
+
+        private final Appendable out;
+
+        AppendableWriter(Appendable out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(char[] chars, int offset, int length) throws IOException {
+            out.append(CharBuffer.wrap(chars, offset, length));
+        }
+
+        @Override
+        public void write(String str, int offset, int length) throws IOException {
+            out.append(str, offset, offset + length);
+        }
+
+        @Override
+        public void write(int c) throws IOException {
+            out.append((char) c);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (out instanceof Flushable) {
+                ((Flushable) out).flush();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
     }
-}
\ No newline at end of file
+}
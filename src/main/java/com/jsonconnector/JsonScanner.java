@@ -0,0 +1,330 @@
+package com.jsonconnector;
+
+/**
+ * Single-pass JSON syntax checker (RFC 8259) that builds no tree and allocates nothing
+ * per token.
+ * <p>
+ * The scanner is a state machine with a bit stack of open containers. Its state can be
+ * saved right after a structural character ({@code { [ , :}); scanning resumed from such a
+ * checkpoint gives the same answer as scanning from the start, as long as the text before
+ * it is unchanged.
+ */
+final class JsonScanner {
+
+    // What the scanner expects next
+    static final int VALUE = 0;
+    static final int FIRST_VALUE_OR_END = 1;
+    static final int FIRST_NAME_OR_END = 2;
+    static final int NAME = 3;
+    static final int COLON = 4;
+    static final int COMMA_OR_END = 5;
+    static final int DONE = 6;
+
+    /**
+     * Receives resumable states while scanning
+     */
+    interface CheckpointSink {
+        void checkpoint(int offset, JsonScanner scanner);
+    }
+
+    private int state = VALUE;
+    private int depth;
+    private long[] stack = new long[1]; // One bit per open container, set for objects
+
+    private CheckpointSink checkpointSink;
+    private int checkpointInterval;
+    private int lastCheckpoint;
+
+    private int errorOffset = -1;
+    private String errorMessage;
+
+    void setCheckpointSink(CheckpointSink sink, int interval) {
+        this.checkpointSink = sink;
+        this.checkpointInterval = interval;
+    }
+
+    int getState() {
+        return state;
+    }
+
+    int getDepth() {
+        return depth;
+    }
+
+    long[] copyStack() {
+        long[] copy = new long[(depth >> 6) + 1];
+        System.arraycopy(stack, 0, copy, 0, Math.min(copy.length, stack.length));
+        return copy;
+    }
+
+    void restore(int state, int depth, long[] stack) {
+        this.state = state;
+        this.depth = depth;
+        this.stack = stack.clone();
+    }
+
+    int getErrorOffset() {
+        return errorOffset;
+    }
+
+    String getErrorMessage() {
+        return errorMessage;
+    }
+
+    /**
+     * Scans {@code text} from {@code from} to the end.
+     *
+     * @return {@code true} if the text is one complete, valid JSON value
+     */
+    boolean scan(CharSequence text, int from) {
+        int n = text.length();
+        int i = from;
+        lastCheckpoint = from;
+        while (i < n) {
+            char c = text.charAt(i);
+            if (c == ' ' || c == '\n' || c == '\r' || c == '\t') {
+                i++;
+                continue;
+            }
+            switch (state) {
+                case FIRST_VALUE_OR_END:
+                    if (c == ']') {
+                        i++;
+                        pop();
+                        break;
+                    }
+                    // Fall through
+                case VALUE:
+                    i = value(text, i, n, c);
+                    break;
+                case FIRST_NAME_OR_END:
+                    if (c == '}') {
+                        i++;
+                        pop();
+                        break;
+                    }
+                    // Fall through
+                case NAME:
+                    if (c != '"') {
+                        return fail(i, "Expected property name in double quotes");
+                    }
+                    i = string(text, i + 1, n);
+                    state = COLON;
+                    break;
+                case COLON:
+                    if (c != ':') {
+                        return fail(i, "Expected ':' after property name");
+                    }
+                    i++;
+                    state = VALUE;
+                    checkpoint(i);
+                    break;
+                case COMMA_OR_END:
+                    boolean inObject = inObject();
+                    if (c == ',') {
+                        i++;
+                        state = inObject ? NAME : VALUE;
+                        checkpoint(i);
+                    } else if (c == (inObject ? '}' : ']')) {
+                        i++;
+                        pop();
+                    } else {
+                        return fail(i, inObject ? "Expected ',' or '}'" : "Expected ',' or ']'");
+                    }
+                    break;
+                default:
+                    return fail(i, "Unexpected data after JSON value");
+            }
+            if (i < 0) {
+                return false;
+            }
+        }
+
+        if (state == DONE) {
+            return true;
+        }
+        return fail(n, state == VALUE && depth == 0 ? "Empty input" : "Unexpected end of input");
+    }
+
+    private int value(CharSequence text, int i, int n, char c) {
+        switch (c) {
+            case '{':
+                push(true);
+                state = FIRST_NAME_OR_END;
+                checkpoint(i + 1);
+                return i + 1;
+            case '[':
+                push(false);
+                state = FIRST_VALUE_OR_END;
+                checkpoint(i + 1);
+                return i + 1;
+            case '"':
+                i = string(text, i + 1, n);
+                break;
+            case 't':
+                i = literal(text, i, n, "true");
+                break;
+            case 'f':
+                i = literal(text, i, n, "false");
+                break;
+            case 'n':
+                i = literal(text, i, n, "null");
+                break;
+            default:
+                if (c == '-' || (c >= '0' && c <= '9')) {
+                    i = number(text, i, n);
+                } else {
+                    fail(i, "Unexpected character '" + c + "'");
+                    return -1;
+                }
+        }
+        if (i >= 0) {
+            state = depth == 0 ? DONE : COMMA_OR_END;
+        }
+        return i;
+    }
+
+    /**
+     * Scans a string body starting after the opening quote; returns the offset after the closing quote.
+     */
+    private int string(CharSequence text, int i, int n) {
+        if (i < 0) {
+            return i;
+        }
+        while (i < n) {
+            char c = text.charAt(i);
+            if (c == '"') {
+                return i + 1;
+            }
+            if (c == '\\') {
+                if (i + 1 >= n) {
+                    break;
+                }
+                char escaped = text.charAt(i + 1);
+                if (escaped == 'u') {
+                    for (int k = i + 2; k < i + 6; k++) {
+                        if (k >= n || Character.digit(text.charAt(k), 16) < 0) {
+                            fail(Math.min(k, n), "Invalid unicode escape");
+                            return -1;
+                        }
+                    }
+                    i += 6;
+                    continue;
+                }
+                if ("\"\\/bfnrt".indexOf(escaped) < 0) {
+                    fail(i, "Invalid escape sequence");
+                    return -1;
+                }
+                i += 2;
+                continue;
+            }
+            if (c < 0x20) {
+                fail(i, "Unescaped control character in string");
+                return -1;
+            }
+            i++;
+        }
+        fail(n, "Unterminated string");
+        return -1;
+    }
+
+    private int number(CharSequence text, int i, int n) {
+        int start = i;
+        if (text.charAt(i) == '-') {
+            i++;
+        }
+        if (i < n && text.charAt(i) == '0') {
+            i++;
+        } else {
+            int digits = i;
+            while (i < n && isDigit(text.charAt(i))) {
+                i++;
+            }
+            if (i == digits) {
+                fail(i, "Invalid number");
+                return -1;
+            }
+        }
+        if (i < n && text.charAt(i) == '.') {
+            int digits = ++i;
+            while (i < n && isDigit(text.charAt(i))) {
+                i++;
+            }
+            if (i == digits) {
+                fail(i, "Expected digit after decimal point");
+                return -1;
+            }
+        }
+        if (i < n && (text.charAt(i) == 'e' || text.charAt(i) == 'E')) {
+            i++;
+            if (i < n && (text.charAt(i) == '+' || text.charAt(i) == '-')) {
+                i++;
+            }
+            int digits = i;
+            while (i < n && isDigit(text.charAt(i))) {
+                i++;
+            }
+            if (i == digits) {
+                fail(i, "Expected digit in exponent");
+                return -1;
+            }
+        }
+        if (i < n && (isDigit(text.charAt(i)) || Character.isLetter(text.charAt(i)))) {
+            fail(start, "Invalid number");
+            return -1;
+        }
+        return i;
+    }
+
+    private int literal(CharSequence text, int i, int n, String literal) {
+        int length = literal.length();
+        for (int k = 0; k < length; k++) {
+            if (i + k >= n || text.charAt(i + k) != literal.charAt(k)) {
+                fail(i, "Invalid literal, expected '" + literal + "'");
+                return -1;
+            }
+        }
+        return i + length;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private boolean inObject() {
+        int index = depth - 1;
+        return (stack[index >> 6] & (1L << (index & 63))) != 0;
+    }
+
+    private void push(boolean object) {
+        int word = depth >> 6;
+        if (word >= stack.length) {
+            long[] grown = new long[stack.length * 2];
+            System.arraycopy(stack, 0, grown, 0, stack.length);
+            stack = grown;
+        }
+        long bit = 1L << (depth & 63);
+        stack[word] = object ? stack[word] | bit : stack[word] & ~bit;
+        depth++;
+    }
+
+    private void pop() {
+        depth--;
+        state = depth == 0 ? DONE : COMMA_OR_END;
+    }
+
+    private void checkpoint(int offset) {
+        if (checkpointSink != null && offset - lastCheckpoint >= checkpointInterval) {
+            lastCheckpoint = offset;
+            checkpointSink.checkpoint(offset, this);
+        }
+    }
+
+    private boolean fail(int offset, String message) {
+        if (errorOffset < 0) {
+            errorOffset = offset;
+            errorMessage = message;
+        }
+        return false;
+    }
+}
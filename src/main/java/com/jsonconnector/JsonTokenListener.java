@@ -0,0 +1,28 @@
+package com.jsonconnector;
+
+import com.google.gson.stream.JsonToken;
+
+/**
+ * Receives incoming messages as a stream of JSON tokens instead of parsed trees.
+ * <p>
+ * Used by the {@link SocketClient.Transport#STREAMING} transport so very large responses
+ * can be processed incrementally without ever holding the whole message in memory.
+ */
+public interface JsonTokenListener {
+
+    /**
+     * Called for every token of a message.
+     *
+     * @param token the token type; never {@link JsonToken#END_DOCUMENT}
+     * @param value the property name for {@code NAME}, the literal text for {@code STRING},
+     *              {@code NUMBER} and {@code BOOLEAN}, otherwise {@code null}
+     * @param depth nesting depth of the token; 0 for the message's outermost value
+     */
+    void onToken(JsonToken token, String value, int depth);
+
+    /**
+     * Called after the last token of each message.
+     */
+    default void onMessageEnd() {
+    }
+}
@@ -0,0 +1,137 @@
+package com.jsonconnector;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import javafx.collections.ObservableList;
+import javafx.scene.control.TreeItem;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tree item for a JSON value whose children are created only when it is expanded.
+ * <p>
+ * Combined with the virtualized cells of a {@link javafx.scene.control.TreeView}, the cost
+ * of showing a response depends on what is expanded, not on its size. Containers with more
+ * than {@link #PAGE_SIZE} children are split into range nodes such as {@code [0 … 99]}, so
+ * even expanding a huge array creates at most {@code PAGE_SIZE} items.
+ */
+public class JsonTreeItem extends TreeItem<String> {
+
+    public static final int PAGE_SIZE = 100;
+
+    // Long strings are cut off in the tree; the text view shows them in full
+    private static final int MAX_VALUE_LENGTH = 200;
+
+    private final JsonElement element;
+    private final int from;
+    private final int to;
+    private boolean childrenLoaded;
+
+    public static JsonTreeItem root(JsonElement json) {
+        JsonTreeItem root = new JsonTreeItem(null, json);
+        root.setExpanded(true);
+        return root;
+    }
+
+    private JsonTreeItem(String key, JsonElement element) {
+        super(label(key, element));
+        this.element = element;
+        this.from = 0;
+        this.to = childCount(element);
+    }
+
+    private JsonTreeItem(JsonElement container, int from, int to) {
+        super(String.format("[%d … %d]", from, to - 1));
+        this.element = container;
+        this.from = from;
+        this.to = to;
+    }
+
+    /**
+     * The JSON value; for a range node, the container the range belongs to.
+     */
+    public JsonElement getElement() {
+        return element;
+    }
+
+    /**
+     * Whether the children have been created yet.
+     */
+    boolean isLoaded() {
+        return childrenLoaded;
+    }
+
+    @Override
+    public boolean isLeaf() {
+        return to == from;
+    }
+
+    @Override
+    public ObservableList<TreeItem<String>> getChildren() {
+        if (!childrenLoaded) {
+            childrenLoaded = true;
+            super.getChildren().setAll(createChildren());
+        }
+        return super.getChildren();
+    }
+
+    private List<TreeItem<String>> createChildren() {
+        int span = to - from;
+        List<TreeItem<String>> children = new ArrayList<>(Math.min(span, PAGE_SIZE));
+        if (span > PAGE_SIZE) {
+            // Smallest power of PAGE_SIZE that keeps this level at no more than PAGE_SIZE ranges
+            long chunk = PAGE_SIZE;
+            while ((span + chunk - 1) / chunk > PAGE_SIZE) {
+                chunk *= PAGE_SIZE;
+            }
+            for (long start = from; start < to; start += chunk) {
+                children.add(new JsonTreeItem(element, (int) start, (int) Math.min(start + chunk, to)));
+            }
+        } else if (element.isJsonArray()) {
+            JsonArray array = element.getAsJsonArray();
+            for (int i = from; i < to; i++) {
+                children.add(new JsonTreeItem("[" + i + "]", array.get(i)));
+            }
+        } else {
+            // Object members can't be indexed, so skip to the start of the range
+            Iterator<Map.Entry<String, JsonElement>> members = element.getAsJsonObject().entrySet().iterator();
+            for (int i = 0; i < to && members.hasNext(); i++) {
+                Map.Entry<String, JsonElement> member = members.next();
+                if (i >= from) {
+                    children.add(new JsonTreeItem(member.getKey(), member.getValue()));
+                }
+            }
+        }
+        return children;
+    }
+
+    private static int childCount(JsonElement element) {
+        if (element.isJsonArray()) {
+            return element.getAsJsonArray().size();
+        }
+        if (element.isJsonObject()) {
+            return element.getAsJsonObject().size();
+        }
+        return 0;
+    }
+
+    private static String label(String key, JsonElement element) {
+        String prefix = key == null ? "" : key + ": ";
+        if (element.isJsonObject()) {
+            JsonObject object = element.getAsJsonObject();
+            return prefix + "{" + object.size() + "}";
+        }
+        if (element.isJsonArray()) {
+            return prefix + "[" + element.getAsJsonArray().size() + "]";
+        }
+        String value = element.toString();
+        if (value.length() > MAX_VALUE_LENGTH) {
+            value = value.substring(0, MAX_VALUE_LENGTH) + "…";
+        }
+        return prefix + value;
+    }
+}
@@ -1,27 +1,139 @@
 package com.jsonconnector;
 
-import com.google.gson.Gson;
-import com.google.gson.JsonSyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
 
 /**
  * JSON validation utility
+ * <p>
+ * Validation is a single tokenizer pass over the input (see {@link JsonScanner}); no
+ * object tree or per-token strings are built, so checking a large document costs little
+ * more than reading it. Input must be strict RFC 8259 JSON.
  */
 public class JsonValidator {
-    
-    private static final Gson gson = new Gson();
-    
+
     public static boolean isValidJson(String json) {
-        if (json == null || json.trim().isEmpty()) {
-            return false;
-        }
-        
-        try {
-            gson.fromJson(json, Object.class);
-            return true;
-        } catch (JsonSyntaxException e) {
-            return false;
-        } catch (Exception e) {
-            return false;
+        return json != null && validate(json).isValid();
+    }
+
+    public static Result validate(CharSequence json) {
+        JsonScanner scanner = new JsonScanner();
+        return scanner.scan(json, 0) ? Result.VALID : Result.error(json, scanner);
+    }
+
+    public static Result validate(char[] json, int offset, int length) {
+        return validate(CharBuffer.wrap(json, offset, length));
+    }
+
+    /**
+     * Validates UTF-8 encoded JSON between the buffer's position and limit without
+     * decoding it. Structural characters are all ASCII, so multi-byte sequences only ever
+     * appear inside strings; their encoding isn't checked. Offsets are byte offsets.
+     */
+    public static Result validate(ByteBuffer utf8) {
+        return validate(new ByteSequence(utf8));
+    }
+
+    /**
+     * Outcome of a validation; the location fields are only meaningful for invalid input.
+     */
+    public static final class Result {
+
+        static final Result VALID = new Result(-1, 0, 0, null);
+
+        private final int errorOffset;
+        private final int line;
+        private final int column;
+        private final String message;
+
+        private Result(int errorOffset, int line, int column, String message) {
+            this.errorOffset = errorOffset;
+            this.line = line;
+            this.column = column;
+            this.message = message;
+        }
+
+        static Result error(CharSequence text, JsonScanner scanner) {
+            int offset = scanner.getErrorOffset();
+            // Line and column are only worked out on failure
+            int line = 1;
+            int lineStart = 0;
+            for (int i = 0; i < offset; i++) {
+                if (text.charAt(i) == '\n') {
+                    line++;
+                    lineStart = i + 1;
+                }
+            }
+            return new Result(offset, line, offset - lineStart + 1, scanner.getErrorMessage());
+        }
+
+        public boolean isValid() {
+            return errorOffset < 0;
+        }
+
+        /** Offset of the first error, or -1 if valid */
+        public int getErrorOffset() {
+            return errorOffset;
+        }
+
+        /** 1-based line of the first error */
+        public int getLine() {
+            return line;
+        }
+
+        /** 1-based column of the first error */
+        public int getColumn() {
+            return column;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        @Override
+        public String toString() {
+            return isValid() ? "Valid JSON" : String.format("Line %d, column %d: %s", line, column, message);
+        }
+    }
+
+    /**
+     * Byte-per-char view of a buffer, read with absolute gets so the buffer isn't moved.
+     */
+    private static final class ByteSequence implements CharSequence {
+
+        private final ByteBuffer buffer;
+        private final int start;
+        private final int length;
+
+        ByteSequence(ByteBuffer buffer) {
+            this.buffer = buffer;
+            this.start = buffer.position();
+            this.length = buffer.remaining();
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return (char) (buffer.get(start + index) & 0xFF);
+        }
+
+        @Override
+        public CharSequence subSequence(int from, int to) {
+            ByteBuffer slice = buffer.duplicate();
+            slice.position(start + from).limit(start + to);
+            return new ByteSequence(slice);
+        }
+
+        @Override
+        public String toString() {
+            byte[] bytes = new byte[length];
+            buffer.duplicate().position(start).get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,77 @@
+package com.jsonconnector;
+
+import java.util.List;
+
+/**
+ * Updates a list in place with few, small changes instead of replacing all items.
+ * <p>
+ * Common leading and trailing items are kept. If the new items are the old ones with some
+ * removed, as when a filter narrows, only the removed runs are taken out; otherwise the
+ * differing middle part is replaced in one step. For an {@code ObservableList} this means
+ * few change events and a list view that keeps its cells, scroll position and selection.
+ */
+final class ListDiff {
+
+    // More removed runs than this are replaced in one step instead
+    private static final int MAX_REMOVED_RUNS = 32;
+
+    private ListDiff() {
+    }
+
+    static <T> void apply(List<T> target, List<? extends T> items) {
+        int start = 0;
+        int oldEnd = target.size();
+        int newEnd = items.size();
+        while (start < oldEnd && start < newEnd && target.get(start).equals(items.get(start))) {
+            start++;
+        }
+        while (oldEnd > start && newEnd > start && target.get(oldEnd - 1).equals(items.get(newEnd - 1))) {
+            oldEnd--;
+            newEnd--;
+        }
+        if (start == oldEnd && start == newEnd) {
+            return;
+        }
+        if (newEnd - start < oldEnd - start && removeRuns(target, start, oldEnd, items, newEnd)) {
+            return;
+        }
+        target.subList(start, oldEnd).clear();
+        target.addAll(start, items.subList(start, newEnd));
+    }
+
+    /**
+     * Removes the old items between {@code start} and {@code oldEnd} that are missing from the
+     * new ones, if the new ones are an ordered subset.
+     *
+     * @return {@code false} without changing anything if they are not, or there are too many runs
+     */
+    private static <T> boolean removeRuns(List<T> target, int start, int oldEnd, List<? extends T> items, int newEnd) {
+        int[] runStarts = new int[MAX_REMOVED_RUNS];
+        int[] runEnds = new int[MAX_REMOVED_RUNS];
+        int runs = 0;
+        int next = start;
+        for (int i = start; i < oldEnd; ) {
+            if (next < newEnd && target.get(i).equals(items.get(next))) {
+                i++;
+                next++;
+                continue;
+            }
+            if (runs == MAX_REMOVED_RUNS) {
+                return false;
+            }
+            runStarts[runs] = i;
+            while (i < oldEnd && (next == newEnd || !target.get(i).equals(items.get(next)))) {
+                i++;
+            }
+            runEnds[runs++] = i;
+        }
+        if (next != newEnd) {
+            return false;
+        }
+        // Back to front so earlier indices stay valid
+        for (int run = runs - 1; run >= 0; run--) {
+            target.subList(runStarts[run], runEnds[run]).clear();
+        }
+        return true;
+    }
+}
@@ -0,0 +1,183 @@
+package com.jsonconnector;
+
+import javafx.animation.Animation;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.application.Platform;
+import javafx.collections.ObservableListBase;
+import javafx.geometry.Insets;
+import javafx.geometry.Orientation;
+import javafx.scene.Scene;
+import javafx.scene.control.*;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.VBox;
+import javafx.stage.Stage;
+import javafx.util.Duration;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.Consumer;
+
+/**
+ * Window listing every message in a {@link MessageLog}
+ * <p>
+ * The list only holds indexes; each visible cell reads its preview from the log when it is
+ * drawn, so browsing hundreds of thousands of messages keeps none of them on the heap.
+ * The selected message is read and formatted in the background.
+ */
+public class MessageHistoryWindow {
+
+    private static final int PREVIEW_BYTES = 200;
+    private static final int MAX_DETAIL_CHARS = 1_000_000;
+    private static final long DETAIL_DELAY_MILLIS = 20;
+    private static final DateTimeFormatter TIME_FORMAT =
+        DateTimeFormatter.ofPattern("HH:mm:ss.SSS").withZone(ZoneId.systemDefault());
+
+    private static final ScheduledExecutorService formatExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "Message-History");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final MessageLog log;
+    private final Consumer<String> copyToEditor;
+    private final LogIndexes indexes = new LogIndexes();
+    // Skips messages the selection only passed over
+    private final Debouncer detailDebouncer = new Debouncer(formatExecutor, DETAIL_DELAY_MILLIS);
+    private Stage stage;
+    private ListView<Integer> messageList;
+    private TextArea detailArea;
+    private Timeline refresher;
+
+    /**
+     * @param copyToEditor receives the selected message, formatted, to edit and send again
+     */
+    public MessageHistoryWindow(MessageLog log, Consumer<String> copyToEditor) {
+        this.log = log;
+        this.copyToEditor = copyToEditor;
+        createWindow();
+    }
+
+    private void createWindow() {
+        stage = new Stage();
+        stage.setTitle("Message History - " + log.getDirectory());
+        stage.setWidth(800);
+        stage.setHeight(600);
+
+        messageList = new ListView<>(indexes);
+        messageList.setCellFactory(list -> new ListCell<Integer>() {
+            @Override
+            protected void updateItem(Integer index, boolean empty) {
+                super.updateItem(index, empty);
+                setText(empty || index == null ? null : describe(index));
+            }
+        });
+        messageList.getSelectionModel().selectedItemProperty().addListener((obs, oldVal, newVal) -> showDetail(newVal));
+
+        detailArea = new TextArea();
+        detailArea.setEditable(false);
+        detailArea.setStyle("-fx-font-family: monospace;");
+
+        SplitPane splitPane = new SplitPane(messageList, detailArea);
+        splitPane.setOrientation(Orientation.VERTICAL);
+
+        Button copyButton = new Button("Copy to Editor");
+        copyButton.setOnAction(e -> {
+            Integer index = messageList.getSelectionModel().getSelectedItem();
+            if (index != null) {
+                formatExecutor.execute(() -> {
+                    String formatted = JsonFormatter.format(log.read(index).getText());
+                    Platform.runLater(() -> copyToEditor.accept(formatted));
+                });
+            }
+        });
+        Button latestButton = new Button("Go to Latest");
+        latestButton.setOnAction(e -> messageList.scrollTo(indexes.size() - 1));
+
+        HBox buttonBox = new HBox(10, latestButton, copyButton);
+
+        VBox root = new VBox(10, splitPane, buttonBox);
+        root.setPadding(new Insets(10));
+        VBox.setVgrow(splitPane, Priority.ALWAYS);
+        stage.setScene(new Scene(root));
+
+        // The client appends from its own threads; pick up new messages twice a second
+        refresher = new Timeline(new KeyFrame(Duration.millis(500), e -> indexes.update(log.size())));
+        refresher.setCycleCount(Animation.INDEFINITE);
+        stage.setOnShown(e -> {
+            indexes.update(log.size());
+            refresher.play();
+        });
+        stage.setOnHidden(e -> {
+            refresher.stop();
+            detailDebouncer.cancel();
+        });
+    }
+
+    public void show() {
+        stage.show();
+        stage.toFront();
+    }
+
+    private String describe(int index) {
+        String arrow = log.direction(index) == MessageLog.Direction.SENT ? "→" : "←";
+        String preview = log.preview(index, PREVIEW_BYTES).replace('\n', ' ').replace('\r', ' ');
+        return String.format("#%d %s %s  %s", index, arrow, TIME_FORMAT.format(Instant.ofEpochMilli(log.timestamp(index))), preview);
+    }
+
+    private void showDetail(Integer index) {
+        if (index == null) {
+            detailDebouncer.cancel();
+            detailArea.clear();
+            return;
+        }
+        detailDebouncer.submit(stale -> {
+            String text = log.read(index).getText();
+            String detail = text.length() > MAX_DETAIL_CHARS
+                ? text.substring(0, MAX_DETAIL_CHARS)
+                    + String.format("%n... (%d more characters not shown)", text.length() - MAX_DETAIL_CHARS)
+                : JsonFormatter.format(text);
+            Platform.runLater(() -> {
+                if (!stale.getAsBoolean()) {
+                    detailArea.setText(detail);
+                }
+            });
+        });
+    }
+
+    /**
+     * Read-only list of the indexes 0 to size - 1, without storing them.
+     */
+    private static final class LogIndexes extends ObservableListBase<Integer> {
+
+        private int size;
+
+        @Override
+        public Integer get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException(String.valueOf(index));
+            }
+            return index;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        void update(int newSize) {
+            if (newSize <= size) {
+                return;
+            }
+            int from = size;
+            size = newSize;
+            beginChange();
+            nextAdd(from, newSize);
+            endChange();
+        }
+    }
+}
@@ -0,0 +1,341 @@
+package com.jsonconnector;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Append-only log of sent and received messages in memory-mapped segment files.
+ * <p>
+ * Message text lives in the mapped files, not on the heap; the only per-message heap cost
+ * is one {@code long} in the offset index. Each record is
+ * {@code [int length][byte direction][long timestamp][UTF-8 text]}. The direction byte is
+ * written last and a zero byte marks the end of a segment, so opening an existing log
+ * recovers every complete record and rebuilds the index.
+ * <p>
+ * A segment file starts small and is remapped at twice the size whenever it fills, up to
+ * the segment size; only then does the log move on to a new segment. A short session costs
+ * a few kilobytes on disk, not a whole preallocated segment.
+ */
+public class MessageLog implements Closeable {
+
+    public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+    private static final int INITIAL_SEGMENT_SIZE = 64 * 1024;
+
+    private static final int HEADER_SIZE = 4 + 1 + 8;
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    public enum Direction {
+        SENT, RECEIVED;
+
+        private byte code() {
+            return (byte) (ordinal() + 1);
+        }
+
+        private static Direction of(byte code) {
+            return values()[code - 1];
+        }
+    }
+
+    private final Path directory;
+    private final int segmentSize;
+    private final List<MappedByteBuffer> segments = new ArrayList<>();
+    // Segment number in the high half, position in the low half
+    private long[] index = new long[1024];
+    private int count;
+    private MappedByteBuffer active;
+    private boolean closed;
+
+    public MessageLog(Path directory) throws IOException {
+        this(directory, DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * Opens the log in {@code directory}, recovering any records already there.
+     *
+     * @param segmentSize size a segment grows to before the log starts the next one
+     */
+    public MessageLog(Path directory, int segmentSize) throws IOException {
+        if (segmentSize <= HEADER_SIZE) {
+            throw new IllegalArgumentException("segmentSize too small");
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        Files.createDirectories(directory);
+
+        List<Path> existing;
+        try (Stream<Path> files = Files.list(directory)) {
+            existing = files
+                .filter(file -> file.getFileName().toString().startsWith(SEGMENT_PREFIX))
+                .sorted()
+                .collect(Collectors.toList());
+        }
+        for (Path file : existing) {
+            MappedByteBuffer segment = map(file, Files.size(file));
+            segments.add(segment);
+            recover(segment, segments.size() - 1);
+        }
+        if (!segments.isEmpty()) {
+            active = segments.get(segments.size() - 1);
+        }
+    }
+
+    /**
+     * Appends a message.
+     *
+     * @return the message's index
+     */
+    public int append(Direction direction, String message) throws IOException {
+        return append(direction, message, System.currentTimeMillis());
+    }
+
+    synchronized int append(Direction direction, String message, long timestamp) throws IOException {
+        if (closed) {
+            throw new IOException("Message log is closed");
+        }
+        byte[] text = message.getBytes(StandardCharsets.UTF_8);
+        int recordSize = HEADER_SIZE + text.length;
+        if (active != null && active.remaining() < recordSize && active.capacity() < segmentSize) {
+            grow(recordSize);
+        }
+        if (active == null || active.remaining() < recordSize) {
+            // A message bigger than a segment gets a segment of its own
+            active = newSegment(Math.max(Math.min(INITIAL_SEGMENT_SIZE, segmentSize), recordSize));
+        }
+
+        int position = active.position();
+        active.putInt(position, text.length);
+        active.putLong(position + 5, timestamp);
+        active.position(position + HEADER_SIZE);
+        active.put(text);
+        active.put(position + 4, direction.code());
+
+        addToIndex(segments.size() - 1, position);
+        return count - 1;
+    }
+
+    public synchronized int size() {
+        return count;
+    }
+
+    public Entry read(int i) {
+        ByteBuffer record = record(i);
+        int length = record.getInt(0);
+        byte[] text = new byte[length];
+        record.position(HEADER_SIZE);
+        record.get(text);
+        return new Entry(i, Direction.of(record.get(4)), record.getLong(5), new String(text, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes at most the first {@code maxBytes} bytes of a message, e.g. for a list cell.
+     */
+    public String preview(int i, int maxBytes) {
+        ByteBuffer record = record(i);
+        byte[] text = new byte[Math.min(record.getInt(0), maxBytes)];
+        record.position(HEADER_SIZE);
+        record.get(text);
+        return new String(text, StandardCharsets.UTF_8);
+    }
+
+    public Direction direction(int i) {
+        return Direction.of(record(i).get(4));
+    }
+
+    public long timestamp(int i) {
+        return record(i).getLong(5);
+    }
+
+    /**
+     * Message length in bytes.
+     */
+    public int length(int i) {
+        return record(i).getInt(0);
+    }
+
+    /**
+     * Copies the log into an empty {@code directory} as one segment sized to fit, e.g. to
+     * keep a session as a recording; a live log leaves unused space in its last segment.
+     *
+     * @return the copy, still open
+     */
+    public MessageLog compactTo(Path directory) throws IOException {
+        int n = size();
+        long total = 0;
+        for (int i = 0; i < n; i++) {
+            total += HEADER_SIZE + length(i);
+        }
+        MessageLog copy = new MessageLog(directory, (int) Math.min(Math.max(total, HEADER_SIZE + 1), Integer.MAX_VALUE));
+        for (int i = 0; i < n; i++) {
+            Entry entry = read(i);
+            copy.append(entry.getDirection(), entry.getText(), entry.getTimestamp());
+        }
+        return copy;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Deletes all but the newest {@code keep} logs in {@code root} whose directory names start
+     * with {@code prefix}. The names must sort oldest first, e.g. by ending in a timestamp.
+     * A log that can't be deleted, e.g. because another process still maps it, is skipped.
+     */
+    public static void deleteOldLogs(Path root, String prefix, int keep) throws IOException {
+        if (!Files.isDirectory(root)) {
+            return;
+        }
+        List<Path> logs;
+        try (Stream<Path> directories = Files.list(root)) {
+            logs = directories
+                .filter(directory -> directory.getFileName().toString().startsWith(prefix) && Files.isDirectory(directory))
+                .sorted()
+                .collect(Collectors.toList());
+        }
+        for (int i = 0; i < logs.size() - keep; i++) {
+            try {
+                delete(logs.get(i));
+            } catch (IOException e) {
+                // Still in use; tried again next time
+            }
+        }
+    }
+
+    private static void delete(Path directory) throws IOException {
+        List<Path> files;
+        try (Stream<Path> listed = Files.list(directory)) {
+            files = listed.collect(Collectors.toList());
+        }
+        for (Path file : files) {
+            Files.deleteIfExists(file);
+        }
+        Files.deleteIfExists(directory);
+    }
+
+    /**
+     * Writes pending changes to disk. The mappings themselves are released by the garbage
+     * collector; Java has no portable way to unmap them earlier.
+     */
+    @Override
+    public synchronized void close() {
+        if (!closed) {
+            closed = true;
+            segments.forEach(MappedByteBuffer::force);
+        }
+    }
+
+    private ByteBuffer record(int i) {
+        ByteBuffer record;
+        synchronized (this) {
+            if (i < 0 || i >= count) {
+                throw new IndexOutOfBoundsException("No message " + i + ", log has " + count);
+            }
+            // A view of its own, so readers never move the shared buffer's position
+            record = segments.get((int) (index[i] >>> 32)).duplicate();
+            record.position((int) index[i]);
+        }
+        return record.slice();
+    }
+
+    private void recover(MappedByteBuffer segment, int segmentNumber) {
+        int position = 0;
+        while (position + HEADER_SIZE <= segment.capacity() && segment.get(position + 4) != 0) {
+            addToIndex(segmentNumber, position);
+            position += HEADER_SIZE + segment.getInt(position);
+        }
+        segment.position(position);
+    }
+
+    private void addToIndex(int segmentNumber, int position) {
+        if (count == index.length) {
+            long[] grown = new long[index.length * 2];
+            System.arraycopy(index, 0, grown, 0, count);
+            index = grown;
+        }
+        index[count++] = ((long) segmentNumber << 32) | position;
+    }
+
+    private MappedByteBuffer newSegment(int size) throws IOException {
+        MappedByteBuffer segment = map(segmentFile(segments.size()), size);
+        segments.add(segment);
+        return segment;
+    }
+
+    /**
+     * Remaps the active segment larger. Readers holding a view of the old mapping still see
+     * the records they were given.
+     */
+    private void grow(int recordSize) throws IOException {
+        int position = active.position();
+        long needed = (long) position + recordSize;
+        int size = (int) Math.min(segmentSize, Math.max((long) active.capacity() * 2, needed));
+        if (size < needed) {
+            return; // Doesn't fit even at full size; the record starts a new segment
+        }
+        int last = segments.size() - 1;
+        MappedByteBuffer grown = map(segmentFile(last), size);
+        grown.position(position);
+        segments.set(last, grown);
+        active = grown;
+    }
+
+    private Path segmentFile(int segmentNumber) {
+        return directory.resolve(String.format("%s%06d%s", SEGMENT_PREFIX, segmentNumber, SEGMENT_SUFFIX));
+    }
+
+    private static MappedByteBuffer map(Path file, long size) throws IOException {
+        // The mapping stays valid after the channel is closed
+        try (FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+    }
+
+    /**
+     * One logged message
+     */
+    public static final class Entry {
+
+        private final int index;
+        private final Direction direction;
+        private final long timestamp;
+        private final String text;
+
+        Entry(int index, Direction direction, long timestamp, String text) {
+            this.index = index;
+            this.direction = direction;
+            this.timestamp = timestamp;
+            this.text = text;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public Direction getDirection() {
+            return direction;
+        }
+
+        /** Milliseconds since the epoch */
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        public String getText() {
+            return text;
+        }
+    }
+}
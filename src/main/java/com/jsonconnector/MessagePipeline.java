@@ -0,0 +1,90 @@
+package com.jsonconnector;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+/**
+ * Parses each received message once and hands the result to the next stage.
+ * <p>
+ * Formatting and response dispatch both work from the same {@link ReceivedMessage}, so a
+ * large response is parsed a single time; formatting streams from the raw text on demand.
+ * <p>
+ * Messages longer than the parse limit are passed on unparsed, so a huge response never
+ * builds a tree; it can still be formatted by streaming, see {@link ReceivedMessage}.
+ * <p>
+ * Processing and the sink run on the given executor, which should be single-threaded to
+ * keep messages in order; the receiving thread only queues work.
+ */
+public class MessagePipeline {
+
+    private final Executor executor;
+    private final Consumer<ReceivedMessage> sink;
+    private volatile ClientMetrics metrics;
+    private volatile int maxParsedChars = Integer.MAX_VALUE;
+
+    public MessagePipeline(Consumer<ReceivedMessage> sink) {
+        this(Runnable::run, sink);
+    }
+
+    public MessagePipeline(Executor executor, Consumer<ReceivedMessage> sink) {
+        this.executor = executor;
+        this.sink = sink;
+    }
+
+    /**
+     * Records the parse time of every message in {@code metrics}.
+     */
+    public void setMetrics(ClientMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Messages longer than {@code maxChars} are not parsed.
+     */
+    public void setMaxParsedChars(int maxChars) {
+        this.maxParsedChars = maxChars;
+    }
+
+    public void accept(String message) {
+        executor.execute(() -> {
+            long start = System.nanoTime();
+            ReceivedMessage received = process(message, maxParsedChars);
+            ClientMetrics current = metrics;
+            if (current != null) {
+                current.recordParseTime(System.nanoTime() - start);
+            }
+            sink.accept(received);
+        });
+    }
+
+    /**
+     * Entry point for messages that arrive already parsed.
+     */
+    public void accept(JsonElement message) {
+        executor.execute(() -> sink.accept(new ReceivedMessage(message.toString(), message)));
+    }
+
+    public static ReceivedMessage process(String message) {
+        return process(message, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Parses {@code message} unless it is longer than {@code maxParsedChars}.
+     */
+    public static ReceivedMessage process(String message, int maxParsedChars) {
+        if (message.length() > maxParsedChars) {
+            return ReceivedMessage.unparsed(message);
+        }
+        JsonElement json;
+        try {
+            json = JsonParser.parseString(message);
+        } catch (JsonParseException e) {
+            return new ReceivedMessage(message, null);
+        }
+        return new ReceivedMessage(message, json);
+    }
+}
@@ -0,0 +1,130 @@
+package com.jsonconnector;
+
+import javafx.animation.Animation;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.beans.property.ReadOnlyStringWrapper;
+import javafx.geometry.Insets;
+import javafx.scene.Scene;
+import javafx.scene.control.*;
+import javafx.scene.layout.GridPane;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.VBox;
+import javafx.stage.Stage;
+import javafx.util.Duration;
+
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Live view of a {@link ClientMetrics}: traffic, queue depth, parse and render times, and
+ * round-trip latency per command
+ */
+public class MetricsWindow {
+
+    private final ClientMetrics metrics;
+    private Stage stage;
+    private Label trafficLabel;
+    private Label queueLabel;
+    private Label roundTripLabel;
+    private Label parseLabel;
+    private Label renderLabel;
+    private TableView<Map.Entry<String, LatencyHistogram>> commandTable;
+    private Timeline refresher;
+
+    public MetricsWindow(ClientMetrics metrics) {
+        this.metrics = metrics;
+        createWindow();
+    }
+
+    private void createWindow() {
+        stage = new Stage();
+        stage.setTitle("Client Metrics");
+        stage.setWidth(700);
+        stage.setHeight(450);
+
+        trafficLabel = new Label();
+        queueLabel = new Label();
+        roundTripLabel = new Label();
+        parseLabel = new Label();
+        renderLabel = new Label();
+
+        GridPane summary = new GridPane();
+        summary.setHgap(10);
+        summary.setVgap(5);
+        summary.addRow(0, new Label("Traffic:"), trafficLabel);
+        summary.addRow(1, new Label("Queues:"), queueLabel);
+        summary.addRow(2, new Label("Round trip:"), roundTripLabel);
+        summary.addRow(3, new Label("Parse:"), parseLabel);
+        summary.addRow(4, new Label("Render:"), renderLabel);
+
+        commandTable = new TableView<>();
+        commandTable.setColumnResizePolicy(TableView.CONSTRAINED_RESIZE_POLICY);
+        commandTable.setPlaceholder(new Label("No requests answered yet"));
+        commandTable.getColumns().add(column("Command", Map.Entry::getKey));
+        commandTable.getColumns().add(column("Count", entry -> String.valueOf(entry.getValue().getCount())));
+        commandTable.getColumns().add(column("p50 ms", entry -> millis(entry.getValue().getMillisAtPercentile(50))));
+        commandTable.getColumns().add(column("p90 ms", entry -> millis(entry.getValue().getMillisAtPercentile(90))));
+        commandTable.getColumns().add(column("p99 ms", entry -> millis(entry.getValue().getMillisAtPercentile(99))));
+        commandTable.getColumns().add(column("Max ms", entry -> millis(entry.getValue().getMaxMillis())));
+
+        Button resetButton = new Button("Reset");
+        resetButton.setOnAction(e -> {
+            metrics.reset();
+            refresh();
+        });
+
+        VBox root = new VBox(10, summary, commandTable, new HBox(10, resetButton));
+        root.setPadding(new Insets(10));
+        VBox.setVgrow(commandTable, Priority.ALWAYS);
+        stage.setScene(new Scene(root));
+
+        // Metrics are recorded on the client's threads; sample them twice a second
+        refresher = new Timeline(new KeyFrame(Duration.millis(500), e -> refresh()));
+        refresher.setCycleCount(Animation.INDEFINITE);
+        stage.setOnShown(e -> {
+            refresh();
+            refresher.play();
+        });
+        stage.setOnHidden(e -> refresher.stop());
+    }
+
+    public void show() {
+        stage.show();
+        stage.toFront();
+    }
+
+    private void refresh() {
+        trafficLabel.setText(String.format("%d sent (%s), %d received (%s), %d failed requests",
+            metrics.getMessagesSent(), bytes(metrics.getBytesSent()),
+            metrics.getMessagesReceived(), bytes(metrics.getBytesReceived()), metrics.getFailedRequests()));
+        queueLabel.setText(String.format("%d waiting to be sent (max %d), %d awaiting a response",
+            metrics.getPendingSendCount(), metrics.getMaxPendingSendCount(), metrics.getOutstandingRequestCount()));
+        roundTripLabel.setText(metrics.getRoundTrip().toString());
+        parseLabel.setText(metrics.getParseTime().toString());
+        renderLabel.setText(metrics.getRenderTime().toString());
+        commandTable.getItems().setAll(metrics.getRoundTripByCommand().entrySet());
+    }
+
+    private static TableColumn<Map.Entry<String, LatencyHistogram>, String> column(
+            String title, Function<Map.Entry<String, LatencyHistogram>, String> value) {
+        TableColumn<Map.Entry<String, LatencyHistogram>, String> column = new TableColumn<>(title);
+        column.setCellValueFactory(cell -> new ReadOnlyStringWrapper(value.apply(cell.getValue())));
+        return column;
+    }
+
+    private static String millis(double millis) {
+        return String.format("%.2f", millis);
+    }
+
+    private static String bytes(long bytes) {
+        if (bytes < 1024) {
+            return bytes + " B";
+        }
+        if (bytes < 1024 * 1024) {
+            return String.format("%.1f KB", bytes / 1024.0);
+        }
+        return String.format("%.1f MB", bytes / (1024.0 * 1024.0));
+    }
+}
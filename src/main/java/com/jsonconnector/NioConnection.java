@@ -0,0 +1,334 @@
+package com.jsonconnector;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Non-blocking connection driven by an {@link NioEventLoop}.
+ * <p>
+ * Newline-delimited messages are framed by scanning the loop's direct read buffer; bytes
+ * are copied out once per complete message and decoded to a String only at that point.
+ */
+class NioConnection implements Connection {
+
+    private static final int INITIAL_FRAME_CAPACITY = 8 * 1024;
+    private static final int RETAINED_FRAME_CAPACITY = 1024 * 1024;
+    // Bounds the memory a peer that never sends a newline can make us hold
+    static final int MAX_FRAME_BYTES = 256 * 1024 * 1024;
+    private static final int MAX_WRITE_BATCH = 64;
+    private static final ByteBuffer NEWLINE = ByteBuffer.wrap(new byte[] {'\n'}).asReadOnlyBuffer();
+
+    private final NioEventLoop loop;
+    private final SocketChannel channel;
+    private final BlockingQueue<String> outbound;
+    private final Listener listener;
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private volatile boolean open = true;
+
+    // Loop thread state
+    private SelectionKey key;
+    private CompletableFuture<Connection> pendingConnect; // Set before the connect task is queued
+    private ByteBuffer[] pendingWrite;
+    private int pendingOffset;
+    private byte[] frame = new byte[INITIAL_FRAME_CAPACITY];
+    private int frameLength;
+
+    private NioConnection(NioEventLoop loop, SocketChannel channel, int sendQueueCapacity, Listener listener) {
+        this.loop = loop;
+        this.channel = channel;
+        this.outbound = new ArrayBlockingQueue<>(sendQueueCapacity);
+        this.listener = listener;
+    }
+
+    /**
+     * Starts a non-blocking connect; the loop completes the future once the handshake is done.
+     * <p>
+     * Only the host name lookup happens on the calling thread.
+     */
+    static CompletableFuture<Connection> connect(NioEventLoop loop, String hostname, int port,
+                                                 int sendQueueCapacity, Listener listener) throws IOException {
+        SocketChannel channel = SocketChannel.open();
+        CompletableFuture<Connection> connected = new CompletableFuture<>();
+        try {
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            channel.setOption(StandardSocketOptions.SO_KEEPALIVE, true);
+            channel.configureBlocking(false);
+            NioConnection connection = new NioConnection(loop, channel, sendQueueCapacity, listener);
+            if (channel.connect(new InetSocketAddress(hostname, port))) {
+                connected.complete(connection);
+            } else {
+                connection.pendingConnect = connected;
+                loop.execute(connection, connection::awaitConnect);
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        return connected;
+    }
+
+    private void awaitConnect() {
+        try {
+            key = channel.register(loop.selector(), SelectionKey.OP_CONNECT, this);
+        } catch (IOException e) {
+            handleFailure(e);
+        }
+    }
+
+    void handleConnect() {
+        try {
+            channel.finishConnect();
+            // No interest until start(), so the loop doesn't spin on OP_CONNECT
+            key.interestOps(0);
+        } catch (IOException e) {
+            handleFailure(e);
+            return;
+        }
+        CompletableFuture<Connection> connected = pendingConnect;
+        pendingConnect = null;
+        connected.complete(this);
+    }
+
+    @Override
+    public void start() {
+        try {
+            loop.execute(this, this::register);
+        } catch (IllegalStateException e) {
+            fail("Connection failed: " + e.getMessage());
+        }
+    }
+
+    private void register() {
+        try {
+            key = channel.register(loop.selector(), SelectionKey.OP_READ, this);
+            // Messages queued before registration
+            if (!outbound.isEmpty()) {
+                flushScheduled.set(true);
+                flush();
+            }
+        } catch (IOException e) {
+            fail("Connection failed: " + e.getMessage());
+        }
+    }
+
+    void handleRead() {
+        ByteBuffer buffer = loop.readBuffer();
+        try {
+            int read;
+            do {
+                buffer.clear();
+                read = channel.read(buffer);
+                if (read < 0) {
+                    fail("Connection closed by server");
+                    return;
+                }
+                buffer.flip();
+                if (!frameMessages(buffer)) {
+                    handleFailure(new IOException("Message exceeds " + MAX_FRAME_BYTES + " bytes"));
+                    return;
+                }
+            } while (read == buffer.capacity() && open);
+        } catch (IOException e) {
+            fail("Connection lost: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Splits the buffer on '\n', delivering each complete message and keeping the tail.
+     *
+     * @return {@code false} if a message grew past {@link #MAX_FRAME_BYTES}
+     */
+    private boolean frameMessages(ByteBuffer buffer) {
+        int start = buffer.position();
+        int limit = buffer.limit();
+        for (int i = start; i < limit; i++) {
+            if (buffer.get(i) == '\n') {
+                if (!appendToFrame(buffer, start, i)) {
+                    return false;
+                }
+                deliverFrame();
+                start = i + 1;
+            }
+        }
+        return start == limit || appendToFrame(buffer, start, limit);
+    }
+
+    private boolean appendToFrame(ByteBuffer buffer, int from, int to) {
+        int length = to - from;
+        if (length == 0) {
+            return true;
+        }
+        if (length > MAX_FRAME_BYTES - frameLength) {
+            return false;
+        }
+        if (frameLength + length > frame.length) {
+            int capacity = (int) Math.min((long) frame.length * 2, MAX_FRAME_BYTES);
+            byte[] grown = new byte[Math.max(capacity, frameLength + length)];
+            System.arraycopy(frame, 0, grown, 0, frameLength);
+            frame = grown;
+        }
+        int limit = buffer.limit();
+        buffer.limit(to).position(from);
+        buffer.get(frame, frameLength, length);
+        buffer.limit(limit);
+        frameLength += length;
+        return true;
+    }
+
+    private void deliverFrame() {
+        int length = frameLength;
+        if (length > 0 && frame[length - 1] == '\r') {
+            length--;
+        }
+        frameLength = 0;
+        if (length > 0) {
+            listener.onMessage(new String(frame, 0, length, StandardCharsets.UTF_8));
+        }
+        if (frame.length > RETAINED_FRAME_CAPACITY) {
+            frame = new byte[INITIAL_FRAME_CAPACITY];
+        }
+    }
+
+    void handleWrite() {
+        flush();
+    }
+
+    /**
+     * Writes queued messages until the queue is empty or the socket buffer is full.
+     */
+    private void flush() {
+        do {
+            if (!writeQueued()) {
+                return; // OP_WRITE will resume the flush
+            }
+            flushScheduled.set(false);
+        } while (!outbound.isEmpty() && flushScheduled.compareAndSet(false, true));
+    }
+
+    private boolean writeQueued() {
+        if (key == null) {
+            return false; // register() flushes once the channel is registered
+        }
+        if (!key.isValid()) {
+            outbound.clear();
+            return true;
+        }
+        try {
+            while (true) {
+                if (pendingWrite == null) {
+                    pendingWrite = nextWriteBatch();
+                    pendingOffset = 0;
+                    if (pendingWrite == null) {
+                        break;
+                    }
+                }
+                channel.write(pendingWrite, pendingOffset, pendingWrite.length - pendingOffset);
+                while (pendingOffset < pendingWrite.length && !pendingWrite[pendingOffset].hasRemaining()) {
+                    pendingOffset++;
+                }
+                if (pendingOffset < pendingWrite.length) {
+                    key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                    return false;
+                }
+                pendingWrite = null;
+            }
+            key.interestOps(SelectionKey.OP_READ);
+        } catch (IOException e) {
+            fail("Send failed: " + e.getMessage());
+        }
+        return true;
+    }
+
+    /**
+     * Takes up to {@link #MAX_WRITE_BATCH} queued messages for one gathering write.
+     */
+    private ByteBuffer[] nextWriteBatch() {
+        String first = outbound.poll();
+        if (first == null) {
+            return null;
+        }
+        int count = Math.min(outbound.size() + 1, MAX_WRITE_BATCH);
+        ByteBuffer[] buffers = new ByteBuffer[count * 2];
+        String message = first;
+        int filled = 0;
+        while (message != null) {
+            buffers[filled++] = ByteBuffer.wrap(message.getBytes(StandardCharsets.UTF_8));
+            buffers[filled++] = NEWLINE.duplicate();
+            message = filled < buffers.length ? outbound.poll() : null;
+        }
+        if (filled < buffers.length) {
+            ByteBuffer[] trimmed = new ByteBuffer[filled];
+            System.arraycopy(buffers, 0, trimmed, 0, filled);
+            return trimmed;
+        }
+        return buffers;
+    }
+
+    /**
+     * Fails the connection after an unexpected error on the loop thread, or the pending
+     * connect if the handshake hasn't finished.
+     */
+    void handleFailure(Exception e) {
+        CompletableFuture<Connection> connected = pendingConnect;
+        pendingConnect = null;
+        String error = "Connection failed: " + (e.getMessage() != null ? e.getMessage() : e.toString());
+        if (connected != null) {
+            close();
+            connected.completeExceptionally(e);
+        } else {
+            fail(error);
+            close();
+        }
+    }
+
+    private void fail(String error) {
+        if (open) {
+            listener.onClosed(this, error);
+        }
+    }
+
+    @Override
+    public boolean send(String message) {
+        if (!outbound.offer(message)) {
+            return false;
+        }
+        if (flushScheduled.compareAndSet(false, true)) {
+            try {
+                loop.execute(this, this::flush);
+            } catch (IllegalStateException e) {
+                fail("Send failed: " + e.getMessage());
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int pendingSendCount() {
+        return outbound.size();
+    }
+
+    @Override
+    public boolean isOpen() {
+        return open && channel.isOpen();
+    }
+
+    @Override
+    public void close() {
+        open = false;
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // Ignore close errors
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.jsonconnector;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Single selector thread driving any number of non-blocking connections.
+ * <p>
+ * All channel I/O for the registered {@link NioConnection}s happens on this thread, so
+ * the direct read buffer is shared between them.
+ */
+public class NioEventLoop implements Closeable {
+
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    private static NioEventLoop defaultLoop;
+
+    private final Selector selector;
+    private final Thread thread;
+    private final Queue<Task> tasks = new ConcurrentLinkedQueue<>();
+    private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+    private volatile boolean running = true;
+
+    public NioEventLoop(String name) {
+        try {
+            this.selector = Selector.open();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open selector", e);
+        }
+        this.thread = new Thread(this::run, name);
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Process-wide loop used by SocketClients that don't supply their own.
+     * <p>
+     * A loop that stopped after a selector failure is replaced.
+     */
+    public static synchronized NioEventLoop defaultLoop() {
+        if (defaultLoop == null || !defaultLoop.running) {
+            defaultLoop = new NioEventLoop("SocketClient-NIO");
+        }
+        return defaultLoop;
+    }
+
+    /**
+     * Runs a task for {@code connection} on the loop thread; if the task throws, the
+     * connection fails.
+     *
+     * @throws IllegalStateException if the loop has stopped
+     */
+    void execute(NioConnection connection, Runnable task) {
+        if (!running) {
+            throw new IllegalStateException("NIO event loop stopped");
+        }
+        tasks.add(new Task(connection, task));
+        selector.wakeup();
+    }
+
+    Selector selector() {
+        return selector;
+    }
+
+    /**
+     * Reusable direct buffer for channel reads; only valid on the loop thread.
+     */
+    ByteBuffer readBuffer() {
+        return readBuffer;
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                selector.select();
+            } catch (IOException | RuntimeException e) {
+                if (running) {
+                    stop(e);
+                }
+                return;
+            }
+            runTasks();
+
+            Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+            while (keys.hasNext()) {
+                SelectionKey key = keys.next();
+                keys.remove();
+                NioConnection connection = (NioConnection) key.attachment();
+                try {
+                    if (key.isConnectable()) {
+                        connection.handleConnect();
+                    }
+                    if (key.isValid() && key.isReadable()) {
+                        connection.handleRead();
+                    }
+                    if (key.isValid() && key.isWritable()) {
+                        connection.handleWrite();
+                    }
+                } catch (CancelledKeyException e) {
+                    // Connection closed while its key was selected
+                } catch (RuntimeException e) {
+                    failConnection(connection, e);
+                }
+            }
+        }
+    }
+
+    private void runTasks() {
+        Task task;
+        while ((task = tasks.poll()) != null) {
+            try {
+                task.action.run();
+            } catch (RuntimeException e) {
+                failConnection(task.connection, e);
+            }
+        }
+    }
+
+    private void failConnection(NioConnection connection, RuntimeException e) {
+        try {
+            connection.handleFailure(e);
+        } catch (RuntimeException handlerFailure) {
+            // The failure handling itself threw; surface it without ending the loop
+            thread.getUncaughtExceptionHandler().uncaughtException(thread, handlerFailure);
+        }
+    }
+
+    /**
+     * Fails every registered connection after the selector broke; the loop can't continue.
+     */
+    private void stop(Exception e) {
+        running = false;
+        IllegalStateException failure = new IllegalStateException("NIO event loop failed: " + e.getMessage(), e);
+        for (SelectionKey key : selector.keys()) {
+            failConnection((NioConnection) key.attachment(), failure);
+        }
+        // Connections whose tasks will never run, e.g. connects not yet registered
+        Task task;
+        while ((task = tasks.poll()) != null) {
+            failConnection(task.connection, failure);
+        }
+        try {
+            selector.close();
+        } catch (IOException closeError) {
+            // Ignore close errors
+        }
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        selector.wakeup();
+        try {
+            thread.join(1000);
+            selector.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            // Ignore close errors
+        }
+    }
+
+    private static final class Task {
+        final NioConnection connection;
+        final Runnable action;
+
+        Task(NioConnection connection, Runnable action) {
+            this.connection = connection;
+            this.action = action;
+        }
+    }
+}
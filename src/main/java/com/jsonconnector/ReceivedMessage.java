@@ -0,0 +1,85 @@
+package com.jsonconnector;
+
+import com.google.gson.JsonElement;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+/**
+ * A received message, parsed once and shared by every processing stage
+ * <p>
+ * A message too large to parse up front keeps only its text; it is formatted by streaming
+ * and {@link #getJson()} is {@code null}.
+ */
+public class ReceivedMessage {
+
+    private final String raw;
+    private final JsonElement json;
+    private final boolean parsed;
+    private volatile String formatted;
+
+    ReceivedMessage(String raw, JsonElement json) {
+        this(raw, json, true);
+    }
+
+    private ReceivedMessage(String raw, JsonElement json, boolean parsed) {
+        this.raw = raw;
+        this.json = json;
+        this.parsed = parsed;
+    }
+
+    /**
+     * A message that was deliberately not parsed, e.g. because it is too large.
+     */
+    static ReceivedMessage unparsed(String raw) {
+        return new ReceivedMessage(raw, null, false);
+    }
+
+    /**
+     * The message as received; serialized from {@link #getJson()} for pre-parsed messages.
+     */
+    public String getRaw() {
+        return raw;
+    }
+
+    /**
+     * The parsed message, or {@code null} if it is not valid JSON or was not parsed.
+     */
+    public JsonElement getJson() {
+        return json;
+    }
+
+    /**
+     * Whether parsing was attempted; {@code false} for messages too large to parse up front.
+     */
+    public boolean isParsed() {
+        return parsed;
+    }
+
+    /**
+     * Pretty-printed text for display; the raw text if the message is not valid JSON.
+     * Formatted on first use.
+     */
+    public String getFormatted() {
+        String text = formatted;
+        if (text == null) {
+            text = json != null || !parsed ? JsonFormatter.format(raw) : raw;
+            formatted = text;
+        }
+        return text;
+    }
+
+    /**
+     * Streams the pretty-printed text to {@code out} without keeping a formatted copy.
+     *
+     * @throws IOException if an unparsed message turns out not to be valid JSON
+     */
+    public void writeFormatted(Appendable out) throws IOException {
+        String text = formatted;
+        if (text != null || (parsed && json == null)) {
+            out.append(text != null ? text : raw);
+        } else {
+            JsonFormatter.format(new StringReader(raw), out);
+        }
+    }
+}
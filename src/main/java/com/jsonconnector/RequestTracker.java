@@ -0,0 +1,411 @@
+package com.jsonconnector;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * Matches responses to outstanding requests.
+ * <p>
+ * In {@link SocketClient.Correlation#IN_ORDER} mode every request, including fire-and-forget
+ * ones, takes a slot, and each response belongs to the oldest slot. Slots of timed-out
+ * requests stay queued so their late responses are consumed instead of shifting the order.
+ * In {@link SocketClient.Correlation#ID} mode async requests get an {@code id} field that the
+ * server echoes back; fire-and-forget requests aren't tracked. An async request whose id is
+ * already pending fails at once, so the earlier request keeps its response.
+ * <p>
+ * The time from sending a tracked request to matching its response is recorded in the
+ * client's {@link ClientMetrics}, per command name.
+ */
+class RequestTracker {
+
+    static final String ID_FIELD = "id";
+
+    private final SocketClient.Correlation correlation;
+    private final int maxOutstanding;
+    private final Semaphore outstanding;
+    private final Deque<Pending> inOrder = new ArrayDeque<>();
+    private final Map<String, Pending> byId = new HashMap<>();
+    private final ClientMetrics metrics;
+    // Held while reserving a slot and sending, so slots are in send order; the tracker's own
+    // lock is only held for the reservation, so responses are never held up by a slow send
+    private final Object sendLock = new Object();
+    private long nextId = 1;
+
+    RequestTracker(SocketClient.Correlation correlation, int maxOutstanding, ClientMetrics metrics) {
+        this.correlation = correlation;
+        this.maxOutstanding = maxOutstanding;
+        this.outstanding = new Semaphore(maxOutstanding);
+        this.metrics = metrics;
+    }
+
+    /**
+     * A request awaiting its response; {@code future} is null for fire-and-forget requests.
+     */
+    static final class Pending {
+        final CompletableFuture<JsonElement> future;
+        final String id;
+        final String command;
+        final String request;
+        final boolean heartbeat;
+        final long sentNanos = System.nanoTime();
+
+        Pending(CompletableFuture<JsonElement> future, String id, String command, String request, boolean heartbeat) {
+            this.future = future;
+            this.id = id;
+            this.command = command;
+            this.request = request;
+            this.heartbeat = heartbeat;
+        }
+    }
+
+    /**
+     * Sends a tracked request through {@code sender}.
+     *
+     * @param sender writes the final request text, returning {@code false} if it was rejected
+     */
+    CompletableFuture<JsonElement> sendAsync(String json, long timeout, TimeUnit unit, Predicate<String> sender) {
+        return sendAsync(json, timeout, unit, sender, false);
+    }
+
+    /**
+     * @param heartbeat keeps the response out of the message log and the request from being re-sent
+     */
+    CompletableFuture<JsonElement> sendAsync(String json, long timeout, TimeUnit unit, Predicate<String> sender,
+                                             boolean heartbeat) {
+        CompletableFuture<JsonElement> future = new CompletableFuture<>();
+        if (!outstanding.tryAcquire()) {
+            future.completeExceptionally(new IllegalStateException(
+                "Too many outstanding requests (limit " + maxOutstanding + ")"));
+            return future;
+        }
+
+        JsonObject object = null;
+        if (correlation == SocketClient.Correlation.ID) {
+            try {
+                object = JsonParser.parseString(json).getAsJsonObject();
+            } catch (JsonParseException | IllegalStateException e) {
+                outstanding.release();
+                future.completeExceptionally(new IllegalArgumentException("Request must be a JSON object", e));
+                return future;
+            }
+            if (object.has(ID_FIELD) && idOf(object) == null) {
+                outstanding.release();
+                future.completeExceptionally(new IllegalArgumentException("Request id must be a string or a number"));
+                return future;
+            }
+        }
+
+        Pending pending;
+        synchronized (sendLock) {
+            synchronized (this) {
+                if (object != null) {
+                    if (!object.has(ID_FIELD)) {
+                        // Skip ids the caller chose for requests still pending
+                        while (byId.containsKey(Long.toString(nextId))) {
+                            nextId++;
+                        }
+                        object.addProperty(ID_FIELD, nextId++);
+                    }
+                    String id = idOf(object);
+                    if (byId.containsKey(id)) {
+                        outstanding.release();
+                        future.completeExceptionally(new IllegalArgumentException(
+                            "A request with id " + id + " is already pending"));
+                        return future;
+                    }
+                    pending = new Pending(future, id, ClientMetrics.commandName(json), object.toString(), heartbeat);
+                } else {
+                    pending = new Pending(future, null, ClientMetrics.commandName(json), json, heartbeat);
+                }
+                reserve(pending);
+            }
+            if (!sender.test(pending.request)) {
+                release(pending);
+                outstanding.release();
+                future.completeExceptionally(new IOException("Request could not be queued"));
+                return future;
+            }
+        }
+
+        // The caller gets its own future, completed only once the permit is free: dependents
+        // run newest first, so a callback sending the next request would otherwise be refused
+        CompletableFuture<JsonElement> result = new CompletableFuture<>();
+        future.orTimeout(timeout, unit).whenComplete((response, error) -> {
+            if (pending.id != null && error != null) {
+                synchronized (this) {
+                    byId.remove(pending.id, pending);
+                }
+            }
+            outstanding.release();
+            if (error != null) {
+                result.completeExceptionally(error);
+            } else {
+                result.complete(response);
+            }
+        });
+        result.whenComplete((response, error) -> {
+            if (result.isCancelled()) {
+                future.cancel(false);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Sends an untracked request, keeping its response slot in in-order mode.
+     */
+    boolean send(String json, Predicate<String> sender) {
+        if (correlation == SocketClient.Correlation.ID) {
+            return sender.test(json);
+        }
+        Pending slot = new Pending(null, null, ClientMetrics.commandName(json), json, false);
+        synchronized (sendLock) {
+            synchronized (this) {
+                reserve(slot);
+            }
+            if (!sender.test(json)) {
+                release(slot);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Completes the request this response belongs to.
+     *
+     * @param log records the response before its request completes; not run for heartbeats
+     * @return {@code false} if the response should go to the plain message handler
+     */
+    boolean onResponse(String message, Runnable log) {
+        return onResponse(message, null, log);
+    }
+
+    /**
+     * Same as {@link #onResponse(String, Runnable)} for a response that is already parsed.
+     */
+    boolean onResponse(JsonElement message, Runnable log) {
+        return onResponse(null, message, log);
+    }
+
+    private boolean onResponse(String raw, JsonElement parsed, Runnable log) {
+        Pending pending = null;
+        synchronized (this) {
+            if (correlation == SocketClient.Correlation.ID) {
+                if (!byId.isEmpty()) {
+                    if (parsed == null) {
+                        try {
+                            parsed = parse(raw);
+                        } catch (JsonParseException e) {
+                            // Not a response to any request
+                        }
+                    }
+                    String id = parsed != null && parsed.isJsonObject() ? idOf(parsed.getAsJsonObject()) : null;
+                    pending = id != null ? byId.remove(id) : null;
+                }
+            } else {
+                pending = inOrder.pollFirst();
+            }
+        }
+
+        if (pending == null || !pending.heartbeat) {
+            log.run();
+        }
+        if (pending != null) {
+            metrics.recordRoundTrip(pending.command, System.nanoTime() - pending.sentNanos);
+        }
+        if (pending == null || pending.future == null) {
+            return false;
+        }
+        if (pending.future.isDone()) {
+            return true; // Late response to a timed-out request
+        }
+        try {
+            pending.future.complete(parsed != null ? parsed : parse(raw));
+        } catch (JsonParseException e) {
+            pending.future.completeExceptionally(e);
+        }
+        return true;
+    }
+
+    /**
+     * Consumes the in-order slot of a response that was streamed to a token listener.
+     * Its request, if async, completes with {@link JsonNull}.
+     */
+    void onStreamed() {
+        if (correlation == SocketClient.Correlation.ID) {
+            return;
+        }
+        Pending pending;
+        synchronized (this) {
+            pending = inOrder.pollFirst();
+        }
+        if (pending != null) {
+            metrics.recordRoundTrip(pending.command, System.nanoTime() - pending.sentNanos);
+        }
+        if (pending != null && pending.future != null) {
+            pending.future.complete(JsonNull.INSTANCE);
+        }
+    }
+
+    private JsonElement parse(String raw) {
+        long start = System.nanoTime();
+        // Strict, so every transport rejects the same malformed responses
+        JsonElement parsed = JsonFormatter.parseStrict(raw);
+        metrics.recordParseTime(System.nanoTime() - start);
+        return parsed;
+    }
+
+    /**
+     * Fails every outstanding request, e.g. when the connection is lost.
+     */
+    void failAll(String reason) {
+        List<Pending> failed;
+        synchronized (this) {
+            failed = new ArrayList<>(inOrder);
+            failed.addAll(byId.values());
+            inOrder.clear();
+            byId.clear();
+        }
+        fail(failed, reason);
+    }
+
+    static void fail(List<Pending> requests, String reason) {
+        for (Pending pending : requests) {
+            if (pending.future != null) {
+                pending.future.completeExceptionally(new IOException(reason));
+            }
+        }
+    }
+
+    /**
+     * Removes every request still waiting for its response, oldest first, so it can be
+     * {@link #resend re-sent} on a new connection. Slots of timed-out requests are dropped,
+     * and heartbeats fail since they only probed the lost connection.
+     */
+    List<Pending> takeUnanswered() {
+        List<Pending> unanswered = new ArrayList<>();
+        synchronized (this) {
+            for (Pending pending : inOrder) {
+                if (pending.future == null || !pending.future.isDone()) {
+                    unanswered.add(pending);
+                }
+            }
+            unanswered.addAll(byId.values());
+            inOrder.clear();
+            byId.clear();
+        }
+        List<Pending> heartbeats = new ArrayList<>();
+        unanswered.removeIf(pending -> pending.heartbeat && heartbeats.add(pending));
+        fail(heartbeats, "Connection lost");
+        unanswered.sort(Comparator.comparingLong(pending -> pending.sentNanos));
+        return unanswered;
+    }
+
+    /**
+     * Sends requests taken from a previous connection's tracker again, keeping their futures.
+     * Their latency still counts from the first send.
+     */
+    void resend(List<Pending> requests, Predicate<String> sender) {
+        for (Pending pending : requests) {
+            boolean sent;
+            synchronized (sendLock) {
+                synchronized (this) {
+                    // A request sent on the new connection may already have taken the id
+                    sent = pending.id == null || !byId.containsKey(pending.id);
+                    if (sent) {
+                        reserve(pending);
+                    }
+                }
+                if (sent && !sender.test(pending.request)) {
+                    release(pending);
+                    sent = false;
+                }
+            }
+            if (!sent) {
+                fail(Collections.singletonList(pending), "Request could not be re-sent");
+            } else if (pending.id != null) {
+                pending.future.whenComplete((result, error) -> {
+                    if (error != null) {
+                        synchronized (this) {
+                            byId.remove(pending.id, pending);
+                        }
+                    }
+                });
+            }
+        }
+    }
+
+    /**
+     * Whether no request, tracked or not, is waiting for a response.
+     */
+    synchronized boolean isIdle() {
+        return inOrder.isEmpty() && byId.isEmpty();
+    }
+
+    synchronized int outstandingCount() {
+        int count = byId.size();
+        for (Pending pending : inOrder) {
+            if (pending.future != null && !pending.future.isDone()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Adds the request's response slot; called with the lock held, before it is sent.
+     */
+    private void reserve(Pending pending) {
+        if (pending.id != null) {
+            byId.put(pending.id, pending);
+        } else {
+            inOrder.addLast(pending);
+        }
+    }
+
+    /**
+     * Undoes {@link #reserve} for a request that could not be sent.
+     */
+    private synchronized void release(Pending pending) {
+        if (pending.id != null) {
+            byId.remove(pending.id, pending);
+        } else {
+            inOrder.removeLastOccurrence(pending);
+        }
+    }
+
+    /**
+     * @return the normalized id, or {@code null} if there is none or it is not a string or number
+     */
+    private static String idOf(JsonObject object) {
+        JsonElement id = object.get(ID_FIELD);
+        if (id == null || !id.isJsonPrimitive()) {
+            return null;
+        }
+        JsonPrimitive primitive = id.getAsJsonPrimitive();
+        if (primitive.isNumber()) {
+            // Normalize numbers so 7 and 7.0 match
+            return primitive.getAsBigDecimal().stripTrailingZeros().toPlainString();
+        }
+        return primitive.isString() ? primitive.getAsString() : null;
+    }
+}
@@ -0,0 +1,68 @@
+package com.jsonconnector;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Runs tasks one at a time, in submission order, on a shared executor.
+ * <p>
+ * Tasks are drained in small batches so one busy queue can't starve others sharing
+ * the same pool. A task that throws is passed to the error handler and the queue keeps
+ * draining.
+ */
+class SerialExecutor implements Executor {
+
+    private static final int BATCH_SIZE = 64;
+
+    private final Executor delegate;
+    private final Consumer<RuntimeException> errorHandler;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    SerialExecutor(Executor delegate, Consumer<RuntimeException> errorHandler) {
+        this.delegate = delegate;
+        this.errorHandler = errorHandler;
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        tasks.add(task);
+        schedule();
+    }
+
+    private void schedule() {
+        if (scheduled.compareAndSet(false, true)) {
+            delegate.execute(this::drain);
+        }
+    }
+
+    private void drain() {
+        try {
+            Runnable task;
+            int count = 0;
+            while (count++ < BATCH_SIZE && (task = tasks.poll()) != null) {
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    reportFailure(e);
+                }
+            }
+        } finally {
+            scheduled.set(false);
+            if (!tasks.isEmpty()) {
+                schedule();
+            }
+        }
+    }
+
+    private void reportFailure(RuntimeException e) {
+        try {
+            errorHandler.accept(e);
+        } catch (RuntimeException ignored) {
+            // The error handler failed as well; the remaining tasks still run
+        }
+    }
+}
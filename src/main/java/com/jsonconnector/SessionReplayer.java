@@ -0,0 +1,252 @@
+package com.jsonconnector;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Replays the requests of a recorded session against a server and measures the answers.
+ * <p>
+ * A recording is a {@link MessageLog}, e.g. one written through
+ * {@link SocketClient#setMessageLog} and kept with {@link MessageLog#compactTo}. Its sent
+ * messages are sent again in order, either as fast as the pipeline depth allows or with
+ * the recorded gaps between them. The n-th response is compared with the n-th recorded
+ * response, which matches the in-order request/response protocol the client speaks.
+ */
+public class SessionReplayer {
+
+    /**
+     * When replayed requests are sent
+     */
+    public enum Pacing {
+        /** Back to back, with up to the pipeline depth in flight */
+        AS_FAST_AS_POSSIBLE,
+        /** With the same gaps as in the recording */
+        ORIGINAL_TIMING
+    }
+
+    private static final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "SessionReplayer");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final MessageLog recording;
+    private final int[] requests;
+    private final int[] responses;
+    private volatile boolean compareResponses = true;
+
+    public SessionReplayer(MessageLog recording) {
+        this.recording = recording;
+        int size = recording.size();
+        this.requests = IntStream.range(0, size)
+            .filter(i -> recording.direction(i) == MessageLog.Direction.SENT).toArray();
+        this.responses = IntStream.range(0, size)
+            .filter(i -> recording.direction(i) == MessageLog.Direction.RECEIVED).toArray();
+    }
+
+    public int getRequestCount() {
+        return requests.length;
+    }
+
+    /**
+     * Whether responses are checked against the recording; turn off to measure the client
+     * without the extra parsing.
+     */
+    public void setCompareResponses(boolean compareResponses) {
+        this.compareResponses = compareResponses;
+    }
+
+    /**
+     * Replays every recorded request through {@code client}, which must be connected and use
+     * {@link SocketClient.Correlation#IN_ORDER} or recorded requests with ids.
+     *
+     * @param pipelineDepth requests kept in flight with {@link Pacing#AS_FAST_AS_POSSIBLE},
+     *                      at most the client's outstanding request limit
+     */
+    public CompletableFuture<Report> replay(SocketClient client, Pacing pacing, int pipelineDepth) {
+        if (pipelineDepth <= 0) {
+            throw new IllegalArgumentException("pipelineDepth must be positive");
+        }
+        return new Run(client, pacing, Math.min(pipelineDepth, client.getMaxOutstandingRequests())).start();
+    }
+
+    private final class Run {
+
+        private final SocketClient client;
+        private final Pacing pacing;
+        private final int pipelineDepth;
+        private final boolean compare = compareResponses;
+        private final long[] latencies = new long[requests.length];
+        private final CompletableFuture<Report> done = new CompletableFuture<>();
+        private long startNanos;
+        private int nextIndex;
+        private int inFlight;
+        private int completed;
+        private int failed;
+        private int mismatched;
+
+        Run(SocketClient client, Pacing pacing, int pipelineDepth) {
+            this.client = client;
+            this.pacing = pacing;
+            this.pipelineDepth = pipelineDepth;
+        }
+
+        CompletableFuture<Report> start() {
+            startNanos = System.nanoTime();
+            if (requests.length == 0) {
+                done.complete(report());
+            } else if (pacing == Pacing.ORIGINAL_TIMING) {
+                scheduleSend(0);
+            } else {
+                sendNext();
+            }
+            return done;
+        }
+
+        private void sendNext() {
+            int first;
+            int last;
+            synchronized (this) {
+                first = nextIndex;
+                while (inFlight < pipelineDepth && nextIndex < requests.length) {
+                    inFlight++;
+                    nextIndex++;
+                }
+                last = nextIndex;
+            }
+            for (int i = first; i < last; i++) {
+                send(i);
+            }
+        }
+
+        /**
+         * Schedules one request at its recorded offset from the start; the next one is only
+         * scheduled once this one is sent, so a long recording doesn't fill the scheduler.
+         */
+        private void scheduleSend(int index) {
+            long offset = recording.timestamp(requests[index]) - recording.timestamp(requests[0]);
+            long delay = offset - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+            scheduler.schedule(() -> {
+                send(index);
+                if (index + 1 < requests.length) {
+                    scheduleSend(index + 1);
+                }
+            }, Math.max(delay, 0), TimeUnit.MILLISECONDS);
+        }
+
+        private void send(int index) {
+            String request = recording.read(requests[index]).getText();
+            long sentNanos = System.nanoTime();
+            client.sendAsync(request).whenComplete((response, error) ->
+                onResponse(index, System.nanoTime() - sentNanos, response, error));
+        }
+
+        private void onResponse(int index, long latencyNanos, JsonElement response, Throwable error) {
+            boolean mismatch = error == null && compare && !matchesRecording(index, response);
+            boolean finished;
+            synchronized (this) {
+                latencies[index] = error == null ? latencyNanos : -1;
+                if (error != null) {
+                    failed++;
+                }
+                if (mismatch) {
+                    mismatched++;
+                }
+                inFlight--;
+                finished = ++completed == requests.length;
+            }
+            if (finished) {
+                done.complete(report());
+            } else if (pacing == Pacing.AS_FAST_AS_POSSIBLE) {
+                sendNext();
+            }
+        }
+
+        private boolean matchesRecording(int index, JsonElement response) {
+            if (index >= responses.length) {
+                return false;
+            }
+            try {
+                return JsonParser.parseString(recording.read(responses[index]).getText()).equals(response);
+            } catch (JsonParseException e) {
+                return false;
+            }
+        }
+
+        private synchronized Report report() {
+            long[] succeeded = Arrays.stream(latencies).filter(latency -> latency >= 0).sorted().toArray();
+            return new Report(requests.length, failed, mismatched, System.nanoTime() - startNanos, succeeded);
+        }
+    }
+
+    /**
+     * Outcome of a replay
+     */
+    public static final class Report {
+
+        private final int requestCount;
+        private final int failedCount;
+        private final int mismatchedCount;
+        private final long elapsedNanos;
+        private final long[] sortedLatencies;
+
+        Report(int requestCount, int failedCount, int mismatchedCount, long elapsedNanos, long[] sortedLatencies) {
+            this.requestCount = requestCount;
+            this.failedCount = failedCount;
+            this.mismatchedCount = mismatchedCount;
+            this.elapsedNanos = elapsedNanos;
+            this.sortedLatencies = sortedLatencies;
+        }
+
+        public int getRequestCount() {
+            return requestCount;
+        }
+
+        /** Requests that failed, timed out or couldn't be sent */
+        public int getFailedCount() {
+            return failedCount;
+        }
+
+        /** Responses that differ from the recorded ones */
+        public int getMismatchedCount() {
+            return mismatchedCount;
+        }
+
+        public long getElapsedMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+        }
+
+        /** Answered requests per second */
+        public double getThroughput() {
+            return elapsedNanos == 0 ? 0 : sortedLatencies.length * 1e9 / elapsedNanos;
+        }
+
+        /**
+         * @param percentile between 0 and 100
+         * @return latency of the answered requests in milliseconds, 0 if none were answered
+         */
+        public double getLatencyMillis(double percentile) {
+            if (sortedLatencies.length == 0) {
+                return 0;
+            }
+            int rank = (int) Math.ceil(percentile / 100 * sortedLatencies.length) - 1;
+            return sortedLatencies[Math.max(0, Math.min(rank, sortedLatencies.length - 1))] / 1e6;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d requests in %d ms (%.1f req/s), %d failed, %d mismatched; "
+                    + "latency p50 %.2f ms, p90 %.2f ms, p99 %.2f ms, max %.2f ms",
+                requestCount, getElapsedMillis(), getThroughput(), failedCount, mismatchedCount,
+                getLatencyMillis(50), getLatencyMillis(90), getLatencyMillis(99), getLatencyMillis(100));
+        }
+    }
+}
@@ -1,114 +1,698 @@
 package com.jsonconnector;
 
+import com.google.gson.JsonElement;
+
 import java.io.*;
 import java.net.Socket;
-import java.util.concurrent.ExecutorService;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 
 /**
- * TCP Socket client for JSON communication
+ * TCP Socket client for JSON communication.
+ * <p>
+ * Sends never wait behind the receive loop: the blocking transport runs a dedicated
+ * reader and writer thread per connection, the NIO transport is driven by a selector
+ * thread. Outgoing messages go through a bounded queue; when it is full the message is
+ * rejected and the condition is reported through the status handler as
+ * {@code (true, "Send queue full ...")}.
+ * <p>
+ * {@link #sendAsync} returns a future for the response; see {@link Correlation} for how
+ * responses are matched to requests. Responses that don't belong to an async request go to
+ * the message handler as before.
+ * <p>
+ * With {@link #setAutoReconnect auto-reconnect} a lost connection is re-established with
+ * jittered exponential backoff, reported as {@code (false, "...; reconnecting in ...")}
+ * until it succeeds. Unanswered requests are sent again on the new connection.
+ * <p>
+ * Traffic, queue depth and request latency are recorded in {@link #getMetrics()}.
  */
 public class SocketClient {
-    
-    private Socket socket;
-    private PrintWriter out;
-    private BufferedReader in;
-    private ExecutorService executor;
-    private volatile boolean connected = false;
-    
+
+    public static final int DEFAULT_SEND_QUEUE_CAPACITY = 1024;
+    public static final int DEFAULT_MAX_OUTSTANDING_REQUESTS = 256;
+    public static final long DEFAULT_REQUEST_TIMEOUT_MILLIS = 30_000;
+    public static final int DEFAULT_PIPELINE_DEPTH = 16;
+    public static final long DEFAULT_RECONNECT_INITIAL_DELAY_MILLIS = 250;
+    public static final long DEFAULT_RECONNECT_MAX_DELAY_MILLIS = 30_000;
+
+    // Reconnect delays and heartbeats of all clients
+    private static final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "SocketClient-Timer");
+        t.setDaemon(true);
+        return t;
+    });
+
+    /**
+     * How the client talks to the socket
+     */
+    public enum Transport {
+        /** Socket with reader/writer threads and line decoding through BufferedReader */
+        BLOCKING,
+        /** Non-blocking SocketChannel framed straight out of a direct buffer */
+        NIO,
+        /** Socket read with a streaming JsonReader; messages need no newline delimiters */
+        STREAMING
+    }
+
+    /**
+     * How responses are matched to {@link #sendAsync} requests
+     */
+    public enum Correlation {
+        /** The server answers every request, in order */
+        IN_ORDER,
+        /** Requests carry an "id" field that the server echoes back in its response */
+        ID
+    }
+
+    private final Executor connectExecutor;
+    private final int sendQueueCapacity;
+    private volatile Transport transport = Transport.BLOCKING;
+    private volatile NioEventLoop eventLoop;
+    private volatile Connection connection;
+    private volatile RequestTracker tracker;
+    private volatile Correlation correlation = Correlation.IN_ORDER;
+    private volatile int maxOutstandingRequests = DEFAULT_MAX_OUTSTANDING_REQUESTS;
+    private volatile long requestTimeoutMillis = DEFAULT_REQUEST_TIMEOUT_MILLIS;
+    private volatile boolean autoReconnect;
+    private volatile Backoff backoff = new Backoff(DEFAULT_RECONNECT_INITIAL_DELAY_MILLIS, DEFAULT_RECONNECT_MAX_DELAY_MILLIS);
+    private volatile boolean reconnecting;
+    private volatile String heartbeatRequest;
+    private volatile long heartbeatIntervalMillis;
+    private volatile long lastReceivedNanos;
+    // Bumped by every connect and disconnect; a pending reconnect stops once it is outdated
+    private final AtomicInteger session = new AtomicInteger();
+    // Endpoint of the current connection, to reconnect to; guarded by this
+    private String connectedHostname;
+    private int connectedPort;
+    private ScheduledFuture<?> heartbeatTask;
+
     private final Consumer<String> messageHandler;
     private final BiConsumer<Boolean, String> statusHandler;
-    
+    private volatile Consumer<JsonElement> jsonHandler;
+    private volatile JsonTokenListener tokenListener;
+    private volatile MessageLog messageLog;
+    private final ClientMetrics metrics = new ClientMetrics(this::getPendingSendCount, this::getOutstandingRequestCount);
+
+    private final Connection.Listener listener = new Connection.Listener() {
+        @Override
+        public void onMessage(String message) {
+            lastReceivedNanos = System.nanoTime();
+            metrics.onReceived(message);
+            Runnable log = () -> log(MessageLog.Direction.RECEIVED, message);
+            RequestTracker current = tracker;
+            if (current == null) {
+                log.run();
+                messageHandler.accept(message);
+            } else if (!current.onResponse(message, log)) {
+                messageHandler.accept(message);
+            }
+        }
+
+        @Override
+        public void onJson(JsonElement message) {
+            lastReceivedNanos = System.nanoTime();
+            metrics.onReceived();
+            Runnable log = () -> {
+                if (messageLog != null) {
+                    log(MessageLog.Direction.RECEIVED, message.toString());
+                }
+            };
+            RequestTracker current = tracker;
+            if (current == null) {
+                log.run();
+            } else if (current.onResponse(message, log)) {
+                return;
+            }
+            Consumer<JsonElement> handler = jsonHandler;
+            if (handler != null) {
+                handler.accept(message);
+            } else {
+                messageHandler.accept(message.toString());
+            }
+        }
+
+        @Override
+        public void onStreamed() {
+            lastReceivedNanos = System.nanoTime();
+            metrics.onReceived();
+            RequestTracker current = tracker;
+            if (current != null) {
+                current.onStreamed();
+            }
+        }
+
+        @Override
+        public void onClosed(Connection closed, String error) {
+            connectionLost(closed, error);
+        }
+    };
+
     public SocketClient(Consumer<String> messageHandler, BiConsumer<Boolean, String> statusHandler) {
+        this(messageHandler, statusHandler, DEFAULT_SEND_QUEUE_CAPACITY);
+    }
+
+    public SocketClient(Consumer<String> messageHandler, BiConsumer<Boolean, String> statusHandler,
+                        int sendQueueCapacity) {
+        if (sendQueueCapacity <= 0) {
+            throw new IllegalArgumentException("sendQueueCapacity must be positive");
+        }
         this.messageHandler = messageHandler;
         this.statusHandler = statusHandler;
-        this.executor = Executors.newSingleThreadExecutor(r -> {
-            Thread t = new Thread(r, "SocketClient-Thread");
+        this.sendQueueCapacity = sendQueueCapacity;
+        this.connectExecutor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "SocketClient-Connect");
             t.setDaemon(true);
             return t;
         });
     }
-    
+
+    /**
+     * NIO client sharing a selector loop and connect pool with other clients.
+     */
+    SocketClient(Consumer<String> messageHandler, BiConsumer<Boolean, String> statusHandler,
+                 int sendQueueCapacity, NioEventLoop eventLoop, Executor connectPool) {
+        if (sendQueueCapacity <= 0) {
+            throw new IllegalArgumentException("sendQueueCapacity must be positive");
+        }
+        this.messageHandler = messageHandler;
+        this.statusHandler = statusHandler;
+        this.sendQueueCapacity = sendQueueCapacity;
+        this.transport = Transport.NIO;
+        this.eventLoop = eventLoop;
+        // Keep connect/disconnect ordering for this client on the shared pool
+        this.connectExecutor = new SerialExecutor(connectPool,
+            e -> statusHandler.accept(false, "Connection failed: " + e.getMessage()));
+    }
+
+    /**
+     * Selects the transport used by the next {@link #connect}.
+     */
+    public void setTransport(Transport transport) {
+        this.transport = transport;
+    }
+
+    public Transport getTransport() {
+        return transport;
+    }
+
+    /**
+     * Selector loop for the NIO transport; defaults to {@link NioEventLoop#defaultLoop()}.
+     */
+    public void setEventLoop(NioEventLoop eventLoop) {
+        this.eventLoop = eventLoop;
+    }
+
+    /**
+     * Receives messages already parsed by the {@link Transport#STREAMING} transport instead of
+     * the String message handler, so they aren't serialized and parsed again.
+     */
+    public void setJsonHandler(Consumer<JsonElement> jsonHandler) {
+        this.jsonHandler = jsonHandler;
+    }
+
+    /**
+     * Streams messages of the {@link Transport#STREAMING} transport as token events instead of
+     * parsing them; applies from the next {@link #connect} on.
+     * <p>
+     * Streamed messages bypass the message handlers. In {@link Correlation#IN_ORDER} mode each
+     * one still answers the oldest request, whose {@link #sendAsync} future completes with
+     * {@link com.google.gson.JsonNull}.
+     */
+    public void setTokenListener(JsonTokenListener tokenListener) {
+        this.tokenListener = tokenListener;
+    }
+
+    /**
+     * Records every sent and received message in {@code log}; {@code null} stops recording.
+     * Messages streamed as tokens and heartbeats are not recorded.
+     */
+    public void setMessageLog(MessageLog log) {
+        this.messageLog = log;
+    }
+
+    /**
+     * Selects how responses are matched to requests from the next {@link #connect} on.
+     */
+    public void setCorrelation(Correlation correlation) {
+        this.correlation = correlation;
+    }
+
+    /**
+     * Caps the number of unanswered {@link #sendAsync} requests; applies from the next connect.
+     */
+    public void setMaxOutstandingRequests(int maxOutstandingRequests) {
+        if (maxOutstandingRequests <= 0) {
+            throw new IllegalArgumentException("maxOutstandingRequests must be positive");
+        }
+        this.maxOutstandingRequests = maxOutstandingRequests;
+    }
+
+    public int getMaxOutstandingRequests() {
+        return maxOutstandingRequests;
+    }
+
+    /**
+     * Default timeout for {@link #sendAsync(String)}.
+     */
+    public void setRequestTimeout(long timeout, TimeUnit unit) {
+        this.requestTimeoutMillis = unit.toMillis(timeout);
+    }
+
+    /**
+     * Reconnects on its own when an established connection is lost, after a delay that
+     * starts at the initial backoff and doubles per failed attempt. Requests still waiting
+     * for a response are sent again once reconnected, so a request the server already
+     * executed before the drop may execute twice. {@link #connect} and {@link #disconnect}
+     * cancel a pending reconnect.
+     */
+    public void setAutoReconnect(boolean autoReconnect) {
+        this.autoReconnect = autoReconnect;
+    }
+
+    public void setReconnectBackoff(long initialDelay, long maxDelay, TimeUnit unit) {
+        this.backoff = new Backoff(unit.toMillis(initialDelay), unit.toMillis(maxDelay));
+    }
+
+    /**
+     * Whether a lost connection is being re-established.
+     */
+    public boolean isReconnecting() {
+        return reconnecting;
+    }
+
+    /**
+     * Probes a quiet connection with {@code request} once nothing has been received for
+     * {@code interval} and no response is outstanding. If the probe isn't answered within
+     * another interval the connection counts as lost. TCP keepalive is always on; this
+     * detects a hung peer much sooner. {@code null} turns probing off. Applies from the
+     * next connect.
+     */
+    public void setHeartbeat(String request, long interval, TimeUnit unit) {
+        if (request != null && interval <= 0) {
+            throw new IllegalArgumentException("interval must be positive");
+        }
+        this.heartbeatRequest = request;
+        this.heartbeatIntervalMillis = unit.toMillis(interval);
+    }
+
     public void connect(String hostname, int port) {
-        disconnect(); // Close any existing connection
-        
-        executor.submit(() -> {
+        disconnect(); // Close any existing connection and stop reconnecting
+        // A disconnect or connect after this call supersedes it, even before the task starts
+        int connectSession = session.get();
+
+        connectExecutor.execute(() -> {
+            if (session.get() != connectSession) {
+                return;
+            }
+            // A previous connect may have completed while this one was queued
+            closeConnection("Disconnected");
+            CompletableFuture<Connection> opening;
             try {
-                socket = new Socket(hostname, port);
-                out = new PrintWriter(socket.getOutputStream(), true);
-                in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
-                connected = true;
-                
-                statusHandler.accept(true, null);
-                
-                // Start listening for messages
-                listenForMessages();
-                
-            } catch (IOException e) {
-                connected = false;
+                opening = openConnection(hostname, port);
+            } catch (IOException | RuntimeException e) {
                 statusHandler.accept(false, "Connection failed: " + e.getMessage());
+                return;
             }
+            opening.whenCompleteAsync((opened, error) -> {
+                if (error != null) {
+                    // A newer connect or disconnect reports its own status
+                    if (session.get() == connectSession) {
+                        statusHandler.accept(false, "Connection failed: " + error.getMessage());
+                    }
+                } else if (install(opened, connectSession, hostname, port, Collections.emptyList())) {
+                    statusHandler.accept(true, null);
+                }
+            }, connectExecutor);
         });
     }
-    
-    public void disconnect() {
-        connected = false;
-        
-        try {
-            if (out != null) {
-                out.close();
-            }
-            if (in != null) {
-                in.close();
+
+    /**
+     * Opens a connection with the selected transport.
+     * <p>
+     * Blocking transports connect on the calling thread. NIO connects without blocking and
+     * completes on the event loop, so a slow or unreachable host doesn't hold up the
+     * executor connects run on.
+     */
+    private CompletableFuture<Connection> openConnection(String hostname, int port) throws IOException {
+        if (transport == Transport.NIO) {
+            NioEventLoop loop = eventLoop != null ? eventLoop : NioEventLoop.defaultLoop();
+            return NioConnection.connect(loop, hostname, port, sendQueueCapacity, listener);
+        }
+        Socket socket = new Socket(hostname, port);
+        socket.setKeepAlive(true);
+        if (transport == Transport.STREAMING) {
+            return CompletableFuture.completedFuture(
+                new StreamingConnection(socket, sendQueueCapacity, listener, tokenListener));
+        }
+        return CompletableFuture.completedFuture(new BlockingConnection(socket, sendQueueCapacity, listener));
+    }
+
+    /**
+     * Makes {@code opened} the current connection and re-sends {@code unanswered} on it,
+     * unless a connect or disconnect happened since {@code connectSession}.
+     */
+    private boolean install(Connection opened, int connectSession, String hostname, int port,
+                            List<RequestTracker.Pending> unanswered) {
+        RequestTracker newTracker = new RequestTracker(correlation, maxOutstandingRequests, metrics);
+        boolean current;
+        synchronized (this) {
+            current = session.get() == connectSession;
+            if (current) {
+                tracker = newTracker;
+                connection = opened;
+                connectedHostname = hostname;
+                connectedPort = port;
             }
-            if (socket != null && !socket.isClosed()) {
-                socket.close();
+        }
+        if (!current) {
+            opened.close();
+            RequestTracker.fail(unanswered, "Disconnected");
+            return false;
+        }
+        lastReceivedNanos = System.nanoTime();
+        // Start I/O only once failures can be attributed to the current connection
+        opened.start();
+        newTracker.resend(unanswered, request -> offer(opened, request));
+        startHeartbeat(opened);
+        return true;
+    }
+
+    public void disconnect() {
+        session.incrementAndGet();
+        reconnecting = false;
+        closeConnection("Disconnected");
+    }
+
+    private void closeConnection(String reason) {
+        Connection current;
+        RequestTracker currentTracker;
+        synchronized (this) {
+            current = connection;
+            currentTracker = tracker;
+            connection = null;
+            tracker = null;
+            cancelHeartbeat();
+        }
+        if (current != null) {
+            current.close();
+        }
+        if (currentTracker != null) {
+            currentTracker.failAll(reason);
+        }
+    }
+
+    /**
+     * Queues a message for sending.
+     *
+     * @return {@code false} if the client is not connected or the send queue is full
+     */
+    public boolean sendMessage(String message) {
+        Connection current = connection;
+        RequestTracker currentTracker = tracker;
+        if (current == null || currentTracker == null || !current.isOpen()) {
+            statusHandler.accept(false, "Not connected to server");
+            return false;
+        }
+
+        return currentTracker.send(message, json -> offer(current, json));
+    }
+
+    /**
+     * Sends a request and completes with its parsed response.
+     * <p>
+     * The future fails with a {@link java.util.concurrent.TimeoutException} after the
+     * configured request timeout, with an {@link IOException} if the request can't be queued
+     * or the connection closes first, and with an {@link IllegalStateException} if too many
+     * requests are outstanding.
+     */
+    public CompletableFuture<JsonElement> sendAsync(String json) {
+        return sendAsync(json, requestTimeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public CompletableFuture<JsonElement> sendAsync(String json, long timeout, TimeUnit unit) {
+        Connection current = connection;
+        RequestTracker currentTracker = tracker;
+        if (current == null || currentTracker == null || !current.isOpen()) {
+            CompletableFuture<JsonElement> failed = new CompletableFuture<>();
+            failed.completeExceptionally(new IOException("Not connected to server"));
+            return failed;
+        }
+        CompletableFuture<JsonElement> response = currentTracker.sendAsync(json, timeout, unit, request -> offer(current, request));
+        response.whenComplete((result, error) -> {
+            if (error != null) {
+                metrics.onRequestFailed();
             }
+        });
+        return response;
+    }
+
+    /**
+     * Sends a list of requests with at most {@code DEFAULT_PIPELINE_DEPTH} in flight.
+     */
+    public CompletableFuture<List<JsonElement>> sendBatch(List<String> commands) {
+        return sendBatch(commands, DEFAULT_PIPELINE_DEPTH);
+    }
+
+    /**
+     * Sends a list of requests, keeping up to {@code pipelineDepth} of them in flight.
+     * <p>
+     * Requests queued together are written with a single flush. The future completes with
+     * the responses in request order, or fails with the first failed request; nothing
+     * more is sent after a failure.
+     */
+    public CompletableFuture<List<JsonElement>> sendBatch(List<String> commands, int pipelineDepth) {
+        if (pipelineDepth <= 0) {
+            throw new IllegalArgumentException("pipelineDepth must be positive");
+        }
+        return new BatchRun(commands, Math.min(pipelineDepth, maxOutstandingRequests)).start();
+    }
+
+    private boolean offer(Connection current, String message) {
+        return offer(current, message, true);
+    }
+
+    private boolean offer(Connection current, String message, boolean logged) {
+        // Logged before the write so a fast response can't be recorded ahead of its request
+        if (logged) {
+            log(MessageLog.Direction.SENT, message);
+        }
+        if (!current.send(message)) {
+            statusHandler.accept(true, "Send queue full (" + sendQueueCapacity + " pending), message dropped");
+            return false;
+        }
+        metrics.onSent(message, current.pendingSendCount());
+        return true;
+    }
+
+    private void log(MessageLog.Direction direction, String message) {
+        MessageLog log = messageLog;
+        if (log == null) {
+            return;
+        }
+        try {
+            log.append(direction, message);
         } catch (IOException e) {
-            // Ignore close errors
+            // Stop logging rather than fail every message, e.g. on a full disk
+            messageLog = null;
+            statusHandler.accept(true, "Message log disabled: " + e.getMessage());
         }
     }
-    
-    public void sendMessage(String message) {
-        if (!connected || out == null) {
-            statusHandler.accept(false, "Not connected to server");
+
+    public ClientMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Number of {@link #sendAsync} requests still waiting for a response.
+     */
+    public int getOutstandingRequestCount() {
+        RequestTracker current = tracker;
+        return current != null ? current.outstandingCount() : 0;
+    }
+
+    /**
+     * Number of messages waiting to be written.
+     */
+    public int getPendingSendCount() {
+        Connection current = connection;
+        return current != null ? current.pendingSendCount() : 0;
+    }
+
+    public boolean isConnected() {
+        Connection current = connection;
+        return current != null && current.isOpen();
+    }
+
+    /**
+     * Reports a failure of the given connection, unless it was already replaced or closed.
+     */
+    private void connectionLost(Connection failed, String error) {
+        RequestTracker failedTracker;
+        String hostname;
+        int port;
+        int lostSession;
+        synchronized (this) {
+            if (connection != failed) {
+                failed.close();
+                return;
+            }
+            failedTracker = tracker;
+            connection = null;
+            tracker = null;
+            cancelHeartbeat();
+            hostname = connectedHostname;
+            port = connectedPort;
+            lostSession = session.get();
+        }
+        failed.close();
+        if (autoReconnect && failedTracker != null) {
+            reconnecting = true;
+            scheduleReconnect(lostSession, hostname, port, failedTracker.takeUnanswered(), 0, error);
             return;
         }
-        
-        executor.submit(() -> {
-            try {
-                out.println(message);
-                if (out.checkError()) {
-                    connected = false;
-                    statusHandler.accept(false, "Connection lost");
-                }
-            } catch (Exception e) {
-                connected = false;
-                statusHandler.accept(false, "Send failed: " + e.getMessage());
+        if (failedTracker != null) {
+            failedTracker.failAll(error);
+        }
+        statusHandler.accept(false, error);
+    }
+
+    private void scheduleReconnect(int lostSession, String hostname, int port,
+                                   List<RequestTracker.Pending> unanswered, int attempt, String reason) {
+        long delay = backoff.delayMillis(attempt);
+        statusHandler.accept(false, String.format("%s; reconnecting in %d ms", reason, delay));
+        timer.schedule(() -> connectExecutor.execute(() -> reconnect(lostSession, hostname, port, unanswered, attempt)),
+            delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void reconnect(int lostSession, String hostname, int port,
+                           List<RequestTracker.Pending> unanswered, int attempt) {
+        if (session.get() != lostSession) {
+            RequestTracker.fail(unanswered, "Disconnected");
+            return;
+        }
+        CompletableFuture<Connection> opening;
+        try {
+            opening = openConnection(hostname, port);
+        } catch (IOException | RuntimeException e) {
+            scheduleReconnect(lostSession, hostname, port, unanswered, attempt + 1, "Reconnect failed: " + e.getMessage());
+            return;
+        }
+        opening.whenCompleteAsync((opened, error) -> {
+            if (error != null) {
+                scheduleReconnect(lostSession, hostname, port, unanswered, attempt + 1, "Reconnect failed: " + error.getMessage());
+            } else if (install(opened, lostSession, hostname, port, unanswered)) {
+                reconnecting = false;
+                statusHandler.accept(true, null);
             }
-        });
+        }, connectExecutor);
     }
-    
-    private void listenForMessages() {
-        executor.submit(() -> {
-            try {
-                String line;
-                while (connected && (line = in.readLine()) != null) {
-                    final String message = line;
-                    messageHandler.accept(message);
+
+    private synchronized void startHeartbeat(Connection current) {
+        cancelHeartbeat();
+        String request = heartbeatRequest;
+        long interval = heartbeatIntervalMillis;
+        if (request == null) {
+            return;
+        }
+        heartbeatTask = timer.scheduleWithFixedDelay(() -> probe(current, request, interval),
+            interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    private synchronized void cancelHeartbeat() {
+        if (heartbeatTask != null) {
+            heartbeatTask.cancel(false);
+            heartbeatTask = null;
+        }
+    }
+
+    private void probe(Connection current, String request, long intervalMillis) {
+        RequestTracker currentTracker = tracker;
+        if (connection != current || currentTracker == null) {
+            return;
+        }
+        // Only quiet connections; a probe queued behind a slow request would time out
+        boolean quiet = System.nanoTime() - lastReceivedNanos >= TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+        if (!quiet || !currentTracker.isIdle()) {
+            return;
+        }
+        // Heartbeats stay out of the message log, so recordings and the history show only real traffic
+        currentTracker.sendAsync(request, intervalMillis, TimeUnit.MILLISECONDS,
+                                 probe -> offer(current, probe, false), true)
+            .whenComplete((response, error) -> {
+                Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+                if (cause instanceof TimeoutException) {
+                    connectionLost(current, "No response to heartbeat within " + intervalMillis + " ms");
                 }
-            } catch (IOException e) {
-                if (connected) {
-                    connected = false;
-                    statusHandler.accept(false, "Connection lost: " + e.getMessage());
+            });
+    }
+
+    /**
+     * A running {@link #sendBatch} that refills its window as responses arrive.
+     */
+    private final class BatchRun {
+
+        private final List<String> commands;
+        private final int pipelineDepth;
+        private final JsonElement[] results;
+        private final CompletableFuture<List<JsonElement>> done = new CompletableFuture<>();
+        private int nextIndex;
+        private int completed;
+
+        BatchRun(List<String> commands, int pipelineDepth) {
+            this.commands = commands;
+            this.pipelineDepth = pipelineDepth;
+            this.results = new JsonElement[commands.size()];
+        }
+
+        CompletableFuture<List<JsonElement>> start() {
+            if (commands.isEmpty()) {
+                done.complete(Collections.emptyList());
+                return done;
+            }
+            for (int i = 0; i < pipelineDepth; i++) {
+                sendNext();
+            }
+            return done;
+        }
+
+        private void sendNext() {
+            int index;
+            synchronized (this) {
+                if (done.isDone() || nextIndex >= commands.size()) {
+                    return;
                 }
+                index = nextIndex++;
             }
-        });
-    }
-    
-    public boolean isConnected() {
-        return connected && socket != null && !socket.isClosed();
+
+            sendAsync(commands.get(index)).whenComplete((response, error) -> {
+                if (error != null) {
+                    done.completeExceptionally(
+                        new IOException("Command " + (index + 1) + " failed: " + error.getMessage(), error));
+                    return;
+                }
+                boolean finished;
+                synchronized (this) {
+                    results[index] = response;
+                    finished = ++completed == commands.size();
+                }
+                if (finished) {
+                    done.complete(Arrays.asList(results));
+                } else {
+                    sendNext();
+                }
+            });
+        }
     }
-}
\ No newline at end of file
+}
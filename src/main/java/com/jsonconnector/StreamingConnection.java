@@ -0,0 +1,213 @@
+package com.jsonconnector;
+
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.MalformedJsonException;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.net.Socket;
+
+/**
+ * Blocking connection that reads concatenated JSON values straight off the stream.
+ * <p>
+ * Messages don't need newline delimiters. Each value is either parsed into a tree and
+ * handed to {@link Listener#onJson}, or, with a {@link JsonTokenListener}, streamed as
+ * token events without building a tree or an intermediate String.
+ * <p>
+ * Values are read as strictly as the line-based transports parse them: a strict
+ * {@link JsonReader} only accepts one top-level value, so each value gets its own reader
+ * over a {@link ValueReader} that ends where the value ends.
+ */
+class StreamingConnection extends BlockingConnection {
+
+    private final JsonTokenListener tokenListener;
+
+    StreamingConnection(Socket socket, int sendQueueCapacity, Listener listener,
+                        JsonTokenListener tokenListener) throws IOException {
+        super(socket, sendQueueCapacity, listener);
+        this.tokenListener = tokenListener;
+    }
+
+    @Override
+    void readMessages() throws IOException {
+        ValueReader values = new ValueReader(in);
+        try {
+            while (open && values.nextValue()) {
+                JsonReader reader = new JsonReader(values);
+                if (tokenListener != null) {
+                    streamTokens(reader);
+                    tokenListener.onMessageEnd();
+                    listener.onStreamed();
+                } else {
+                    listener.onJson(JsonFormatter.parseStrict(reader));
+                }
+                if (reader.peek() != JsonToken.END_DOCUMENT) {
+                    throw new MalformedJsonException("Unexpected data after JSON value");
+                }
+            }
+        } catch (MalformedJsonException | JsonParseException | IllegalStateException | NumberFormatException e) {
+            // The stream can't be resynchronized after malformed input
+            throw new IOException("Malformed JSON in stream: " + e.getMessage(), e);
+        }
+    }
+
+    private void streamTokens(JsonReader reader) throws IOException {
+        int depth = 0;
+        do {
+            JsonToken token = reader.peek();
+            switch (token) {
+                case BEGIN_OBJECT:
+                    reader.beginObject();
+                    tokenListener.onToken(token, null, depth++);
+                    break;
+                case END_OBJECT:
+                    reader.endObject();
+                    tokenListener.onToken(token, null, --depth);
+                    break;
+                case BEGIN_ARRAY:
+                    reader.beginArray();
+                    tokenListener.onToken(token, null, depth++);
+                    break;
+                case END_ARRAY:
+                    reader.endArray();
+                    tokenListener.onToken(token, null, --depth);
+                    break;
+                case NAME:
+                    tokenListener.onToken(token, reader.nextName(), depth);
+                    break;
+                case STRING:
+                case NUMBER:
+                    tokenListener.onToken(token, reader.nextString(), depth);
+                    break;
+                case BOOLEAN:
+                    tokenListener.onToken(token, String.valueOf(reader.nextBoolean()), depth);
+                    break;
+                case NULL:
+                    reader.nextNull();
+                    tokenListener.onToken(token, null, depth);
+                    break;
+                default:
+                    throw new IOException("Unexpected end of stream");
+            }
+        } while (depth > 0);
+    }
+
+    /**
+     * Hands out one top-level value at a time, reporting end of input where the value ends
+     * so a JsonReader can't buffer past it. Only nesting and string quoting are tracked;
+     * validating the value is left to the JsonReader.
+     */
+    static final class ValueReader extends Reader {
+
+        private final Reader in;
+        private final char[] buffer = new char[8192];
+        private int pos;
+        private int limit;
+
+        private int depth;
+        private boolean inString;
+        private boolean escaped;
+        private boolean inLiteral;
+        private boolean ended;
+
+        ValueReader(Reader in) {
+            this.in = in;
+        }
+
+        /**
+         * Skips whitespace up to the next value.
+         *
+         * @return {@code false} if the stream ended first
+         */
+        boolean nextValue() throws IOException {
+            depth = 0;
+            inString = false;
+            escaped = false;
+            inLiteral = false;
+            ended = false;
+            while (true) {
+                if (pos == limit && !fill()) {
+                    return false;
+                }
+                if (!isWhitespace(buffer[pos])) {
+                    return true;
+                }
+                pos++;
+            }
+        }
+
+        @Override
+        public int read(char[] out, int offset, int length) throws IOException {
+            if (ended || length == 0) {
+                return ended ? -1 : 0;
+            }
+            if (pos == limit && !fill()) {
+                return -1;
+            }
+            int count = 0;
+            while (count < length && pos < limit && !ended) {
+                char c = buffer[pos];
+                if (inLiteral && (isWhitespace(c) || isDelimiter(c))) {
+                    // A number or keyword ends before the next token, which stays unread
+                    ended = true;
+                    break;
+                }
+                out[offset + count++] = c;
+                pos++;
+                scan(c);
+            }
+            return count == 0 ? -1 : count;
+        }
+
+        private void scan(char c) {
+            if (inString) {
+                if (escaped) {
+                    escaped = false;
+                } else if (c == '\\') {
+                    escaped = true;
+                } else if (c == '"') {
+                    inString = false;
+                    ended = depth == 0;
+                }
+                return;
+            }
+            switch (c) {
+                case '"':
+                    inString = true;
+                    break;
+                case '{':
+                case '[':
+                    depth++;
+                    break;
+                case '}':
+                case ']':
+                    ended = --depth <= 0;
+                    break;
+                default:
+                    inLiteral |= depth == 0;
+            }
+        }
+
+        private boolean fill() throws IOException {
+            int read = in.read(buffer, 0, buffer.length);
+            pos = 0;
+            limit = Math.max(read, 0);
+            return read > 0;
+        }
+
+        private static boolean isWhitespace(char c) {
+            return c == ' ' || c == '\t' || c == '\n' || c == '\r';
+        }
+
+        private static boolean isDelimiter(char c) {
+            return c == '{' || c == '}' || c == '[' || c == ']' || c == '"' || c == ',' || c == ':';
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
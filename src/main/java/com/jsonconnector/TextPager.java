@@ -0,0 +1,138 @@
+package com.jsonconnector;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Hands out a large text one page at a time, so only what has been shown so far ever
+ * reaches the UI.
+ * <p>
+ * The text is either paged straight from the received String, or formatted into a file
+ * first ("spilled") and paged from there. The file is left in place when the pager closes,
+ * so it can be opened in another editor; callers reuse one file for successive messages.
+ */
+public class TextPager implements Closeable {
+
+    private final Reader reader;
+    private final long length;
+    private final Path file;
+    private long position;
+    private boolean exhausted;
+
+    private TextPager(Reader reader, long length, Path file) {
+        this.reader = reader;
+        this.length = length;
+        this.file = file;
+    }
+
+    public static TextPager of(String text) {
+        return new TextPager(new StringReader(text), text.length(), null);
+    }
+
+    /**
+     * Writes the message's formatted text to {@code file}, replacing its content, and pages
+     * from it. A pager still reading the file must be closed first.
+     */
+    public static TextPager spill(ReceivedMessage message, Path file) throws IOException {
+        long length;
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            CountingWriter counting = new CountingWriter(writer);
+            message.writeFormatted(counting);
+            counting.flush();
+            length = counting.count;
+        }
+        return new TextPager(Files.newBufferedReader(file, StandardCharsets.UTF_8), length, file);
+    }
+
+    /**
+     * @return up to {@code maxChars} characters, or an empty String once everything was read
+     */
+    public synchronized String nextPage(int maxChars) throws IOException {
+        if (exhausted) {
+            return "";
+        }
+        char[] page = new char[(int) Math.min(maxChars, Math.max(length - position, 1))];
+        int count = 0;
+        while (count < page.length) {
+            int n = reader.read(page, count, page.length - count);
+            if (n < 0) {
+                break;
+            }
+            count += n;
+        }
+        position += count;
+        if (position >= length) {
+            exhausted = true;
+        }
+        return new String(page, 0, count);
+    }
+
+    public synchronized boolean hasMore() {
+        return !exhausted;
+    }
+
+    /**
+     * Characters handed out so far.
+     */
+    public synchronized long getPosition() {
+        return position;
+    }
+
+    /**
+     * Total length in characters.
+     */
+    public long getLength() {
+        return length;
+    }
+
+    /**
+     * The file the text was spilled to, or {@code null} if it is paged from memory.
+     */
+    public Path getFile() {
+        return file;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        exhausted = true;
+        reader.close();
+    }
+
+    private static final class CountingWriter extends Writer {
+
+        private final Writer out;
+        private long count;
+
+        CountingWriter(Writer out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(char[] chars, int offset, int length) throws IOException {
+            out.write(chars, offset, length);
+            count += length;
+        }
+
+        @Override
+        public void write(String str, int offset, int length) throws IOException {
+            out.write(str, offset, length);
+            count += length;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+}
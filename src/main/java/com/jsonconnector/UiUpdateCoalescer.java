@@ -0,0 +1,136 @@
+package com.jsonconnector;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BinaryOperator;
+import java.util.function.Consumer;
+
+/**
+ * Collapses a high-rate stream of updates into at most one UI render per frame.
+ * <p>
+ * Only one render is ever queued on the UI executor. Updates submitted in the meantime
+ * either replace the pending one (it is counted as dropped) or, with a merger, are folded
+ * into it (counted as merged), e.g. to append a batch of messages at once.
+ */
+public class UiUpdateCoalescer<T> {
+
+    public static final long DEFAULT_FRAME_MILLIS = 16;
+
+    private static final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "UiUpdateCoalescer");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final Executor uiExecutor;
+    private final Consumer<T> renderer;
+    private final BinaryOperator<T> merger;
+    private final long frameNanos;
+
+    private T pending;
+    private boolean scheduled;
+    private long lastRenderNanos;
+    private long submittedCount;
+    private long renderedCount;
+    private long droppedCount;
+    private long droppedAtRender;
+    private long lastRenderDroppedCount;
+    private long mergedCount;
+
+    /**
+     * Keeps only the latest update.
+     *
+     * @param uiExecutor runs renders on the UI thread, e.g. {@code Platform::runLater}
+     */
+    public UiUpdateCoalescer(Executor uiExecutor, Consumer<T> renderer) {
+        this(uiExecutor, renderer, null, DEFAULT_FRAME_MILLIS);
+    }
+
+    /**
+     * @param merger folds a new update into the pending one; {@code null} keeps only the latest
+     */
+    public UiUpdateCoalescer(Executor uiExecutor, Consumer<T> renderer, BinaryOperator<T> merger, long frameMillis) {
+        this.uiExecutor = uiExecutor;
+        this.renderer = renderer;
+        this.merger = merger;
+        this.frameNanos = TimeUnit.MILLISECONDS.toNanos(frameMillis);
+        this.lastRenderNanos = System.nanoTime() - frameNanos;
+    }
+
+    public void submit(T update) {
+        long delayNanos;
+        synchronized (this) {
+            submittedCount++;
+            if (pending == null) {
+                pending = update;
+            } else if (merger != null) {
+                pending = merger.apply(pending, update);
+                mergedCount++;
+            } else {
+                pending = update;
+                droppedCount++;
+            }
+            if (scheduled) {
+                return;
+            }
+            scheduled = true;
+            delayNanos = lastRenderNanos + frameNanos - System.nanoTime();
+        }
+
+        if (delayNanos <= 0) {
+            uiExecutor.execute(this::render);
+        } else {
+            scheduler.schedule(() -> uiExecutor.execute(this::render), delayNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void render() {
+        T update;
+        synchronized (this) {
+            update = pending;
+            pending = null;
+            scheduled = false;
+            lastRenderNanos = System.nanoTime();
+            if (update != null) {
+                renderedCount++;
+                lastRenderDroppedCount = droppedCount - droppedAtRender;
+                droppedAtRender = droppedCount;
+            }
+        }
+        if (update != null) {
+            renderer.accept(update);
+        }
+    }
+
+    public synchronized long getSubmittedCount() {
+        return submittedCount;
+    }
+
+    public synchronized long getRenderedCount() {
+        return renderedCount;
+    }
+
+    /**
+     * Updates replaced by a newer one before they were rendered.
+     */
+    public synchronized long getDroppedCount() {
+        return droppedCount;
+    }
+
+    /**
+     * Updates dropped in the frame rendered last; read from the renderer, it covers the
+     * update being rendered.
+     */
+    public synchronized long getLastRenderDroppedCount() {
+        return lastRenderDroppedCount;
+    }
+
+    /**
+     * Updates folded into another one by the merger.
+     */
+    public synchronized long getMergedCount() {
+        return mergedCount;
+    }
+}
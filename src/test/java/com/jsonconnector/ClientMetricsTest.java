@@ -0,0 +1,87 @@
+package com.jsonconnector;
+
+import org.junit.jupiter.api.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ClientMetricsTest {
+
+    @Test
+    public void testHistogramPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(TimeUnit.MICROSECONDS.toNanos(i));
+        }
+
+        assertEquals(1000, histogram.getCount());
+        assertEquals(0.5005, histogram.getMeanMillis(), 1e-9);
+        assertEquals(1.0, histogram.getMaxMillis(), 1e-9);
+        // Within the bucket resolution of about 6%
+        assertEquals(0.5, histogram.getMillisAtPercentile(50), 0.5 * 0.07);
+        assertEquals(0.99, histogram.getMillisAtPercentile(99), 0.99 * 0.07);
+        assertEquals(1.0, histogram.getMillisAtPercentile(100), 1e-9);
+
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getValueAtPercentile(50));
+    }
+
+    @Test
+    public void testCommandNameAndByteCount() {
+        assertEquals("API.GetElements", ClientMetrics.commandName("{\"command\" : \"API.GetElements\", \"parameters\": {}}"));
+        assertEquals(ClientMetrics.UNKNOWN_COMMAND, ClientMetrics.commandName("{\"parameters\": {}}"));
+        assertEquals(ClientMetrics.UNKNOWN_COMMAND, ClientMetrics.commandName("{\"command\": 42}"));
+
+        for (String text : new String[] {"abc", "Größe", "€ 5", "😀 x"}) {
+            assertEquals(text.getBytes(StandardCharsets.UTF_8).length, ClientMetrics.utf8Length(text), text);
+        }
+    }
+
+    @Test
+    public void testClientRecordsRequestsAndPublishesOverJmx() throws Exception {
+        TestServer server = new TestServer();
+        int port = server.startInBackground();
+
+        CountDownLatch connected = new CountDownLatch(1);
+        SocketClient client = new SocketClient(message -> { }, (isConnected, error) -> {
+            if (isConnected && error == null) {
+                connected.countDown();
+            }
+        });
+        ClientMetrics metrics = client.getMetrics();
+        try {
+            client.connect("localhost", port);
+            assertTrue(connected.await(5, TimeUnit.SECONDS));
+
+            client.sendAsync("{\"command\": \"GetProcessId\"}").get(5, TimeUnit.SECONDS);
+            for (int i = 0; i < 10; i++) {
+                client.sendAsync("{\"command\": \"Echo\", \"n\": " + i + "}").get(5, TimeUnit.SECONDS);
+            }
+
+            assertEquals(11, metrics.getMessagesSent());
+            assertEquals(11, metrics.getMessagesReceived());
+            assertTrue(metrics.getBytesReceived() > metrics.getBytesSent());
+            assertEquals(11, metrics.getRoundTripCount());
+            assertEquals(1, metrics.getRoundTrip("GetProcessId").getCount());
+            assertEquals(10, metrics.getRoundTrip("Echo").getCount());
+            assertEquals(11, metrics.getParseTime().getCount());
+
+            ObjectName name = metrics.register("test-" + port);
+            MBeanServer mbeanServer = ManagementFactory.getPlatformMBeanServer();
+            assertEquals(11L, mbeanServer.getAttribute(name, "MessagesSent"));
+            assertEquals(2, ((String[]) mbeanServer.getAttribute(name, "CommandRoundTrips")).length);
+            metrics.unregister();
+            assertFalse(mbeanServer.isRegistered(name));
+        } finally {
+            client.disconnect();
+            server.stop();
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.jsonconnector;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CommandCacheTest {
+
+    private static final List<String> COMMANDS = Arrays.asList("API.GetElements", "GetProcessId");
+    private static final JsonElement PARAMETERS = JsonParser.parseString(
+        "{\"succeeded\": true, \"result\": {\"parameters\": {\"elementType\": \"Wall\"}}}");
+
+    @TempDir
+    Path cacheDir;
+
+    @Test
+    public void testEntriesSurviveRestart() {
+        CommandCache cache = new CommandCache(cacheDir);
+        assertNull(cache.get("localhost:19723"));
+        cache.putCommands("localhost:19723", "4242", COMMANDS);
+        cache.putParameters("localhost:19723", "API.GetElements", PARAMETERS);
+        cache.flush();
+
+        CommandCache restarted = new CommandCache(cacheDir);
+        CommandCache.Entry entry = restarted.get("localhost:19723");
+        assertNotNull(entry);
+        assertEquals("4242", entry.getProcessId());
+        assertEquals(COMMANDS, entry.getCommands());
+        assertEquals(PARAMETERS, restarted.getParameters("localhost:19723", "API.GetElements"));
+        assertNull(restarted.getParameters("localhost:19723", "GetProcessId"));
+        assertNull(restarted.get("localhost:19724"));
+
+        // Another process with the same commands keeps the templates, other commands drop them
+        restarted.putCommands("localhost:19723", "5000", COMMANDS);
+        assertEquals(PARAMETERS, restarted.getParameters("localhost:19723", "API.GetElements"));
+        restarted.putCommands("localhost:19723", "5001", Arrays.asList("GetProcessId"));
+        assertNull(restarted.getParameters("localhost:19723", "API.GetElements"));
+    }
+
+    @Test
+    public void testInvalidAndExpiredFilesAreDropped() throws IOException {
+        CommandCache cache = new CommandCache(cacheDir);
+        cache.putCommands("a:1", "1", COMMANDS);
+        cache.putCommands("b:2", "2", COMMANDS);
+        cache.flush();
+
+        Path corrupt = cacheDir.resolve("a_1.json");
+        Files.write(corrupt, "{\"version\": 1, \"server\": ".getBytes(StandardCharsets.UTF_8));
+        Path expired = cacheDir.resolve("b_2.json");
+        Files.setLastModifiedTime(expired, FileTime.fromMillis(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(2)));
+
+        CommandCache restarted = new CommandCache(cacheDir, 8, TimeUnit.DAYS.toMillis(1));
+        assertNull(restarted.get("a:1"));
+        assertNull(restarted.get("b:2"));
+        assertFalse(Files.exists(corrupt));
+        assertFalse(Files.exists(expired));
+    }
+
+    @Test
+    public void testLeastRecentlyUsedServersAreEvicted() throws IOException {
+        CommandCache cache = new CommandCache(cacheDir, 2, TimeUnit.DAYS.toMillis(1));
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < 2; i++) {
+            cache.putCommands("host:" + i, null, COMMANDS);
+            cache.flush();
+            Files.setLastModifiedTime(cacheDir.resolve("host_" + i + ".json"), FileTime.fromMillis(now - (10 - i) * 1000L));
+        }
+        // Reading host:0 makes it the most recently used
+        assertNotNull(new CommandCache(cacheDir, 2, TimeUnit.DAYS.toMillis(1)).get("host:0"));
+        cache.putCommands("host:2", null, COMMANDS);
+        cache.flush();
+
+        assertTrue(Files.exists(cacheDir.resolve("host_0.json")));
+        assertFalse(Files.exists(cacheDir.resolve("host_1.json")));
+        assertTrue(Files.exists(cacheDir.resolve("host_2.json")));
+    }
+}
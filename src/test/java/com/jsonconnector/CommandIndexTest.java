@@ -0,0 +1,89 @@
+package com.jsonconnector;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CommandIndexTest {
+
+    private static final List<String> COMMANDS = Arrays.asList(
+        "API.GetProjectMapItems", "API.CloneProjectMapItemToViewMap", "API.GetElements",
+        "ACUserInterface.GetTransparentNotifications", "Utility.GetArchicadLocation",
+        "GetProcessId", "API.GetMap", "Utility.Map");
+
+    @Test
+    public void testFilterMatchesLinearScan() {
+        List<String> commands = new ArrayList<>(COMMANDS);
+        for (int i = 0; i < 2000; i++) {
+            commands.add("Domain" + (i % 7) + (i % 3 == 0 ? ".Get" : ".Set") + "Item" + i);
+        }
+        CommandIndex index = new CommandIndex(commands);
+
+        for (String filter : new String[] {"", "m", "ma", "map", "MAPITEM", "item1", "domain3.set", "zzz", " get "}) {
+            for (String domain : new String[] {null, "API", "Domain3", "Other", "Missing"}) {
+                String query = filter.trim().toLowerCase(Locale.ROOT);
+                List<String> expected = commands.stream()
+                    .filter(cmd -> domain == null || CommandIndex.domainOf(cmd).equals(domain))
+                    .filter(cmd -> cmd.toLowerCase(Locale.ROOT).contains(query))
+                    .sorted()
+                    .collect(Collectors.toList());
+                assertEquals(expected, index.filter(filter, domain), filter + " in " + domain);
+            }
+        }
+    }
+
+    @Test
+    public void testSearchRanksBestMatchesFirst() {
+        CommandIndex index = new CommandIndex(COMMANDS);
+
+        // Part after the domain, then word starts, earlier ones first
+        assertEquals(Arrays.asList("Utility.Map", "API.GetMap", "API.GetProjectMapItems", "API.CloneProjectMapItemToViewMap"),
+            index.search("map", null, 10));
+        // Name prefix before domain-part prefix, ties alphabetical
+        assertEquals(Arrays.asList("GetProcessId", "API.GetElements"), index.search("get", null, 2));
+        // Substring matches before fuzzy ones
+        assertEquals(Arrays.asList("API.GetMap", "API.GetProjectMapItems", "API.GetElements"), index.search("getm", "API", 10));
+        assertEquals(Arrays.asList("Utility.GetArchicadLocation", "Utility.Map"), index.search("", "Utility", 3));
+    }
+
+    @Test
+    public void testRefinedSearchMatchesFullSearch() {
+        List<String> commands = new ArrayList<>(COMMANDS);
+        for (int i = 0; i < 500; i++) {
+            commands.add("Domain" + (i % 4) + ".GetMapItem" + i);
+        }
+        CommandIndex index = new CommandIndex(commands);
+
+        for (String domain : new String[] {null, "API", "Domain1"}) {
+            for (String typed : new String[] {"getmapitem12", "gpmi", "mapitem"}) {
+                CommandIndex.Result previous = null;
+                for (int length = 1; length <= typed.length(); length++) {
+                    String query = typed.substring(0, length);
+                    CommandIndex.Result refined = index.search(query, domain, previous, () -> false);
+                    CommandIndex.Result full = index.search(query, domain, null, () -> false);
+                    assertEquals(full.getCommands(), refined.getCommands(), query + " in " + domain);
+                    previous = refined;
+                }
+            }
+        }
+
+        assertNull(index.search("map", null, null, () -> true));
+        assertNull(index.search("map", "Missing", null, () -> false));
+    }
+
+    @Test
+    public void testFuzzySearch() {
+        CommandIndex index = new CommandIndex(COMMANDS);
+
+        assertEquals("API.GetProjectMapItems", index.search("gpmi", null, 10).get(0));
+        assertEquals("Utility.GetArchicadLocation", index.search("archloc", null, 10).get(0));
+        assertTrue(index.search("xq", null, 10).isEmpty());
+        assertEquals(Arrays.asList("ACUserInterface", "API", "Other", "Utility"), index.getDomains());
+    }
+}
@@ -0,0 +1,56 @@
+package com.jsonconnector;
+
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CommandResponsesTest {
+
+    @Test
+    public void testDecodeFromTextAndTree() {
+        String processId = "{\"succeeded\": true, \"result\": {\"processId\": 11480, \"extra\": [1, {}]}}";
+        String commands = "{\"result\": {\"commands\": [\"API.GetElements\", \"GetProcessId\"]}, \"succeeded\": true}";
+
+        assertEquals(11480, CommandResponses.decode(processId, CommandResponses.PROCESS_ID).getProcessId());
+        assertEquals(11480, CommandResponses.decode(JsonParser.parseString(processId), CommandResponses.PROCESS_ID).getProcessId());
+        assertEquals(Arrays.asList("API.GetElements", "GetProcessId"),
+            CommandResponses.decode(commands, CommandResponses.COMMANDS).getCommands());
+        assertEquals(Arrays.asList("API.GetElements", "GetProcessId"),
+            CommandResponses.decode(JsonParser.parseString(commands), CommandResponses.COMMANDS).getCommands());
+
+        CommandResponses.Commands registered = CommandResponses.GSON.fromJson(
+            "{\"commands\": [\"A\"]}", CommandResponses.Commands.class);
+        assertEquals(Arrays.asList("A"), registered.getCommands());
+        assertEquals("{\"commands\":[\"A\"]}", CommandResponses.GSON.toJson(registered));
+    }
+
+    @Test
+    public void testMalformedResponsesGiveClearErrors() {
+        assertError("command failed (404): Unknown command",
+            "{\"succeeded\": false, \"error\": {\"code\": 404, \"message\": \"Unknown command\"}}");
+        assertError("response has no result", "{\"succeeded\": true}");
+        assertError("result has no processId", "{\"result\": {\"pid\": 1}}");
+        assertError("expected a number but was STRING at $.result.processId", "{\"result\": {\"processId\": \"x\"}}");
+        assertError("expected a command name but was NUMBER at $.result.commands[1]", "{\"result\": {\"commands\": [\"A\", 2]}}");
+        assertError("expected an array of command names but was NULL at $.result.commands", "{\"result\": {\"commands\": null}}");
+
+        JsonParseException fromTree = assertThrows(JsonParseException.class, () ->
+            CommandResponses.decode(JsonParser.parseString("{\"result\": {\"commands\": [\"A\", 2]}}"), CommandResponses.COMMANDS));
+        assertTrue(fromTree.getMessage().startsWith("expected a command name but was NUMBER at $.commands[1]"), fromTree.getMessage());
+    }
+
+    private static void assertError(String expected, String response) {
+        JsonParseException e = assertThrows(JsonParseException.class, () -> {
+            if (response.contains("commands")) {
+                CommandResponses.decode(response, CommandResponses.COMMANDS);
+            } else {
+                CommandResponses.decode(response, CommandResponses.PROCESS_ID);
+            }
+        });
+        assertEquals(expected, e.getMessage());
+    }
+}
@@ -0,0 +1,86 @@
+package com.jsonconnector;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CommandRunnerTest {
+
+    private TestServer testServer;
+    private SocketClient client;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        testServer = new TestServer();
+        int port = testServer.startInBackground();
+
+        CountDownLatch connected = new CountDownLatch(1);
+        client = new SocketClient(message -> { }, (isConnected, error) -> {
+            if (isConnected && error == null) {
+                connected.countDown();
+            }
+        });
+        client.connect("localhost", port);
+        assertTrue(connected.await(5, TimeUnit.SECONDS));
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        client.disconnect();
+        testServer.stop();
+    }
+
+    @Test
+    void testResponsesAreWrittenInCommandOrder() throws IOException {
+        StringBuilder script = new StringBuilder("{\"command\": \"GetProcessId\"}\n[");
+        for (int i = 0; i < 200; i++) {
+            script.append(i > 0 ? ", " : "").append("{\"command\": \"Echo\", \"n\": ").append(i).append('}');
+        }
+        script.append(']');
+        StringWriter out = new StringWriter();
+
+        int failed = new CommandRunner(client, 8, 5, TimeUnit.SECONDS).run(new StringReader(script.toString()), out);
+
+        assertEquals(0, failed);
+        String[] lines = out.toString().split("\n");
+        assertEquals(201, lines.length);
+        assertEquals(11480, JsonParser.parseString(lines[0]).getAsJsonObject()
+            .getAsJsonObject("result").get("processId").getAsInt());
+        for (int i = 0; i < 200; i++) {
+            String echoed = JsonParser.parseString(lines[i + 1]).getAsJsonObject().get("received").getAsString();
+            assertEquals(i, JsonParser.parseString(echoed).getAsJsonObject().get("n").getAsInt());
+        }
+    }
+
+    @Test
+    void testFailuresAndInvalidInput() throws IOException {
+        // Commands before the invalid part are still answered
+        StringWriter partial = new StringWriter();
+        CommandRunner runner = new CommandRunner(client, 4, 5, TimeUnit.SECONDS);
+        assertThrows(IOException.class, () -> runner.run(new StringReader("{\"command\": \"A\"}\n42\n"), partial));
+        assertTrue(partial.toString().startsWith("{\"received\":"), partial.toString());
+
+        testServer.setDropRate(1.0);
+        StringWriter out = new StringWriter();
+
+        int failed = new CommandRunner(client, 4, 200, TimeUnit.MILLISECONDS)
+            .run(new StringReader("{\"command\": \"A\"} {\"command\": \"B\"}"), out);
+
+        assertEquals(2, failed);
+        String[] lines = out.toString().split("\n");
+        assertEquals(2, lines.length);
+        JsonObject error = JsonParser.parseString(lines[1]).getAsJsonObject();
+        assertTrue(error.has("error"));
+        assertEquals("B", error.getAsJsonObject("command").get("command").getAsString());
+    }
+}
@@ -0,0 +1,33 @@
+package com.jsonconnector;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CommandScriptTest {
+
+    @Test
+    public void testJsonArrayScript() throws IOException {
+        List<String> commands = CommandScript.parse("[{\"command\": \"GetProcessId\"}, {\"command\": \"GetCommands\"}]");
+        assertEquals(Arrays.asList("{\"command\":\"GetProcessId\"}", "{\"command\":\"GetCommands\"}"), commands);
+    }
+
+    @Test
+    public void testLineAndPrettyPrintedScript() throws IOException {
+        String script = "{\"command\": \"GetProcessId\"}\n"
+                + "\n"
+                + "{\n  \"command\": \"GetCommands\"\n}\n";
+        List<String> commands = CommandScript.parse(script);
+        assertEquals(Arrays.asList("{\"command\":\"GetProcessId\"}", "{\"command\":\"GetCommands\"}"), commands);
+    }
+
+    @Test
+    public void testInvalidScript() {
+        assertThrows(IOException.class, () -> CommandScript.parse("[1, 2]"));
+        assertThrows(IOException.class, () -> CommandScript.parse("{\"command\": \"GetProcessId\"\n"));
+    }
+}
@@ -0,0 +1,152 @@
+package com.jsonconnector;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for serving several endpoints from one ConnectionManager
+ */
+public class ConnectionManagerTest {
+
+    private final List<TestServer> servers = new ArrayList<>();
+    private ConnectionManager manager;
+
+    @AfterEach
+    void tearDown() throws IOException {
+        if (manager != null) {
+            manager.close();
+        }
+        for (TestServer server : servers) {
+            server.stop();
+        }
+    }
+
+    private int startServer() throws IOException {
+        TestServer server = new TestServer();
+        servers.add(server);
+        return server.startInBackground();
+    }
+
+    @Test
+    void testMessagesAreRoutedPerEndpoint() throws Exception {
+        int endpointCount = 5;
+        List<Integer> ports = new ArrayList<>();
+        for (int i = 0; i < endpointCount; i++) {
+            ports.add(startServer());
+        }
+
+        manager = new ConnectionManager(2, 64);
+        CountDownLatch connected = new CountDownLatch(endpointCount);
+        Map<String, List<String>> received = new ConcurrentHashMap<>();
+        CountDownLatch responses = new CountDownLatch(endpointCount * 10);
+
+        for (int port : ports) {
+            manager.add("localhost", port,
+                (endpoint, message) -> {
+                    received.computeIfAbsent(endpoint, k -> new CopyOnWriteArrayList<>()).add(message);
+                    responses.countDown();
+                },
+                (endpoint, isConnected, error) -> {
+                    if (isConnected) {
+                        connected.countDown();
+                    }
+                });
+        }
+        assertTrue(connected.await(5, TimeUnit.SECONDS), "All endpoints should connect");
+        assertEquals(endpointCount, manager.getEndpoints().size());
+
+        for (String endpoint : manager.getEndpoints()) {
+            for (int i = 0; i < 10; i++) {
+                assertTrue(manager.send(endpoint, "{\"command\": \"Echo\", \"endpoint\": \"" + endpoint + "\", \"n\": " + i + "}"));
+            }
+        }
+        assertTrue(responses.await(5, TimeUnit.SECONDS), "Every endpoint should answer");
+
+        for (Map.Entry<String, List<String>> entry : received.entrySet()) {
+            List<String> messages = entry.getValue();
+            assertEquals(10, messages.size());
+            for (int i = 0; i < messages.size(); i++) {
+                String message = messages.get(i);
+                assertTrue(message.contains(entry.getKey()), "Message routed to the wrong endpoint");
+                assertTrue(message.contains("\\\"n\\\": " + i + "}"), "Messages should arrive in order");
+            }
+        }
+    }
+
+    @Test
+    void testRemoveDisconnectsEndpoint() throws Exception {
+        int port = startServer();
+
+        manager = new ConnectionManager();
+        CountDownLatch connected = new CountDownLatch(1);
+        String endpoint = manager.add("localhost", port, message -> { }, (isConnected, error) -> {
+            if (isConnected) {
+                connected.countDown();
+            }
+        });
+        assertTrue(connected.await(5, TimeUnit.SECONDS));
+        assertTrue(manager.isConnected(endpoint));
+
+        manager.remove(endpoint);
+        assertFalse(manager.isConnected(endpoint));
+        assertFalse(manager.send(endpoint, "{}"));
+    }
+
+    @Test
+    void testUnreachableEndpointsDontBlockOthers() throws Exception {
+        int port = startServer();
+
+        manager = new ConnectionManager(1, 64);
+        for (int i = 0; i < 3; i++) {
+            // Non-routable; the handshake either hangs or fails, it must not hold the pool
+            manager.add("10.255.255.1", 60200 + i, message -> { }, (isConnected, error) -> { });
+        }
+        CountDownLatch connected = new CountDownLatch(1);
+        manager.add("localhost", port, message -> { }, (isConnected, error) -> {
+            if (isConnected) {
+                connected.countDown();
+            }
+        });
+        assertTrue(connected.await(2, TimeUnit.SECONDS), "Reachable endpoint should connect at once");
+    }
+
+    @Test
+    void testFailingHandlerIsReportedAndDeliveryContinues() throws Exception {
+        int port = startServer();
+
+        manager = new ConnectionManager(1, 64);
+        CountDownLatch connected = new CountDownLatch(1);
+        List<String> errors = new CopyOnWriteArrayList<>();
+        CountDownLatch delivered = new CountDownLatch(2);
+        String endpoint = manager.add("localhost", port, message -> {
+            delivered.countDown();
+            if (message.contains("\\\"n\\\": 0")) {
+                throw new IllegalStateException("boom");
+            }
+        }, (isConnected, error) -> {
+            if (isConnected && error == null) {
+                connected.countDown();
+            } else if (error != null) {
+                errors.add(error);
+            }
+        });
+        assertTrue(connected.await(5, TimeUnit.SECONDS));
+
+        assertTrue(manager.send(endpoint, "{\"command\": \"Echo\", \"n\": 0}"));
+        assertTrue(manager.send(endpoint, "{\"command\": \"Echo\", \"n\": 1}"));
+        assertTrue(delivered.await(5, TimeUnit.SECONDS), "Messages after a failing handler should be delivered");
+        assertEquals(1, errors.size());
+        assertTrue(errors.get(0).startsWith("Handler failed: java.lang.IllegalStateException: boom"), errors.get(0));
+    }
+}
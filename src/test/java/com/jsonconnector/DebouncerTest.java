@@ -0,0 +1,66 @@
+package com.jsonconnector;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DebouncerTest {
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testOnlyLastOfBurstRuns() throws Exception {
+        Debouncer debouncer = new Debouncer(executor, 100);
+        List<Integer> runs = new CopyOnWriteArrayList<>();
+        CountDownLatch done = new CountDownLatch(1);
+
+        for (int i = 0; i < 20; i++) {
+            int value = i;
+            debouncer.submit(stale -> {
+                runs.add(value);
+                done.countDown();
+            });
+        }
+
+        assertTrue(done.await(2, TimeUnit.SECONDS));
+        Thread.sleep(200);
+        assertEquals(List.of(19), runs);
+    }
+
+    @Test
+    public void testRunningTaskSeesItIsStale() throws Exception {
+        Debouncer debouncer = new Debouncer(executor, 10);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch checked = new CountDownLatch(1);
+        boolean[] sawStale = new boolean[1];
+
+        debouncer.submit(stale -> {
+            started.countDown();
+            try {
+                Thread.sleep(200);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            sawStale[0] = stale.getAsBoolean();
+            checked.countDown();
+        });
+        assertTrue(started.await(2, TimeUnit.SECONDS));
+        debouncer.submit(stale -> { });
+
+        assertTrue(checked.await(2, TimeUnit.SECONDS));
+        assertTrue(sawStale[0]);
+    }
+}
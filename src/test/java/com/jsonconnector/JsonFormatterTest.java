@@ -0,0 +1,61 @@
+package com.jsonconnector;
+
+import com.google.gson.JsonParser;
+import org.junit.jupiter.api.Test;
+
+import javax.swing.text.PlainDocument;
+import java.io.IOException;
+import java.io.StringReader;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JsonFormatterTest {
+
+    private static final String JSON =
+        "{\"result\":{\"commands\":[\"API.GetProductInfo\",\"API.IsAlive\"],\"empty\":{},\"none\":[],"
+            + "\"count\":12345678901234567890,\"ratio\":0.5,\"ok\":true,\"text\":\"a \\\"quoted\\\" \\u00e9\"}}";
+
+    @Test
+    public void testStreamingMatchesTreeFormatting() throws IOException {
+        StringBuilder out = new StringBuilder();
+        JsonFormatter.format(new StringReader(JSON), out);
+
+        assertEquals(JsonFormatter.format(JsonParser.parseString(JSON)), out.toString());
+        assertEquals(out.toString(), JsonFormatter.format(JSON));
+        assertTrue(out.toString().contains("12345678901234567890"));
+    }
+
+    @Test
+    public void testKeepsNullMembers() {
+        // Unlike Gson's default tree serialization, the response is shown as received
+        assertEquals("{\n  \"missing\": null\n}", JsonFormatter.format("{\"missing\":null}"));
+    }
+
+    @Test
+    public void testTreeAndStreamingFormattingAgree() {
+        // Small responses are formatted from their tree, large ones by streaming
+        String json = "{\"html\":\"<a href='x'>=</a>\",\"missing\":null,\"list\":[null]}";
+        String formatted = JsonFormatter.format(json);
+
+        assertEquals(formatted, JsonFormatter.format(JsonParser.parseString(json)));
+        assertTrue(formatted.contains("<a href='x'>=</a>"), formatted);
+        assertTrue(formatted.contains("\"missing\": null"), formatted);
+    }
+
+    @Test
+    public void testWritesToDocumentInChunks() throws Exception {
+        PlainDocument document = new PlainDocument();
+        try (DocumentWriter writer = new DocumentWriter(document, 7)) {
+            JsonFormatter.format(new StringReader(JSON), writer);
+        }
+
+        assertEquals(JsonFormatter.format(JSON), document.getText(0, document.getLength()));
+    }
+
+    @Test
+    public void testMalformedInput() {
+        assertThrows(IOException.class, () -> JsonFormatter.format(new StringReader("{\"a\": [1, 2}"), new StringBuilder()));
+        assertThrows(IOException.class, () -> JsonFormatter.format(new StringReader("{} {}"), new StringBuilder()));
+        assertEquals("{not json", JsonFormatter.format("{not json"));
+    }
+}
@@ -0,0 +1,64 @@
+package com.jsonconnector;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import javafx.scene.control.TreeItem;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JsonTreeItemTest {
+
+    @Test
+    public void testChildrenAreCreatedOnDemand() {
+        JsonTreeItem root = JsonTreeItem.root(JsonParser.parseString(
+            "{\"result\": {\"processId\": 11480, \"name\": \"Archicad\"}, \"succeeded\": true}"));
+
+        assertEquals("{2}", root.getValue());
+        assertFalse(root.isLeaf());
+        assertFalse(root.isLoaded());
+
+        assertEquals(2, root.getChildren().size());
+        JsonTreeItem result = (JsonTreeItem) root.getChildren().get(0);
+        assertEquals("result: {2}", result.getValue());
+        assertFalse(result.isLoaded());
+        assertEquals("succeeded: true", root.getChildren().get(1).getValue());
+        assertTrue(root.getChildren().get(1).isLeaf());
+
+        assertEquals("name: \"Archicad\"", result.getChildren().get(1).getValue());
+    }
+
+    @Test
+    public void testLargeArrayIsPaged() {
+        JsonArray array = new JsonArray();
+        for (int i = 0; i < 25_000; i++) {
+            array.add(i);
+        }
+        JsonTreeItem root = JsonTreeItem.root(array);
+
+        // 25,000 elements: 3 ranges of 10,000, each split into 100 ranges of 100
+        assertEquals(3, root.getChildren().size());
+        TreeItem<String> last = root.getChildren().get(2);
+        assertEquals("[20000 … 24999]", last.getValue());
+        assertEquals(50, last.getChildren().size());
+        TreeItem<String> page = last.getChildren().get(49);
+        assertEquals("[24900 … 24999]", page.getValue());
+        assertEquals(JsonTreeItem.PAGE_SIZE, page.getChildren().size());
+        assertEquals("[24999]: 24999", page.getChildren().get(99).getValue());
+    }
+
+    @Test
+    public void testLargeObjectIsPaged() {
+        JsonObject object = new JsonObject();
+        for (int i = 0; i < 150; i++) {
+            object.addProperty("key" + i, i);
+        }
+        JsonTreeItem root = JsonTreeItem.root(object);
+
+        assertEquals(2, root.getChildren().size());
+        TreeItem<String> second = root.getChildren().get(1);
+        assertEquals(50, second.getChildren().size());
+        assertEquals("key100: 100", second.getChildren().get(0).getValue());
+    }
+}
@@ -1,6 +1,9 @@
 package com.jsonconnector;
 
 import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import static org.junit.jupiter.api.Assertions.*;
 
 public class JsonValidatorTest {
@@ -22,4 +25,87 @@ public class JsonValidatorTest {
         assertFalse(JsonValidator.isValidJson("[1,2,3"));
         assertFalse(JsonValidator.isValidJson("{\"unclosed\": \"string"));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testStrictSyntax() {
+        assertTrue(JsonValidator.isValidJson(" {\"a\": [1, -2.5e+3, 0, {}, [], null, false], \"b\": \"\\u00e9\\n\"} "));
+        assertFalse(JsonValidator.isValidJson("{a: 1}"));
+        assertFalse(JsonValidator.isValidJson("{\"a\": 1,}"));
+        assertFalse(JsonValidator.isValidJson("[01]"));
+        assertFalse(JsonValidator.isValidJson("1.e5"));
+        assertFalse(JsonValidator.isValidJson("'single'"));
+        assertFalse(JsonValidator.isValidJson("{} {}"));
+        assertFalse(JsonValidator.isValidJson("\"bad \\x escape\""));
+        assertFalse(JsonValidator.isValidJson("tru"));
+    }
+
+    @Test
+    public void testErrorLocation() {
+        JsonValidator.Result result = JsonValidator.validate("{\n  \"a\": 1\n  \"b\": 2\n}");
+        assertFalse(result.isValid());
+        assertEquals(13, result.getErrorOffset());
+        assertEquals(3, result.getLine());
+        assertEquals(3, result.getColumn());
+        assertEquals("Expected ',' or '}'", result.getMessage());
+
+        assertEquals("Unexpected end of input", JsonValidator.validate("[1,2,3").getMessage());
+        assertTrue(JsonValidator.validate("[true]").isValid());
+    }
+
+    @Test
+    public void testCharArrayAndUtf8Input() {
+        char[] chars = "xx{\"k\": [1]}xx".toCharArray();
+        assertTrue(JsonValidator.validate(chars, 2, chars.length - 4).isValid());
+
+        ByteBuffer utf8 = ByteBuffer.wrap("{\"name\": \"Größe ✓\"}".getBytes(StandardCharsets.UTF_8));
+        assertTrue(JsonValidator.validate(utf8).isValid());
+        assertEquals(0, utf8.position());
+
+        JsonValidator.Result result = JsonValidator.validate(ByteBuffer.wrap("[ü]".getBytes(StandardCharsets.UTF_8)));
+        assertFalse(result.isValid());
+        assertEquals(1, result.getErrorOffset());
+    }
+
+    @Test
+    public void testDeepNesting() {
+        StringBuilder json = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            json.append(i % 2 == 0 ? "[" : "{\"k\":");
+        }
+        json.append("1");
+        for (int i = 199; i >= 0; i--) {
+            json.append(i % 2 == 0 ? "]" : "}");
+        }
+        assertTrue(JsonValidator.validate(json).isValid());
+        json.setCharAt(json.length() - 2, ']');
+        assertFalse(JsonValidator.validate(json).isValid());
+    }
+
+    @Test
+    public void testIncrementalMatchesFullScan() {
+        StringBuilder json = new StringBuilder("{\"items\": [");
+        for (int i = 0; i < 500; i++) {
+            json.append(i > 0 ? ", " : "").append("{\"id\": ").append(i).append(", \"name\": \"item").append(i).append("\"}");
+        }
+        json.append("]}");
+
+        IncrementalJsonValidator validator = new IncrementalJsonValidator(256);
+        assertTrue(validator.validate(json, 0).isValid());
+
+        // Break the tail, then fix it again, resuming from a checkpoint each time
+        int offset = json.length() - 20;
+        assertTrue(validator.resumeOffset(offset) > 0);
+        json.insert(offset, "\"oops");
+        JsonValidator.Result broken = validator.validate(json, offset);
+        assertEquals(JsonValidator.validate(json).getErrorOffset(), broken.getErrorOffset());
+        assertEquals(JsonValidator.validate(json).getLine(), broken.getLine());
+
+        json.delete(offset, offset + 5);
+        assertTrue(validator.validate(json, offset).isValid());
+
+        // An edit near the start drops the later checkpoints
+        json.setCharAt(1, 'x');
+        assertFalse(validator.validate(json, 1).isValid());
+        assertEquals(0, validator.resumeOffset(1));
+    }
+}
@@ -0,0 +1,67 @@
+package com.jsonconnector;
+
+import javafx.collections.FXCollections;
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ListDiffTest {
+
+    @Test
+    public void testNarrowingOnlyRemovesItems() {
+        ObservableList<String> items = FXCollections.observableArrayList("a", "b", "c", "d", "e", "f");
+        List<String> added = new ArrayList<>();
+        int[] removed = new int[1];
+        items.addListener((ListChangeListener<String>) change -> {
+            while (change.next()) {
+                added.addAll(change.getAddedSubList());
+                removed[0] += change.getRemovedSize();
+            }
+        });
+
+        ListDiff.apply(items, Arrays.asList("a", "c", "f"));
+
+        assertEquals(Arrays.asList("a", "c", "f"), items);
+        assertTrue(added.isEmpty());
+        assertEquals(3, removed[0]);
+    }
+
+    @Test
+    public void testArbitraryUpdates() {
+        List<List<String>> states = Arrays.asList(
+            Arrays.asList("a", "b", "c"),
+            Arrays.asList("c", "b", "a"),
+            Arrays.asList("b", "x", "c"),
+            Collections.emptyList(),
+            Arrays.asList("q"),
+            Arrays.asList("p", "q", "r"),
+            Arrays.asList("p", "r"),
+            Arrays.asList("p", "r"));
+        List<String> items = new ArrayList<>();
+        for (List<String> state : states) {
+            ListDiff.apply(items, state);
+            assertEquals(state, items);
+        }
+
+        // Too many scattered removals fall back to replacing the middle
+        List<String> many = new ArrayList<>();
+        List<String> every2nd = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            many.add("item" + i);
+            if (i % 2 == 0) {
+                every2nd.add("item" + i);
+            }
+        }
+        ListDiff.apply(items, many);
+        assertEquals(many, items);
+        ListDiff.apply(items, every2nd);
+        assertEquals(every2nd, items);
+    }
+}
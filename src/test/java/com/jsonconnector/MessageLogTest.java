@@ -0,0 +1,103 @@
+package com.jsonconnector;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MessageLogTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testAppendAndRead() throws IOException {
+        MessageLog log = new MessageLog(tempDir);
+        long before = System.currentTimeMillis();
+        assertEquals(0, log.append(MessageLog.Direction.SENT, "{\"command\": \"GetProcessId\"}"));
+        assertEquals(1, log.append(MessageLog.Direction.RECEIVED, "{\"result\": {\"name\": \"Größe\"}}"));
+
+        assertEquals(2, log.size());
+        MessageLog.Entry entry = log.read(1);
+        assertEquals(MessageLog.Direction.RECEIVED, entry.getDirection());
+        assertEquals("{\"result\": {\"name\": \"Größe\"}}", entry.getText());
+        assertTrue(entry.getTimestamp() >= before);
+        assertEquals(MessageLog.Direction.SENT, log.direction(0));
+        assertEquals("{\"command\"", log.preview(0, 10));
+        assertThrows(IndexOutOfBoundsException.class, () -> log.read(2));
+        log.close();
+    }
+
+    @Test
+    public void testRollsOverSegmentsAndReopens() throws IOException {
+        MessageLog log = new MessageLog(tempDir, 256);
+        for (int i = 0; i < 100; i++) {
+            log.append(i % 2 == 0 ? MessageLog.Direction.SENT : MessageLog.Direction.RECEIVED, "{\"n\": " + i + "}");
+        }
+        // Bigger than a whole segment
+        String large = "[" + "1,".repeat(1000) + "1]";
+        log.append(MessageLog.Direction.RECEIVED, large);
+        log.close();
+
+        try (Stream<Path> files = Files.list(tempDir)) {
+            assertTrue(files.count() > 2);
+        }
+
+        MessageLog reopened = new MessageLog(tempDir, 256);
+        assertEquals(101, reopened.size());
+        assertEquals("{\"n\": 42}", reopened.read(42).getText());
+        assertEquals(MessageLog.Direction.RECEIVED, reopened.read(43).getDirection());
+        assertEquals(large, reopened.read(100).getText());
+
+        assertEquals(101, reopened.append(MessageLog.Direction.SENT, "{\"after\": \"reopen\"}"));
+        assertEquals("{\"after\": \"reopen\"}", reopened.read(101).getText());
+        reopened.close();
+    }
+
+    @Test
+    public void testSegmentsStartSmallAndGrow() throws IOException {
+        MessageLog log = new MessageLog(tempDir);
+        log.append(MessageLog.Direction.SENT, "{\"command\": \"GetProcessId\"}");
+        Path segment = tempDir.resolve("segment-000000.log");
+        assertTrue(Files.size(segment) < 1024 * 1024, "A short log shouldn't preallocate a whole segment");
+
+        String message = "{\"data\": \"" + "x".repeat(10_000) + "\"}";
+        for (int i = 0; i < 100; i++) {
+            log.append(MessageLog.Direction.RECEIVED, message);
+        }
+        MessageLog.Entry first = log.read(0);
+        assertEquals(101, log.size());
+        assertEquals(message, log.read(100).getText());
+        assertTrue(Files.size(segment) >= 100 * message.length());
+        try (Stream<Path> files = Files.list(tempDir)) {
+            assertEquals(1, files.count(), "The segment grows before a new one is started");
+        }
+        log.close();
+
+        MessageLog reopened = new MessageLog(tempDir);
+        assertEquals(101, reopened.size());
+        assertEquals(first.getText(), reopened.read(0).getText());
+        assertEquals(message, reopened.read(100).getText());
+        reopened.close();
+    }
+
+    @Test
+    public void testDeleteOldLogsKeepsNewest() throws IOException {
+        for (String session : new String[] {"session-20260101-090000", "session-20260102-090000", "session-20260103-090000"}) {
+            new MessageLog(tempDir.resolve(session)).append(MessageLog.Direction.SENT, "{}");
+        }
+        Files.createDirectories(tempDir.resolve("recording"));
+
+        MessageLog.deleteOldLogs(tempDir, "session-", 2);
+
+        assertFalse(Files.exists(tempDir.resolve("session-20260101-090000")));
+        assertTrue(Files.exists(tempDir.resolve("session-20260102-090000")));
+        assertTrue(Files.exists(tempDir.resolve("session-20260103-090000")));
+        assertTrue(Files.exists(tempDir.resolve("recording")));
+    }
+}
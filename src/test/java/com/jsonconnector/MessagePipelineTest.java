@@ -0,0 +1,55 @@
+package com.jsonconnector;
+
+import com.google.gson.JsonParser;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MessagePipelineTest {
+
+    @Test
+    public void testValidMessageIsParsedOnce() {
+        List<ReceivedMessage> received = new ArrayList<>();
+        MessagePipeline pipeline = new MessagePipeline(received::add);
+
+        pipeline.accept("{\"result\": {\"processId\": 11480}}");
+
+        ReceivedMessage message = received.get(0);
+        assertEquals(JsonParser.parseString("{\"result\": {\"processId\": 11480}}"), message.getJson());
+        assertEquals(JsonFormatter.format("{\"result\": {\"processId\": 11480}}"), message.getFormatted());
+        assertEquals("{\"result\": {\"processId\": 11480}}", message.getRaw());
+    }
+
+    @Test
+    public void testInvalidMessageKeepsRawText() {
+        ReceivedMessage message = MessagePipeline.process("{not json");
+
+        assertNull(message.getJson());
+        assertEquals("{not json", message.getFormatted());
+    }
+
+    @Test
+    public void testLargeMessageIsNotParsed() throws IOException {
+        List<ReceivedMessage> received = new ArrayList<>();
+        MessagePipeline pipeline = new MessagePipeline(received::add);
+        pipeline.setMaxParsedChars(10);
+
+        pipeline.accept("{\"result\": [1, 2, 3]}");
+        pipeline.accept("[1]");
+
+        ReceivedMessage large = received.get(0);
+        assertFalse(large.isParsed());
+        assertNull(large.getJson());
+        StringBuilder formatted = new StringBuilder();
+        large.writeFormatted(formatted);
+        assertEquals(JsonFormatter.format("{\"result\": [1, 2, 3]}"), formatted.toString());
+        assertEquals(formatted.toString(), large.getFormatted());
+
+        assertTrue(received.get(1).isParsed());
+        assertNotNull(received.get(1).getJson());
+    }
+}
@@ -3,8 +3,11 @@ package com.jsonconnector;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.AfterEach;
+import com.google.gson.JsonElement;
 import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -20,7 +23,7 @@ public class ReconnectTest {
     private SocketClient socketClient;
     private AtomicBoolean connected;
     private AtomicInteger connectionCount;
-    private String lastError;
+    private volatile String lastError;
     
     @BeforeEach
     void setUp() {
@@ -55,22 +58,11 @@ public class ReconnectTest {
     
     @Test
     void testReconnectFunctionality() throws Exception {
-        // Start test server
-        Thread serverThread = new Thread(() -> {
-            try {
-                testServer.start(60201); // Use different port to avoid conflicts
-            } catch (IOException e) {
-                fail("Failed to start test server: " + e.getMessage());
-            }
-        });
-        serverThread.start();
-        
-        // Wait for server to start
-        Thread.sleep(500);
+        int port = startTestServer();
         
         // First connection
         CountDownLatch firstConnectionLatch = new CountDownLatch(1);
-        socketClient.connect("localhost", 60201);
+        socketClient.connect("localhost", port);
         
         // Wait for connection to complete
         Thread.sleep(1000);
@@ -78,7 +70,7 @@ public class ReconnectTest {
         
         // Simulate reconnection - this should disconnect and reconnect
         CountDownLatch reconnectionLatch = new CountDownLatch(1);
-        socketClient.connect("localhost", 60201);
+        socketClient.connect("localhost", port);
         
         // Wait for reconnection to complete
         Thread.sleep(1000);
@@ -92,21 +84,10 @@ public class ReconnectTest {
     
     @Test
     void testDisconnectBeforeReconnect() throws Exception {
-        // Start test server
-        Thread serverThread = new Thread(() -> {
-            try {
-                testServer.start(60202); // Use different port
-            } catch (IOException e) {
-                fail("Failed to start test server: " + e.getMessage());
-            }
-        });
-        serverThread.start();
-        
-        // Wait for server to start
-        Thread.sleep(500);
+        int port = startTestServer();
         
         // Connect
-        socketClient.connect("localhost", 60202);
+        socketClient.connect("localhost", port);
         Thread.sleep(1000); // Wait for connection
         assertTrue(socketClient.isConnected(), "Socket should report as connected");
         
@@ -115,8 +96,106 @@ public class ReconnectTest {
         assertFalse(socketClient.isConnected(), "Socket should report as disconnected after manual disconnect");
         
         // Reconnect should work
-        socketClient.connect("localhost", 60202);
+        socketClient.connect("localhost", port);
         Thread.sleep(1000); // Wait for reconnection
         assertTrue(socketClient.isConnected(), "Socket should report as connected after reconnection");
     }
-}
\ No newline at end of file
+    
+    @Test
+    void testAutoReconnectResendsUnansweredRequests() throws Exception {
+        int port = startTestServer();
+        CountDownLatch reconnecting = new CountDownLatch(1);
+        CountDownLatch reconnected = new CountDownLatch(2);
+        socketClient = new SocketClient(message -> { }, (isConnected, error) -> {
+            if (isConnected && error == null) {
+                reconnected.countDown();
+            } else if (!isConnected && error != null && error.contains("reconnecting")) {
+                reconnecting.countDown();
+            }
+        });
+        socketClient.setAutoReconnect(true);
+        socketClient.setReconnectBackoff(50, 200, TimeUnit.MILLISECONDS);
+        socketClient.connect("localhost", port);
+        Thread.sleep(500);
+        assertTrue(socketClient.isConnected(), "Should be connected");
+        
+        // The server drops the connection instead of answering
+        testServer.setDisconnectRate(1.0);
+        CompletableFuture<JsonElement> response = socketClient.sendAsync("{\"command\": \"Echo\"}", 10, TimeUnit.SECONDS);
+        assertTrue(reconnecting.await(5, TimeUnit.SECONDS), "Should start reconnecting");
+        testServer.setDisconnectRate(0);
+        
+        // Answered on the new connection
+        assertTrue(response.get(5, TimeUnit.SECONDS).getAsJsonObject().get("received").getAsString().contains("Echo"));
+        assertTrue(reconnected.await(5, TimeUnit.SECONDS), "Should report the new connection");
+        assertTrue(socketClient.isConnected());
+        assertFalse(socketClient.isReconnecting());
+    }
+    
+    @Test
+    void testDisconnectStopsReconnecting() throws Exception {
+        int port = startTestServer();
+        socketClient.setAutoReconnect(true);
+        socketClient.setReconnectBackoff(200, 200, TimeUnit.MILLISECONDS);
+        socketClient.connect("localhost", port);
+        Thread.sleep(500);
+        assertTrue(socketClient.isConnected(), "Should be connected");
+        
+        testServer.setDisconnectRate(1.0);
+        CompletableFuture<JsonElement> response = socketClient.sendAsync("{\"command\": \"Echo\"}");
+        Thread.sleep(100);
+        assertTrue(socketClient.isReconnecting(), "Should be reconnecting");
+        
+        socketClient.disconnect();
+        testServer.setDisconnectRate(0);
+        ExecutionException failed = assertThrows(ExecutionException.class, () -> response.get(5, TimeUnit.SECONDS));
+        assertTrue(failed.getCause() instanceof IOException);
+        Thread.sleep(500);
+        assertFalse(socketClient.isConnected(), "Should stay disconnected");
+        assertFalse(socketClient.isReconnecting());
+    }
+    
+    @Test
+    void testDisconnectRightAfterConnectWins() throws Exception {
+        int port = startTestServer();
+        for (int i = 0; i < 20; i++) {
+            socketClient.connect("localhost", port);
+            socketClient.disconnect();
+        }
+        Thread.sleep(500);
+        // A connect may finish before its disconnect, but none may land after it
+        assertFalse(socketClient.isConnected(), "A superseded connect must not connect");
+    }
+    
+    @Test
+    void testUnansweredHeartbeatClosesConnection() throws Exception {
+        int port = startTestServer();
+        socketClient.setHeartbeat("{\"command\": \"GetProcessId\"}", 200, TimeUnit.MILLISECONDS);
+        socketClient.connect("localhost", port);
+        Thread.sleep(500);
+        assertTrue(socketClient.isConnected(), "Answered heartbeats keep the connection");
+        
+        // The server stops answering but keeps the socket open
+        testServer.setDropRate(1.0);
+        Thread.sleep(1000);
+        assertFalse(socketClient.isConnected(), "Should detect the unresponsive server");
+        assertTrue(lastError.contains("heartbeat"), lastError);
+    }
+    
+    @Test
+    void testBackoffIsJitteredAndCapped() {
+        Backoff backoff = new Backoff(100, 1000);
+        for (int i = 0; i < 100; i++) {
+            long first = backoff.delayMillis(0);
+            assertTrue(first >= 50 && first <= 100, String.valueOf(first));
+            long third = backoff.delayMillis(2);
+            assertTrue(third >= 200 && third <= 400, String.valueOf(third));
+            long late = backoff.delayMillis(40);
+            assertTrue(late >= 500 && late <= 1000, String.valueOf(late));
+        }
+    }
+    
+    private int startTestServer() throws IOException {
+        return testServer.startInBackground();
+    }
+}
@@ -0,0 +1,134 @@
+package com.jsonconnector;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for recording a session and replaying it
+ */
+public class SessionReplayerTest {
+
+    @TempDir
+    Path tempDir;
+
+    private TestServer server;
+    private SocketClient client;
+
+    @AfterEach
+    void tearDown() throws IOException {
+        if (client != null) {
+            client.disconnect();
+        }
+        if (server != null) {
+            server.stop();
+        }
+    }
+
+    private int startServer(TestServer testServer) throws IOException {
+        server = testServer;
+        return testServer.startInBackground();
+    }
+
+    private SocketClient connect(int port) throws InterruptedException {
+        CountDownLatch connected = new CountDownLatch(1);
+        SocketClient socketClient = new SocketClient(message -> { }, (isConnected, error) -> {
+            if (isConnected && error == null) {
+                connected.countDown();
+            }
+        });
+        socketClient.connect("localhost", port);
+        assertTrue(connected.await(5, TimeUnit.SECONDS));
+        return socketClient;
+    }
+
+    @Test
+    void testRecordedSessionReplaysWithoutMismatches() throws Exception {
+        int port = startServer(new TestServer());
+
+        // Record a session
+        MessageLog live = new MessageLog(tempDir.resolve("live"));
+        client = connect(port);
+        client.setMessageLog(live);
+        client.sendAsync("{\"command\": \"GetProcessId\"}").get(5, TimeUnit.SECONDS);
+        client.sendAsync("{\"command\": \"GetCommands\"}").get(5, TimeUnit.SECONDS);
+        for (int i = 0; i < 20; i++) {
+            client.sendAsync("{\"command\": \"Echo\", \"n\": " + i + "}").get(5, TimeUnit.SECONDS);
+        }
+        client.setMessageLog(null);
+        MessageLog recording = live.compactTo(tempDir.resolve("recording"));
+        assertEquals(44, recording.size());
+
+        SessionReplayer replayer = new SessionReplayer(recording);
+        assertEquals(22, replayer.getRequestCount());
+        SessionReplayer.Report report = replayer.replay(client, SessionReplayer.Pacing.AS_FAST_AS_POSSIBLE, 4)
+            .get(10, TimeUnit.SECONDS);
+
+        assertEquals(22, report.getRequestCount());
+        assertEquals(0, report.getFailedCount());
+        assertEquals(0, report.getMismatchedCount());
+        assertTrue(report.getThroughput() > 0);
+        assertTrue(report.getLatencyMillis(50) <= report.getLatencyMillis(100));
+    }
+
+    @Test
+    void testPipelineDepthIsCappedByOutstandingLimit() throws Exception {
+        MessageLog recording = new MessageLog(tempDir);
+        for (int i = 0; i < 10; i++) {
+            recording.append(MessageLog.Direction.SENT, "{\"command\": \"Echo\", \"n\": " + i + "}");
+        }
+
+        int port = startServer(new TestServer());
+        CountDownLatch connected = new CountDownLatch(1);
+        client = new SocketClient(message -> { }, (isConnected, error) -> {
+            if (isConnected && error == null) {
+                connected.countDown();
+            }
+        });
+        client.setMaxOutstandingRequests(2);
+        client.connect("localhost", port);
+        assertTrue(connected.await(5, TimeUnit.SECONDS));
+
+        SessionReplayer replayer = new SessionReplayer(recording);
+        replayer.setCompareResponses(false);
+        SessionReplayer.Report report = replayer.replay(client, SessionReplayer.Pacing.AS_FAST_AS_POSSIBLE, 8)
+            .get(10, TimeUnit.SECONDS);
+
+        // A deeper pipeline would have been refused by the client
+        assertEquals(10, report.getRequestCount());
+        assertEquals(0, report.getFailedCount(), report.toString());
+    }
+
+    @Test
+    void testTestServerServesRecordedResponses() throws Exception {
+        MessageLog recording = new MessageLog(tempDir);
+        long start = System.currentTimeMillis();
+        recording.append(MessageLog.Direction.SENT, "{\"command\": \"API.GetElements\"}", start);
+        recording.append(MessageLog.Direction.RECEIVED, "{\"succeeded\": true, \"result\": {\"elements\": [1, 2]}}", start + 5);
+        recording.append(MessageLog.Direction.SENT, "{\"command\": \"API.GetElements\"}", start + 150);
+        recording.append(MessageLog.Direction.RECEIVED, "{\"succeeded\": true, \"result\": {\"elements\": []}}", start + 155);
+        recording.append(MessageLog.Direction.SENT, "{\"command\": \"API.GetElements\"}", start + 300);
+        recording.append(MessageLog.Direction.RECEIVED, "{\"succeeded\": false}", start + 305);
+
+        TestServer replayServer = new TestServer();
+        replayServer.setReplay(recording);
+        client = connect(startServer(replayServer));
+
+        SessionReplayer.Report report = new SessionReplayer(recording)
+            .replay(client, SessionReplayer.Pacing.ORIGINAL_TIMING, 1)
+            .get(10, TimeUnit.SECONDS);
+
+        assertEquals(3, report.getRequestCount());
+        assertEquals(0, report.getFailedCount());
+        assertEquals(0, report.getMismatchedCount());
+        // The recorded gaps are kept
+        assertTrue(report.getElapsedMillis() >= 300, report.toString());
+    }
+}
@@ -0,0 +1,657 @@
+package com.jsonconnector;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonToken;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the SocketClient send/receive engine
+ */
+public class SocketClientTest {
+
+    private ServerSocket serverSocket;
+    private SocketClient socketClient;
+
+    @AfterEach
+    void tearDown() throws IOException {
+        if (socketClient != null) {
+            socketClient.disconnect();
+        }
+        if (serverSocket != null) {
+            serverSocket.close();
+        }
+    }
+
+    @Test
+    void testSendsAreNotBlockedByIdleReader() throws Exception {
+        // Server that reads but never answers, so the client's reader stays blocked
+        serverSocket = new ServerSocket(0);
+        CountDownLatch received = new CountDownLatch(100);
+        Thread server = new Thread(() -> {
+            try (Socket client = serverSocket.accept();
+                 BufferedReader in = new BufferedReader(
+                         new InputStreamReader(client.getInputStream(), StandardCharsets.UTF_8))) {
+                while (in.readLine() != null) {
+                    received.countDown();
+                }
+            } catch (IOException e) {
+                // Server closed
+            }
+        });
+        server.setDaemon(true);
+        server.start();
+
+        CountDownLatch connected = new CountDownLatch(1);
+        socketClient = new SocketClient(message -> { }, (isConnected, error) -> {
+            if (isConnected && error == null) {
+                connected.countDown();
+            }
+        });
+        socketClient.connect("localhost", serverSocket.getLocalPort());
+        assertTrue(connected.await(5, TimeUnit.SECONDS), "Should connect");
+
+        for (int i = 0; i < 100; i++) {
+            assertTrue(socketClient.sendMessage("{\"command\": \"Ping\", \"n\": " + i + "}"));
+        }
+        assertTrue(received.await(5, TimeUnit.SECONDS), "All messages should reach the server");
+    }
+
+    @Test
+    void testFullSendQueueIsReported() throws Exception {
+        // Server that accepts and never reads, so the writer eventually stalls
+        serverSocket = new ServerSocket(0);
+        List<Socket> accepted = new CopyOnWriteArrayList<>();
+        Thread server = new Thread(() -> {
+            try {
+                accepted.add(serverSocket.accept());
+            } catch (IOException e) {
+                // Server closed
+            }
+        });
+        server.setDaemon(true);
+        server.start();
+
+        CountDownLatch connected = new CountDownLatch(1);
+        List<String> warnings = new CopyOnWriteArrayList<>();
+        socketClient = new SocketClient(message -> { }, (isConnected, error) -> {
+            if (isConnected && error == null) {
+                connected.countDown();
+            } else if (isConnected) {
+                warnings.add(error);
+            }
+        }, 4);
+        socketClient.connect("localhost", serverSocket.getLocalPort());
+        assertTrue(connected.await(5, TimeUnit.SECONDS), "Should connect");
+
+        String large = "{\"data\": \"" + "x".repeat(64 * 1024) + "\"}";
+        boolean rejected = false;
+        for (int i = 0; i < 1000 && !rejected; i++) {
+            rejected = !socketClient.sendMessage(large);
+        }
+
+        assertTrue(rejected, "Send queue should eventually fill up");
+        assertFalse(warnings.isEmpty(), "Backpressure should be reported through the status handler");
+        assertTrue(socketClient.isConnected(), "Backpressure must not drop the connection");
+
+        for (Socket socket : accepted) {
+            socket.close();
+        }
+    }
+
+    @Test
+    void testNioTransportFramesSplitAndCoalescedMessages() throws Exception {
+        String large = "{\"data\": \"" + "y".repeat(200 * 1024) + "\"}";
+        serverSocket = new ServerSocket(0);
+        Thread server = new Thread(() -> {
+            try (Socket client = serverSocket.accept()) {
+                OutputStream out = client.getOutputStream();
+                // Two messages in one write, one with CRLF and a multi-byte character
+                out.write("{\"a\": 1}\n{\"b\": \"\u00e9\"}\r\n".getBytes(StandardCharsets.UTF_8));
+                out.flush();
+                // A message split across many reads
+                byte[] bytes = (large + "\n").getBytes(StandardCharsets.UTF_8);
+                for (int offset = 0; offset < bytes.length; offset += 7000) {
+                    out.write(bytes, offset, Math.min(7000, bytes.length - offset));
+                    out.flush();
+                }
+                Thread.sleep(2000);
+            } catch (IOException | InterruptedException e) {
+                // Server closed
+            }
+        });
+        server.setDaemon(true);
+        server.start();
+
+        List<String> messages = new CopyOnWriteArrayList<>();
+        CountDownLatch received = new CountDownLatch(3);
+        socketClient = new SocketClient(message -> {
+            messages.add(message);
+            received.countDown();
+        }, (isConnected, error) -> { });
+        socketClient.setTransport(SocketClient.Transport.NIO);
+        socketClient.connect("localhost", serverSocket.getLocalPort());
+
+        assertTrue(received.await(5, TimeUnit.SECONDS), "All messages should be framed");
+        assertEquals("{\"a\": 1}", messages.get(0));
+        assertEquals("{\"b\": \"\u00e9\"}", messages.get(1));
+        assertEquals(large, messages.get(2));
+    }
+
+    @Test
+    void testNioTransportRoundTrip() throws Exception {
+        TestServer testServer = new TestServer();
+        int serverPort = testServer.startInBackground();
+
+        try {
+            CountDownLatch responses = new CountDownLatch(50);
+            socketClient = new SocketClient(message -> responses.countDown(), (isConnected, error) -> {
+                if (isConnected && error == null) {
+                    for (int i = 0; i < 50; i++) {
+                        socketClient.sendMessage("{\"command\": \"Echo\", \"n\": " + i + "}");
+                    }
+                }
+            });
+            socketClient.setTransport(SocketClient.Transport.NIO);
+            socketClient.connect("localhost", serverPort);
+
+            assertTrue(responses.await(5, TimeUnit.SECONDS), "Every request should get a response");
+        } finally {
+            testServer.stop();
+        }
+    }
+
+    @Test
+    void testNioHandlerFailureFailsOnlyThatConnection() throws Exception {
+        serveOnce("{\"a\": 1}\n");
+        NioEventLoop loop = new NioEventLoop("Test-NIO");
+        List<String> errors = new CopyOnWriteArrayList<>();
+        CountDownLatch failed = new CountDownLatch(1);
+        try {
+            socketClient = new SocketClient(message -> {
+                throw new IllegalStateException("handler broke");
+            }, (isConnected, error) -> {
+                if (!isConnected) {
+                    errors.add(error);
+                    failed.countDown();
+                }
+            });
+            socketClient.setTransport(SocketClient.Transport.NIO);
+            socketClient.setEventLoop(loop);
+            socketClient.connect("localhost", serverSocket.getLocalPort());
+
+            assertTrue(failed.await(5, TimeUnit.SECONDS), "The failure should be reported");
+            assertEquals("Connection failed: handler broke", errors.get(0));
+            assertFalse(socketClient.isConnected());
+
+            // The loop keeps serving other connections
+            TestServer testServer = new TestServer();
+            int serverPort = testServer.startInBackground();
+            try {
+                CountDownLatch connected = new CountDownLatch(1);
+                SocketClient other = new SocketClient(message -> { }, (isConnected, error) -> {
+                    if (isConnected) {
+                        connected.countDown();
+                    }
+                });
+                other.setTransport(SocketClient.Transport.NIO);
+                other.setEventLoop(loop);
+                other.connect("localhost", serverPort);
+                assertTrue(connected.await(5, TimeUnit.SECONDS));
+                assertTrue(other.sendAsync("{\"command\": \"Echo\"}", 5, TimeUnit.SECONDS).get(5, TimeUnit.SECONDS)
+                    .isJsonObject());
+                other.disconnect();
+            } finally {
+                testServer.stop();
+            }
+        } finally {
+            loop.close();
+        }
+    }
+
+    @Test
+    void testMessageLogRecordsBothDirections(@TempDir Path logDir) throws Exception {
+        TestServer testServer = new TestServer();
+        int port = testServer.startInBackground();
+        try {
+            MessageLog log = new MessageLog(logDir);
+            CountDownLatch connected = new CountDownLatch(1);
+            socketClient = new SocketClient(message -> { }, (isConnected, error) -> {
+                if (isConnected && error == null) {
+                    connected.countDown();
+                }
+            });
+            socketClient.setMessageLog(log);
+            socketClient.connect("localhost", port);
+            assertTrue(connected.await(5, TimeUnit.SECONDS));
+
+            socketClient.sendAsync("{\"command\": \"GetProcessId\"}").get(5, TimeUnit.SECONDS);
+
+            assertEquals(2, log.size());
+            assertEquals(MessageLog.Direction.SENT, log.read(0).getDirection());
+            assertEquals("{\"command\": \"GetProcessId\"}", log.read(0).getText());
+            assertEquals(MessageLog.Direction.RECEIVED, log.read(1).getDirection());
+            assertTrue(log.read(1).getText().contains("processId"));
+            log.close();
+        } finally {
+            testServer.stop();
+        }
+    }
+
+    @Test
+    void testHeartbeatsAreNotLogged(@TempDir Path logDir) throws Exception {
+        TestServer testServer = new TestServer();
+        int port = testServer.startInBackground();
+        try {
+            MessageLog log = new MessageLog(logDir);
+            CountDownLatch connected = new CountDownLatch(1);
+            socketClient = new SocketClient(message -> { }, (isConnected, error) -> {
+                if (isConnected && error == null) {
+                    connected.countDown();
+                }
+            });
+            socketClient.setMessageLog(log);
+            socketClient.setHeartbeat("{\"command\": \"GetProcessId\"}", 100, TimeUnit.MILLISECONDS);
+            socketClient.connect("localhost", port);
+            assertTrue(connected.await(5, TimeUnit.SECONDS));
+
+            Thread.sleep(500);
+            assertTrue(socketClient.getMetrics().getMessagesSent() > 0, "Heartbeats should have been sent");
+            socketClient.sendAsync("{\"command\": \"Echo\"}").get(5, TimeUnit.SECONDS);
+
+            assertEquals(2, log.size());
+            assertEquals("{\"command\": \"Echo\"}", log.read(0).getText());
+            assertTrue(log.read(1).getText().contains("received"));
+            log.close();
+        } finally {
+            testServer.stop();
+        }
+    }
+
+    @Test
+    void testMockServerFaultInjection() throws Exception {
+        TestServer testServer = new TestServer();
+        testServer.setErrorRate(1.0);
+        int port = testServer.startInBackground();
+        try {
+            CountDownLatch connected = new CountDownLatch(1);
+            CountDownLatch lost = new CountDownLatch(1);
+            socketClient = new SocketClient(message -> { }, (isConnected, error) -> {
+                if (isConnected && error == null) {
+                    connected.countDown();
+                } else if (!isConnected) {
+                    lost.countDown();
+                }
+            });
+            socketClient.connect("localhost", port);
+            assertTrue(connected.await(5, TimeUnit.SECONDS));
+
+            JsonElement failed = socketClient.sendAsync("{\"command\": \"GetProcessId\"}").get(5, TimeUnit.SECONDS);
+            assertFalse(failed.getAsJsonObject().get("succeeded").getAsBoolean());
+
+            testServer.setErrorRate(0);
+            testServer.setDropRate(1.0);
+            ExecutionException dropped = assertThrows(ExecutionException.class, () ->
+                socketClient.sendAsync("{\"command\": \"Echo\"}", 200, TimeUnit.MILLISECONDS).get(5, TimeUnit.SECONDS));
+            assertTrue(dropped.getCause() instanceof TimeoutException);
+
+            testServer.setDropRate(0);
+            testServer.setDisconnectRate(1.0);
+            ExecutionException disconnected = assertThrows(ExecutionException.class, () ->
+                socketClient.sendAsync("{\"command\": \"Echo\"}").get(5, TimeUnit.SECONDS));
+            assertTrue(disconnected.getCause() instanceof IOException);
+            assertTrue(lost.await(5, TimeUnit.SECONDS));
+        } finally {
+            testServer.stop();
+        }
+    }
+
+    @Test
+    void testThousandConnectionsAgainstMockServer() throws Exception {
+        TestServer testServer = new TestServer();
+        testServer.setResponsePadding(4096);
+        testServer.setLatency(20);
+        int port = testServer.startInBackground();
+        int clientCount = 1000;
+        int requestsPerClient = 5;
+        ExecutorService connectPool = Executors.newFixedThreadPool(8);
+        List<SocketClient> clients = new ArrayList<>();
+        try (NioEventLoop eventLoop = new NioEventLoop("LoadTest-NIO")) {
+            CountDownLatch responses = new CountDownLatch(clientCount * requestsPerClient);
+            for (int i = 0; i < clientCount; i++) {
+                SocketClient[] client = new SocketClient[1];
+                client[0] = new SocketClient(message -> {
+                    if (message.contains("padding")) {
+                        responses.countDown();
+                    }
+                }, (isConnected, error) -> {
+                    if (isConnected && error == null) {
+                        for (int n = 0; n < requestsPerClient; n++) {
+                            client[0].sendMessage("{\"command\": \"Echo\", \"n\": " + n + "}");
+                        }
+                    }
+                }, 64, eventLoop, connectPool);
+                clients.add(client[0]);
+                client[0].connect("localhost", port);
+            }
+
+            assertTrue(responses.await(30, TimeUnit.SECONDS), "Every client should get every response");
+        } finally {
+            clients.forEach(SocketClient::disconnect);
+            connectPool.shutdownNow();
+            testServer.stop();
+        }
+    }
+
+    @Test
+    void testSendAsyncCorrelatesInOrder() throws Exception {
+        TestServer testServer = new TestServer();
+        int port = testServer.startInBackground();
+        try {
+            List<String> unmatched = new CopyOnWriteArrayList<>();
+            CountDownLatch connected = new CountDownLatch(1);
+            socketClient = new SocketClient(unmatched::add, (isConnected, error) -> {
+                if (isConnected && error == null) {
+                    connected.countDown();
+                }
+            });
+            socketClient.connect("localhost", port);
+            assertTrue(connected.await(5, TimeUnit.SECONDS));
+
+            CompletableFuture<JsonElement> processId = socketClient.sendAsync("{\"command\": \"GetProcessId\"}");
+            socketClient.sendMessage("{\"command\": \"Echo\"}");
+            CompletableFuture<JsonElement> commands = socketClient.sendAsync("{\"command\": \"GetCommands\"}");
+
+            JsonObject processResult = processId.get(5, TimeUnit.SECONDS).getAsJsonObject().getAsJsonObject("result");
+            assertEquals(11480, processResult.get("processId").getAsInt());
+            JsonObject commandsResult = commands.get(5, TimeUnit.SECONDS).getAsJsonObject().getAsJsonObject("result");
+            assertTrue(commandsResult.has("commands"));
+
+            // The fire-and-forget response still goes to the message handler
+            Thread.sleep(200);
+            assertEquals(1, unmatched.size());
+            assertTrue(unmatched.get(0).contains("received"));
+            assertEquals(0, socketClient.getOutstandingRequestCount());
+        } finally {
+            testServer.stop();
+        }
+    }
+
+    @Test
+    void testSendAsyncCorrelatesById() throws Exception {
+        // Server that collects three requests and answers them in reverse order
+        serverSocket = new ServerSocket(0);
+        Thread server = new Thread(() -> {
+            try (Socket client = serverSocket.accept();
+                 BufferedReader in = new BufferedReader(
+                         new InputStreamReader(client.getInputStream(), StandardCharsets.UTF_8));
+                 PrintWriter out = new PrintWriter(client.getOutputStream(), true)) {
+                List<JsonObject> requests = new ArrayList<>();
+                for (int i = 0; i < 3; i++) {
+                    requests.add(JsonParser.parseString(in.readLine()).getAsJsonObject());
+                }
+                Collections.reverse(requests);
+                for (JsonObject request : requests) {
+                    JsonObject response = new JsonObject();
+                    response.add("id", request.get("id"));
+                    response.add("result", request.get("command"));
+                    out.println(response);
+                }
+                in.readLine();
+            } catch (IOException e) {
+                // Server closed
+            }
+        });
+        server.setDaemon(true);
+        server.start();
+
+        CountDownLatch connected = new CountDownLatch(1);
+        socketClient = new SocketClient(message -> { }, (isConnected, error) -> {
+            if (isConnected && error == null) {
+                connected.countDown();
+            }
+        });
+        socketClient.setCorrelation(SocketClient.Correlation.ID);
+        socketClient.connect("localhost", serverSocket.getLocalPort());
+        assertTrue(connected.await(5, TimeUnit.SECONDS));
+
+        List<CompletableFuture<JsonElement>> futures = new ArrayList<>();
+        // Generated ids skip the one the caller chose
+        futures.add(socketClient.sendAsync("{\"command\": \"Command0\", \"id\": 1}"));
+        futures.add(socketClient.sendAsync("{\"command\": \"Command1\"}"));
+        // A pending id can't be reused; the first request keeps its response
+        CompletableFuture<JsonElement> duplicate = socketClient.sendAsync("{\"command\": \"Other\", \"id\": 1.0}");
+        ExecutionException rejected = assertThrows(ExecutionException.class, () -> duplicate.get(1, TimeUnit.SECONDS));
+        assertEquals("A request with id 1 is already pending", rejected.getCause().getMessage());
+        // Ids that can't be echoed back reliably are rejected without taking a slot
+        for (String id : new String[] {"null", "{}", "[1]", "true"}) {
+            CompletableFuture<JsonElement> invalid = socketClient.sendAsync("{\"command\": \"Other\", \"id\": " + id + "}");
+            ExecutionException error = assertThrows(ExecutionException.class, () -> invalid.get(1, TimeUnit.SECONDS));
+            assertTrue(error.getCause() instanceof IllegalArgumentException, id);
+        }
+        assertEquals(2, socketClient.getOutstandingRequestCount());
+        futures.add(socketClient.sendAsync("{\"command\": \"Command2\"}"));
+        for (int i = 0; i < 3; i++) {
+            JsonObject response = futures.get(i).get(5, TimeUnit.SECONDS).getAsJsonObject();
+            assertEquals("Command" + i, response.get("result").getAsString());
+        }
+    }
+
+    @Test
+    void testSendAsyncTimeoutAndOutstandingCap() throws Exception {
+        // Server that never answers
+        serverSocket = new ServerSocket(0);
+        Thread server = new Thread(() -> {
+            try (Socket client = serverSocket.accept();
+                 BufferedReader in = new BufferedReader(
+                         new InputStreamReader(client.getInputStream(), StandardCharsets.UTF_8))) {
+                while (in.readLine() != null) {
+                    // Swallow requests
+                }
+            } catch (IOException e) {
+                // Server closed
+            }
+        });
+        server.setDaemon(true);
+        server.start();
+
+        CountDownLatch connected = new CountDownLatch(1);
+        socketClient = new SocketClient(message -> { }, (isConnected, error) -> {
+            if (isConnected && error == null) {
+                connected.countDown();
+            }
+        });
+        socketClient.setMaxOutstandingRequests(2);
+        socketClient.connect("localhost", serverSocket.getLocalPort());
+        assertTrue(connected.await(5, TimeUnit.SECONDS));
+
+        CompletableFuture<JsonElement> first = socketClient.sendAsync("{}", 200, TimeUnit.MILLISECONDS);
+        CompletableFuture<JsonElement> second = socketClient.sendAsync("{}", 10, TimeUnit.SECONDS);
+        CompletableFuture<JsonElement> rejected = socketClient.sendAsync("{}");
+
+        ExecutionException overCap = assertThrows(ExecutionException.class, () -> rejected.get(1, TimeUnit.SECONDS));
+        assertTrue(overCap.getCause() instanceof IllegalStateException);
+
+        ExecutionException timedOut = assertThrows(ExecutionException.class, () -> first.get(5, TimeUnit.SECONDS));
+        assertTrue(timedOut.getCause() instanceof TimeoutException);
+
+        // Disconnecting fails what is still outstanding
+        socketClient.disconnect();
+        ExecutionException closed = assertThrows(ExecutionException.class, () -> second.get(1, TimeUnit.SECONDS));
+        assertTrue(closed.getCause() instanceof IOException);
+    }
+
+    @Test
+    void testSendBatchReturnsResponsesInOrder() throws Exception {
+        TestServer testServer = new TestServer();
+        int port = testServer.startInBackground();
+        try {
+            CountDownLatch connected = new CountDownLatch(1);
+            socketClient = new SocketClient(message -> { }, (isConnected, error) -> {
+                if (isConnected && error == null) {
+                    connected.countDown();
+                }
+            });
+            socketClient.connect("localhost", port);
+            assertTrue(connected.await(5, TimeUnit.SECONDS));
+
+            List<String> commands = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                commands.add("{\"command\": \"Echo\", \"n\": " + i + "}");
+            }
+            List<JsonElement> results = socketClient.sendBatch(commands, 8).get(10, TimeUnit.SECONDS);
+
+            assertEquals(commands.size(), results.size());
+            for (int i = 0; i < results.size(); i++) {
+                String echoed = results.get(i).getAsJsonObject().get("received").getAsString();
+                assertEquals(i, JsonParser.parseString(echoed).getAsJsonObject().get("n").getAsInt());
+            }
+        } finally {
+            testServer.stop();
+        }
+    }
+
+    private void serveOnce(String payload) throws IOException {
+        serverSocket = new ServerSocket(0);
+        Thread server = new Thread(() -> {
+            try (Socket client = serverSocket.accept()) {
+                OutputStream out = client.getOutputStream();
+                out.write(payload.getBytes(StandardCharsets.UTF_8));
+                out.flush();
+                Thread.sleep(2000);
+            } catch (IOException | InterruptedException e) {
+                // Server closed
+            }
+        });
+        server.setDaemon(true);
+        server.start();
+    }
+
+    @Test
+    void testStreamingTransportReadsConcatenatedValues() throws Exception {
+        // No newline delimiters, one value pretty-printed over several lines
+        serveOnce("{\"a\": 1}{\"b\":\n  [true, null]\n}[1,2] \"text\"");
+
+        List<JsonElement> messages = new CopyOnWriteArrayList<>();
+        CountDownLatch received = new CountDownLatch(4);
+        socketClient = new SocketClient(message -> fail("Parsed messages should go to the JSON handler"),
+                                        (isConnected, error) -> { });
+        socketClient.setJsonHandler(message -> {
+            messages.add(message);
+            received.countDown();
+        });
+        socketClient.setTransport(SocketClient.Transport.STREAMING);
+        socketClient.connect("localhost", serverSocket.getLocalPort());
+
+        assertTrue(received.await(5, TimeUnit.SECONDS), "All values should be read");
+        assertEquals(JsonParser.parseString("{\"a\": 1}"), messages.get(0));
+        assertEquals(JsonParser.parseString("{\"b\": [true, null]}"), messages.get(1));
+        assertEquals(JsonParser.parseString("[1, 2]"), messages.get(2));
+        assertEquals("text", messages.get(3).getAsString());
+    }
+
+    @Test
+    void testEveryTransportRejectsLenientJson() throws Exception {
+        // Each of these parses in Gson's lenient mode but isn't JSON
+        String[] malformed = {"{'result': 1}", "{result: 1}", "{\"result\": NaN}", "{\"result\": /* one */ 1}"};
+        for (SocketClient.Transport transport : SocketClient.Transport.values()) {
+            for (String response : malformed) {
+                serverSocket = new ServerSocket(0);
+                Thread server = new Thread(() -> {
+                    try (Socket client = serverSocket.accept()) {
+                        BufferedReader in = new BufferedReader(
+                            new InputStreamReader(client.getInputStream(), StandardCharsets.UTF_8));
+                        in.readLine();
+                        OutputStream out = client.getOutputStream();
+                        out.write((response + "\n").getBytes(StandardCharsets.UTF_8));
+                        out.flush();
+                        Thread.sleep(2000);
+                    } catch (IOException | InterruptedException e) {
+                        // Server closed
+                    }
+                });
+                server.setDaemon(true);
+                server.start();
+
+                CountDownLatch connected = new CountDownLatch(1);
+                socketClient = new SocketClient(message -> { }, (isConnected, error) -> {
+                    if (isConnected && error == null) {
+                        connected.countDown();
+                    }
+                });
+                socketClient.setTransport(transport);
+                socketClient.connect("localhost", serverSocket.getLocalPort());
+                assertTrue(connected.await(5, TimeUnit.SECONDS));
+
+                CompletableFuture<JsonElement> result = socketClient.sendAsync("{\"command\": \"Echo\"}");
+                assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS),
+                             transport + " should reject " + response);
+                socketClient.disconnect();
+                serverSocket.close();
+            }
+        }
+    }
+
+    @Test
+    void testStreamingTransportTokenEvents() throws Exception {
+        serveOnce("{\"result\": {\"elements\": [{\"guid\": \"g1\"}, {\"guid\": \"g2\"}]}}{\"done\": true}");
+
+        List<String> guids = new CopyOnWriteArrayList<>();
+        AtomicInteger rootBegins = new AtomicInteger();
+        CountDownLatch ended = new CountDownLatch(2);
+        socketClient = new SocketClient(message -> fail("Streamed messages bypass the message handler"),
+                                        (isConnected, error) -> { });
+        socketClient.setTransport(SocketClient.Transport.STREAMING);
+        socketClient.setTokenListener(new JsonTokenListener() {
+            private boolean guidNext;
+
+            @Override
+            public void onToken(JsonToken token, String value, int depth) {
+                if (token == JsonToken.BEGIN_OBJECT && depth == 0) {
+                    rootBegins.incrementAndGet();
+                }
+                if (guidNext && token == JsonToken.STRING) {
+                    guids.add(value);
+                }
+                guidNext = token == JsonToken.NAME && "guid".equals(value);
+            }
+
+            @Override
+            public void onMessageEnd() {
+                ended.countDown();
+            }
+        });
+        socketClient.connect("localhost", serverSocket.getLocalPort());
+
+        assertTrue(ended.await(5, TimeUnit.SECONDS), "Both messages should be streamed");
+        assertEquals(2, rootBegins.get());
+        assertEquals(List.of("g1", "g2"), guids);
+    }
+}
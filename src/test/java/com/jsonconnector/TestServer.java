@@ -1,88 +1,420 @@
 package com.jsonconnector;
 
-import java.io.*;
-import java.net.*;
-import java.util.concurrent.ExecutorService;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
 
 /**
  * Simple TCP server for testing the JSON Socket Connector
+ * <p>
+ * One selector thread serves every connection, so it can act as a load-test target for
+ * thousands of clients. Requests are newline-delimited. {@code GetProcessId},
+ * {@code GetCommands} and {@code GetCommandParameters} get canned answers, anything else is
+ * echoed back. Response size, latency and injected faults are configurable.
  */
 public class TestServer {
-    
-    private ServerSocket serverSocket;
-    private ExecutorService executor;
+
+    private static final String[] DEFAULT_COMMANDS = {
+        "API.CloneProjectMapItemToViewMap", "API.GetProjectMapItems",
+        "ACUserInterface.GetTransparentNotifications", "Utility.GetArchicadLocation"
+    };
+
+    private volatile Selector selector;
+    private volatile ServerSocketChannel serverChannel;
     private volatile boolean running = false;
-    
+    private final Queue<Runnable> selectorTasks = new ConcurrentLinkedQueue<>();
+    private ScheduledExecutorService delayScheduler;
+
+    private volatile MessageLog replay;
+    private volatile int[] replayResponses = new int[0];
+    private volatile String commandsResponse = commandsResponse(DEFAULT_COMMANDS);
+    private volatile String padding = "";
+    private volatile long latencyMillis;
+    private volatile double errorRate;
+    private volatile double dropRate;
+    private volatile double disconnectRate;
+    private volatile boolean verbose;
+
+    /**
+     * Answers the n-th request of each connection with the n-th response recorded in
+     * {@code recording}; once those run out the canned answers apply again.
+     */
+    public void setReplay(MessageLog recording) {
+        replayResponses = IntStream.range(0, recording.size())
+            .filter(i -> recording.direction(i) == MessageLog.Direction.RECEIVED).toArray();
+        replay = recording;
+    }
+
+    /**
+     * Makes {@code GetCommands} return {@code count} generated commands instead of the canned four.
+     */
+    public void setCommandCount(int count) {
+        String[] commands = new String[count];
+        for (int i = 0; i < count; i++) {
+            commands[i] = "Domain" + (i % 10) + ".Command" + i;
+        }
+        commandsResponse = commandsResponse(commands);
+    }
+
+    /**
+     * Pads echo responses with a {@code "padding"} string of {@code bytes} characters.
+     */
+    public void setResponsePadding(int bytes) {
+        StringBuilder builder = new StringBuilder(bytes);
+        for (int i = 0; i < bytes; i++) {
+            builder.append((char) ('a' + i % 26));
+        }
+        padding = builder.toString();
+    }
+
+    /**
+     * Delays every response; responses keep their order per connection.
+     */
+    public void setLatency(long millis) {
+        latencyMillis = millis;
+    }
+
+    /**
+     * Fraction of requests answered with {@code "succeeded": false}.
+     */
+    public void setErrorRate(double rate) {
+        errorRate = rate;
+    }
+
+    /**
+     * Fraction of requests that never get a response.
+     */
+    public void setDropRate(double rate) {
+        dropRate = rate;
+    }
+
+    /**
+     * Fraction of requests on which the server closes the connection instead of answering.
+     */
+    public void setDisconnectRate(double rate) {
+        disconnectRate = rate;
+    }
+
+    /**
+     * Prints every request and connection; off by default so load tests aren't slowed down.
+     */
+    public void setVerbose(boolean verbose) {
+        this.verbose = verbose;
+    }
+
+    /**
+     * Serves connections on {@code port} until {@link #stop()} is called.
+     */
     public void start(int port) throws IOException {
-        serverSocket = new ServerSocket(port);
-        executor = Executors.newCachedThreadPool();
-        running = true;
-        
-        System.out.println("Test server started on port " + port);
-        
-        while (running) {
+        bind(port);
+        serve();
+    }
+
+    /**
+     * Binds a free port and serves on a daemon thread until {@link #stop()} is called.
+     * Connections are accepted as soon as this returns.
+     *
+     * @return the port, also available from {@link #getPort()}
+     */
+    public int startInBackground() throws IOException {
+        bind(0);
+        Thread thread = new Thread(() -> {
             try {
-                Socket clientSocket = serverSocket.accept();
-                executor.submit(() -> handleClient(clientSocket));
+                serve();
             } catch (IOException e) {
-                if (running) {
-                    System.err.println("Error accepting client: " + e.getMessage());
+                // Server stopped
+            }
+        }, "TestServer");
+        thread.setDaemon(true);
+        thread.start();
+        return getPort();
+    }
+
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    private void bind(int port) throws IOException {
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(port), 1024);
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        delayScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "TestServer-Latency");
+            t.setDaemon(true);
+            return t;
+        });
+        running = true;
+
+        System.out.println("Test server started on port " + getPort());
+    }
+
+    private void serve() throws IOException {
+        ByteBuffer readBuffer = ByteBuffer.allocateDirect(64 * 1024);
+        try {
+            while (running) {
+                selector.select();
+                Runnable task;
+                while ((task = selectorTasks.poll()) != null) {
+                    task.run();
+                }
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    try {
+                        if (!key.isValid()) {
+                            continue;
+                        }
+                        if (key.isAcceptable()) {
+                            accept();
+                        } else {
+                            if (key.isReadable()) {
+                                read(key, readBuffer);
+                            }
+                            if (key.isValid() && key.isWritable()) {
+                                flush((Client) key.attachment());
+                            }
+                        }
+                    } catch (IOException e) {
+                        if (key.attachment() != null) {
+                            close((Client) key.attachment());
+                        }
+                    }
                 }
             }
+        } catch (ClosedSelectorException e) {
+            // Stopped
+        } finally {
+            closeAll();
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while ((channel = serverChannel.accept()) != null) {
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+            Client client = new Client(channel);
+            client.key = channel.register(selector, SelectionKey.OP_READ, client);
+            if (verbose) {
+                System.out.println("Client connected: " + channel.getRemoteAddress());
+            }
         }
     }
-    
-    private void handleClient(Socket clientSocket) {
-        try (BufferedReader in = new BufferedReader(new InputStreamReader(clientSocket.getInputStream()));
-             PrintWriter out = new PrintWriter(clientSocket.getOutputStream(), true)) {
-            
-            System.out.println("Client connected: " + clientSocket.getRemoteSocketAddress());
-            
-            String inputLine;
-            while ((inputLine = in.readLine()) != null) {
-                System.out.println("Received: " + inputLine);
-                
-                // Handle specific commands
-                if (inputLine.contains("GetProcessId")) {
-                    out.println("{\"succeeded\": true, \"result\": {\"processId\": 11480}}");
-                } else if (inputLine.contains("GetCommands")) {
-                    out.println("{\"succeeded\": true, \"result\": {\"commands\": [\"API.CloneProjectMapItemToViewMap\", \"API.GetProjectMapItems\", \"ACUserInterface.GetTransparentNotifications\", \"Utility.GetArchicadLocation\"]}}");
-                } else if (inputLine.contains("GetCommandParameters")) {
-                    out.println("{\"succeeded\": true, \"result\": {\"parameters\": [{\"name\": \"sourceMapName\", \"type\": \"string\"}, {\"name\": \"targetMapName\", \"type\": \"string\"}]}}");
-                } else {
-                    // Echo back the message
-                    out.println("{\"received\": \"" + inputLine.replace("\"", "\\\"") + "\"}");
+
+    private void read(SelectionKey key, ByteBuffer buffer) throws IOException {
+        Client client = (Client) key.attachment();
+        buffer.clear();
+        int count = client.channel.read(buffer);
+        if (count < 0) {
+            close(client);
+            return;
+        }
+        buffer.flip();
+        while (buffer.hasRemaining() && client.channel.isOpen()) {
+            byte b = buffer.get();
+            if (b == '\n') {
+                String line = client.line.toString(StandardCharsets.UTF_8).replace("\r", "");
+                client.line.reset();
+                if (!line.isEmpty()) {
+                    handleRequest(client, line);
                 }
+            } else {
+                client.line.write(b);
             }
+        }
+    }
+
+    private void handleRequest(Client client, String request) {
+        if (verbose) {
+            System.out.println("Received: " + request);
+        }
+        int requestNumber = client.requestCount++;
+
+        double roll = ThreadLocalRandom.current().nextDouble();
+        if (roll < disconnectRate) {
+            close(client);
+            return;
+        }
+        if (roll < disconnectRate + dropRate) {
+            return;
+        }
+
+        String response;
+        MessageLog recording = replay;
+        int[] recorded = replayResponses;
+        if (roll < disconnectRate + dropRate + errorRate) {
+            response = "{\"succeeded\": false, \"error\": {\"code\": 500, \"message\": \"Injected fault\"}}";
+        } else if (recording != null && requestNumber < recorded.length) {
+            response = recording.read(recorded[requestNumber]).getText();
+        } else {
+            response = respond(request);
+        }
+
+        ByteBuffer bytes = ByteBuffer.wrap((response + "\n").getBytes(StandardCharsets.UTF_8));
+        long delay = latencyMillis;
+        if (delay > 0) {
+            delayScheduler.schedule(() -> {
+                selectorTasks.add(() -> send(client, bytes));
+                selector.wakeup();
+            }, delay, TimeUnit.MILLISECONDS);
+        } else {
+            send(client, bytes);
+        }
+    }
+
+    private String respond(String request) {
+        // Handle specific commands
+        if (request.contains("GetProcessId")) {
+            return "{\"succeeded\": true, \"result\": {\"processId\": 11480}}";
+        } else if (request.contains("GetCommands")) {
+            return commandsResponse;
+        } else if (request.contains("GetCommandParameters")) {
+            return "{\"succeeded\": true, \"result\": {\"parameters\": [{\"name\": \"sourceMapName\", \"type\": \"string\"}, {\"name\": \"targetMapName\", \"type\": \"string\"}]}}";
+        }
+        // Echo back the message
+        String echo = "{\"received\": \"" + request.replace("\"", "\\\"") + "\"";
+        String currentPadding = padding;
+        return currentPadding.isEmpty() ? echo + "}" : echo + ", \"padding\": \"" + currentPadding + "\"}";
+    }
+
+    private void send(Client client, ByteBuffer bytes) {
+        if (!client.channel.isOpen()) {
+            return;
+        }
+        client.writes.add(bytes);
+        try {
+            flush(client);
         } catch (IOException e) {
-            System.err.println("Error handling client: " + e.getMessage());
-        } finally {
+            close(client);
+        }
+    }
+
+    private void flush(Client client) throws IOException {
+        ByteBuffer head;
+        while ((head = client.writes.peek()) != null) {
+            client.channel.write(head);
+            if (head.hasRemaining()) {
+                // Socket buffer full; continue when it drains
+                client.key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                return;
+            }
+            client.writes.poll();
+        }
+        client.key.interestOps(SelectionKey.OP_READ);
+    }
+
+    private void close(Client client) {
+        try {
+            client.channel.close();
+        } catch (IOException e) {
+            // Ignore
+        }
+        if (verbose) {
+            System.out.println("Client disconnected");
+        }
+    }
+
+    private void closeAll() {
+        if (selector.isOpen()) {
+            for (SelectionKey key : selector.keys()) {
+                if (key.attachment() != null) {
+                    close((Client) key.attachment());
+                }
+            }
             try {
-                clientSocket.close();
+                selector.close();
             } catch (IOException e) {
                 // Ignore
             }
-            System.out.println("Client disconnected");
         }
+        delayScheduler.shutdownNow();
+    }
+
+    private static String commandsResponse(String[] commands) {
+        StringBuilder response = new StringBuilder("{\"succeeded\": true, \"result\": {\"commands\": [");
+        for (int i = 0; i < commands.length; i++) {
+            response.append(i > 0 ? ", " : "").append('"').append(commands[i]).append('"');
+        }
+        return response.append("]}}").toString();
     }
-    
+
     public void stop() throws IOException {
         running = false;
-        if (serverSocket != null) {
-            serverSocket.close();
+        if (serverChannel != null) {
+            serverChannel.close();
+        }
+        if (selector != null) {
+            selector.wakeup();
         }
-        if (executor != null) {
-            executor.shutdown();
+    }
+
+    private static final class Client {
+        final SocketChannel channel;
+        final ByteArrayOutputStream line = new ByteArrayOutputStream();
+        final Queue<ByteBuffer> writes = new ArrayDeque<>();
+        SelectionKey key;
+        int requestCount;
+
+        Client(SocketChannel channel) {
+            this.channel = channel;
         }
     }
-    
+
+    /**
+     * Options: {@code --port N}, {@code --replay <recording directory>}, {@code --commands N},
+     * {@code --padding BYTES}, {@code --latency MILLIS}, {@code --error-rate R},
+     * {@code --drop-rate R}, {@code --disconnect-rate R}, {@code --quiet}
+     */
     public static void main(String[] args) {
         TestServer server = new TestServer();
+        server.setVerbose(true);
+        int port = 60200;
         try {
-            server.start(60200);
-        } catch (IOException e) {
+            for (int i = 0; i < args.length; i++) {
+                String option = args[i];
+                if (option.equals("--quiet")) {
+                    server.setVerbose(false);
+                    continue;
+                }
+                if (i + 1 >= args.length) {
+                    throw new IllegalArgumentException("Missing value for " + option);
+                }
+                String value = args[++i];
+                switch (option) {
+                    case "--port": port = Integer.parseInt(value); break;
+                    case "--replay": server.setReplay(new MessageLog(Paths.get(value))); break;
+                    case "--commands": server.setCommandCount(Integer.parseInt(value)); break;
+                    case "--padding": server.setResponsePadding(Integer.parseInt(value)); break;
+                    case "--latency": server.setLatency(Long.parseLong(value)); break;
+                    case "--error-rate": server.setErrorRate(Double.parseDouble(value)); break;
+                    case "--drop-rate": server.setDropRate(Double.parseDouble(value)); break;
+                    case "--disconnect-rate": server.setDisconnectRate(Double.parseDouble(value)); break;
+                    default: throw new IllegalArgumentException("Unknown option " + option);
+                }
+            }
+            server.start(port);
+        } catch (IOException | IllegalArgumentException e) {
             System.err.println("Failed to start server: " + e.getMessage());
         }
     }
-}
\ No newline at end of file
+}
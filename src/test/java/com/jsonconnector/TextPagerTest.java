@@ -0,0 +1,65 @@
+package com.jsonconnector;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TextPagerTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testPagesFromMemory() throws IOException {
+        try (TextPager pager = TextPager.of("0123456789")) {
+            assertEquals(10, pager.getLength());
+            assertNull(pager.getFile());
+
+            assertEquals("0123", pager.nextPage(4));
+            assertEquals("4567", pager.nextPage(4));
+            assertTrue(pager.hasMore());
+            assertEquals("89", pager.nextPage(4));
+            assertFalse(pager.hasMore());
+            assertEquals("", pager.nextPage(4));
+            assertEquals(10, pager.getPosition());
+        }
+    }
+
+    @Test
+    public void testSpillsFormattedTextToFile() throws IOException {
+        String raw = "{\"result\":{\"name\":\"Größe\",\"values\":[1,2,3]}}";
+        ReceivedMessage message = MessagePipeline.process(raw);
+
+        Path file = tempDir.resolve("response.json");
+        try (TextPager pager = TextPager.spill(message, file)) {
+            String formatted = message.getFormatted();
+            assertEquals(formatted.length(), pager.getLength());
+            assertEquals(file, pager.getFile());
+            assertEquals(formatted, new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+
+            StringBuilder pages = new StringBuilder();
+            while (pager.hasMore()) {
+                pages.append(pager.nextPage(7));
+            }
+            assertEquals(formatted, pages.toString());
+        }
+
+        // The next message replaces the file's content
+        ReceivedMessage shorter = MessagePipeline.process("[1]");
+        try (TextPager pager = TextPager.spill(shorter, file)) {
+            assertEquals(shorter.getFormatted(), pager.nextPage(100));
+            assertFalse(pager.hasMore());
+        }
+        assertEquals(shorter.getFormatted(), new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+        try (Stream<Path> files = Files.list(tempDir)) {
+            assertEquals(1, files.count());
+        }
+    }
+}
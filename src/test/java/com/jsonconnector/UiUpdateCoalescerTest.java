@@ -0,0 +1,86 @@
+package com.jsonconnector;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UiUpdateCoalescerTest {
+
+    @Test
+    public void testOnlyLatestUpdateIsRendered() {
+        Queue<Runnable> uiQueue = new ConcurrentLinkedQueue<>();
+        List<String> rendered = new ArrayList<>();
+        UiUpdateCoalescer<String> coalescer = new UiUpdateCoalescer<>(uiQueue::add, rendered::add);
+
+        for (int i = 0; i < 100; i++) {
+            coalescer.submit("message " + i);
+        }
+
+        assertEquals(1, uiQueue.size(), "Only one render should be queued");
+        uiQueue.poll().run();
+
+        assertEquals(List.of("message 99"), rendered);
+        assertEquals(100, coalescer.getSubmittedCount());
+        assertEquals(1, coalescer.getRenderedCount());
+        assertEquals(99, coalescer.getDroppedCount());
+    }
+
+    @Test
+    public void testDroppedCountPerFrameStartsOver() {
+        Queue<Runnable> uiQueue = new ConcurrentLinkedQueue<>();
+        UiUpdateCoalescer<String> coalescer = new UiUpdateCoalescer<>(uiQueue::add, update -> { }, null, 0);
+
+        for (int i = 0; i < 10; i++) {
+            coalescer.submit("message " + i);
+        }
+        uiQueue.poll().run();
+        assertEquals(9, coalescer.getLastRenderDroppedCount());
+
+        coalescer.submit("message 10");
+        coalescer.submit("message 11");
+        uiQueue.poll().run();
+        assertEquals(1, coalescer.getLastRenderDroppedCount());
+        assertEquals(10, coalescer.getDroppedCount());
+    }
+
+    @Test
+    public void testMergedUpdatesAreRenderedAsOneBatch() {
+        Queue<Runnable> uiQueue = new ConcurrentLinkedQueue<>();
+        List<String> rendered = new ArrayList<>();
+        UiUpdateCoalescer<String> coalescer = new UiUpdateCoalescer<>(
+            uiQueue::add, rendered::add, (pending, next) -> pending + "," + next, 0);
+
+        coalescer.submit("a");
+        coalescer.submit("b");
+        coalescer.submit("c");
+        uiQueue.poll().run();
+
+        assertEquals(List.of("a,b,c"), rendered);
+        assertEquals(2, coalescer.getMergedCount());
+        assertEquals(0, coalescer.getDroppedCount());
+    }
+
+    @Test
+    public void testRendersArePacedByFrame() throws Exception {
+        Queue<Runnable> uiQueue = new ConcurrentLinkedQueue<>();
+        List<String> rendered = new ArrayList<>();
+        UiUpdateCoalescer<String> coalescer = new UiUpdateCoalescer<>(uiQueue::add, rendered::add, null, 200);
+
+        coalescer.submit("first");
+        uiQueue.poll().run();
+
+        // A render happened just now, so the next one waits for the frame to pass
+        coalescer.submit("second");
+        assertTrue(uiQueue.isEmpty(), "Render should be delayed until the next frame");
+
+        Thread.sleep(400);
+        assertEquals(1, uiQueue.size());
+        uiQueue.poll().run();
+        assertEquals(List.of("first", "second"), rendered);
+    }
+}